@@ -0,0 +1,141 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.7.0                                                             *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-level character map for scanners with more than 256 input characters.
+ *
+ * <p>The code points are cut into blocks of {@link #BLOCK_SIZE} characters. Blocks with the same
+ * character class for each of their characters are stored only once, one after another in
+ * <code>blocks</code>, and <code>top</code> maps the number of a block (<code>c &gt;&gt;
+ * BLOCK_SHIFT</code>) to its number in <code>blocks</code>. The class of code point <code>c</code>
+ * is then
+ *
+ * <pre>blocks[top[c &gt;&gt; BLOCK_SHIFT] &lt;&lt; BLOCK_SHIFT | (c &amp; BLOCK_MASK)]</pre>
+ *
+ * <p>The first block, with the characters 0 to 255, is always stored first, so that scanners can
+ * look up these characters with a single array access. Both levels only hold values up to 0xFFFF
+ * for up to 0x10FFFF characters, so they can be packed into strings like the other tables.
+ *
+ * @version JFlex 1.7.0
+ */
+public class CMapBlocks {
+
+  /** number of bits of a code point that index into a block */
+  public static final int BLOCK_SHIFT = 8;
+
+  /** number of characters in a block */
+  public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+  /** mask for the index of a character in its block */
+  public static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  /** block number to number of the distinct block in <code>blocks</code> */
+  private final int[] top;
+
+  /** contents of all distinct blocks, one after another */
+  private final int[] blocks;
+
+  /**
+   * Builds the two-level map of a set of character class intervals.
+   *
+   * @param intervals the character class intervals, ordered by char code and without gaps, as
+   *     returned by {@link CharClasses#getIntervals()}
+   * @param colMap translation of character classes to the values stored in the map, e.g. the
+   *     columns of the transition table
+   * @param maxChar the largest character code the map is needed for
+   */
+  public CMapBlocks(CharClassInterval[] intervals, int[] colMap, int maxChar) {
+    top = new int[(maxChar >> BLOCK_SHIFT) + 1];
+
+    // distinct blocks by hash code, as their block numbers
+    Map<Integer, List<Integer>> known = new HashMap<>();
+    List<int[]> distinct = new ArrayList<>();
+
+    int[] block = new int[BLOCK_SIZE];
+    int i = 0; // current interval
+    for (int b = 0; b < top.length; b++) {
+      int start = b << BLOCK_SHIFT;
+      for (int c = 0; c < BLOCK_SIZE; c++) {
+        while (i < intervals.length - 1 && intervals[i].end < start + c) i++;
+        block[c] = colMap[intervals[i].charClass];
+      }
+
+      int hash = Arrays.hashCode(block);
+      List<Integer> candidates = known.get(hash);
+      if (candidates == null) {
+        candidates = new ArrayList<>(1);
+        known.put(hash, candidates);
+      }
+
+      int found = -1;
+      for (int candidate : candidates) {
+        if (Arrays.equals(distinct.get(candidate), block)) {
+          found = candidate;
+          break;
+        }
+      }
+      if (found < 0) {
+        found = distinct.size();
+        distinct.add(block.clone());
+        candidates.add(found);
+      }
+      top[b] = found;
+    }
+
+    blocks = new int[distinct.size() << BLOCK_SHIFT];
+    for (int b = 0; b < distinct.size(); b++) {
+      System.arraycopy(distinct.get(b), 0, blocks, b << BLOCK_SHIFT, BLOCK_SIZE);
+    }
+  }
+
+  /**
+   * Returns the value of a character in the map.
+   *
+   * @param c the character code, at most the <code>maxChar</code> of the map
+   * @return the value stored for <code>c</code>
+   */
+  public int get(int c) {
+    return blocks[top[c >> BLOCK_SHIFT] << BLOCK_SHIFT | (c & BLOCK_MASK)];
+  }
+
+  /**
+   * Returns the top level of the map: block number to number of the distinct block.
+   *
+   * @return an array with one entry per block.
+   */
+  public int[] getTop() {
+    return top;
+  }
+
+  /**
+   * Returns the contents of all distinct blocks.
+   *
+   * @return an array with {@link #BLOCK_SIZE} entries per distinct block.
+   */
+  public int[] getBlocks() {
+    return blocks;
+  }
+
+  /**
+   * Returns the number of distinct blocks.
+   *
+   * @return number of blocks stored in the map.
+   */
+  public int numBlocks() {
+    return blocks.length >> BLOCK_SHIFT;
+  }
+}
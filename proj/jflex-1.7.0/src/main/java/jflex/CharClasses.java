@@ -9,12 +9,18 @@
 
 package jflex;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Character Classes.
  *
+ * <p>The classes partition the characters 0..maxCharCode into intervals, ordered by char code:
+ * interval <code>i</code> starts at <code>start[i]</code>, ends just before the next one, and its
+ * characters are in class <code>classOf[i]</code>. Adjacent intervals are in different classes.
+ * Looking up the class of a character is a binary search over <code>start</code>, and a new class
+ * only splits the intervals it overlaps.
+ *
  * @author Gerwin Klein
  * @version JFlex 1.7.0
  */
@@ -26,8 +32,33 @@ public class CharClasses {
   /** the largest character that can be used in char classes */
   public static final int maxChar = 0x10FFFF;
 
-  /** the char classes */
-  private List<IntCharSet> classes;
+  /** start[i] is the first character of interval i */
+  private int[] start;
+
+  /** classOf[i] is the class of the characters of interval i */
+  private int[] classOf;
+
+  /** the number of intervals */
+  private int numIntervals;
+
+  /** the last character of the last interval */
+  private int last;
+
+  /** the number of classes */
+  private int numClasses;
+
+  /** size[c] is the number of characters in class c */
+  private int[] size;
+
+  // scratch space of makeClass: the partition it builds, how many characters of
+  // the new set each class has, the classes it touches, and where they move to
+  private int[] newStart = new int[0];
+  private int[] newClassOf = new int[0];
+  private int newNumIntervals;
+  private int[] inside = new int[0];
+  private int[] touched = new int[0];
+  private int numTouched;
+  private int[] newClass = new int[0];
 
   /** the largest character actually used in a specification */
   private int maxCharUsed;
@@ -65,8 +96,15 @@ public class CharClasses {
 
     maxCharUsed = maxCharCode;
     this.scanner = scanner;
-    classes = new ArrayList<>();
-    classes.add(new IntCharSet(new Interval(0, maxCharCode)));
+
+    start = new int[] {0};
+    classOf = new int[] {0};
+    numIntervals = 1;
+    last = maxCharCode;
+    numClasses = 1;
+    size = new int[0];
+    growClasses();
+    size[0] = maxCharCode + 1;
   }
 
   /**
@@ -104,7 +142,7 @@ public class CharClasses {
    * @return number of character classes.
    */
   public int getNumClasses() {
-    return classes.size();
+    return numClasses;
   }
 
   /**
@@ -125,40 +163,141 @@ public class CharClasses {
       dump();
     }
 
-    int oldSize = classes.size();
-    for (int i = 0; i < oldSize; i++) {
-      IntCharSet x = classes.get(i);
-
-      if (x.equals(set)) return;
-
-      IntCharSet and = x.and(set);
-
-      if (and.containsElements()) {
-        if (x.equals(and)) {
-          set.sub(and);
-          continue;
-        } else if (set.equals(and)) {
-          x.sub(and);
-          classes.add(and);
-          if (DEBUG) {
-            Out.dump("makeClass(..) finished");
-            dump();
-          }
-          return;
-        }
+    List<Interval> intervals = set.getIntervals();
+
+    // count the characters of set in each class
+    for (Interval interval : intervals) {
+      if (interval.start > last) break;
+      int end = Math.min(interval.end, last);
+      for (int i = find(interval.start), pos = interval.start; pos <= end; i++) {
+        int c = classOf[i];
+        if (inside[c] == 0) touched[numTouched++] = c;
+        int next = Math.min(end(i), end) + 1;
+        inside[c] += next - pos;
+        pos = next;
+      }
+    }
 
-        set.sub(and);
-        x.sub(and);
-        classes.add(and);
+    // each class that is only partly in set is split, the new classes
+    // are numbered in the order of the classes they are split from
+    Arrays.sort(touched, 0, numTouched);
+    boolean split = false;
+    for (int k = 0; k < numTouched; k++) {
+      int c = touched[k];
+      if (inside[c] < size[c]) {
+        if (numClasses == size.length) growClasses();
+        newClass[c] = numClasses;
+        size[numClasses++] = inside[c];
+        size[c] -= inside[c];
+        split = true;
+      } else {
+        newClass[c] = c;
       }
     }
 
+    if (split) refine(intervals);
+
+    for (int k = 0; k < numTouched; k++) inside[touched[k]] = 0;
+    numTouched = 0;
+
     if (DEBUG) {
       Out.dump("makeClass(..) finished");
       dump();
     }
   }
 
+  /** Moves the characters of <code>intervals</code> in each class c to class newClass[c]. */
+  private void refine(List<Interval> intervals) {
+    int capacity = numIntervals + 2 * intervals.size();
+    if (newStart.length < capacity) {
+      newStart = new int[capacity];
+      newClassOf = new int[capacity];
+    }
+    newNumIntervals = 0;
+
+    int i = 0; // the interval of pos
+    int pos = 0; // the first character not in the new partition yet
+    for (Interval interval : intervals) {
+      if (interval.start > last) break;
+      int end = Math.min(interval.end, last);
+
+      // the characters before interval keep their class
+      if (pos < interval.start) {
+        int k = find(interval.start);
+        append(pos, classOf[i]);
+        copy(i + 1, k);
+        if (k > i && start[k] < interval.start) append(start[k], classOf[k]);
+        i = k;
+        pos = interval.start;
+      }
+
+      // the characters of interval move
+      while (pos <= end) {
+        append(pos, newClass[classOf[i]]);
+        if (end(i) <= end) {
+          pos = end(i) + 1;
+          i++;
+        } else {
+          pos = end + 1;
+        }
+      }
+    }
+
+    if (pos <= last) {
+      append(pos, classOf[i]);
+      copy(i + 1, numIntervals);
+    }
+
+    int[] oldStart = start;
+    int[] oldClassOf = classOf;
+    start = newStart;
+    classOf = newClassOf;
+    numIntervals = newNumIntervals;
+    newStart = oldStart;
+    newClassOf = oldClassOf;
+  }
+
+  /** Appends an interval to the new partition, or extends the last one if it has the same class. */
+  private void append(int intervalStart, int c) {
+    if (newNumIntervals > 0 && newClassOf[newNumIntervals - 1] == c) return;
+    newStart[newNumIntervals] = intervalStart;
+    newClassOf[newNumIntervals++] = c;
+  }
+
+  /** Appends the intervals from..to-1 of the current partition to the new one. */
+  private void copy(int from, int to) {
+    if (from >= to) return;
+    append(start[from], classOf[from]);
+    System.arraycopy(start, from + 1, newStart, newNumIntervals, to - from - 1);
+    System.arraycopy(classOf, from + 1, newClassOf, newNumIntervals, to - from - 1);
+    newNumIntervals += to - from - 1;
+  }
+
+  private void growClasses() {
+    int length = Math.max(16, 2 * size.length);
+    size = Arrays.copyOf(size, length);
+    inside = Arrays.copyOf(inside, length);
+    touched = Arrays.copyOf(touched, length);
+    newClass = Arrays.copyOf(newClass, length);
+  }
+
+  /** Returns the interval that contains the specified character. */
+  private int find(int codePoint) {
+    int low = 0;
+    int high = numIntervals - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (start[mid] <= codePoint) low = mid;
+      else high = mid - 1;
+    }
+    return low;
+  }
+
+  /** Returns the last character of an interval. */
+  private int end(int interval) {
+    return interval + 1 < numIntervals ? start[interval + 1] - 1 : last;
+  }
+
   /**
    * Returns the code of the character class the specified character belongs to.
    *
@@ -166,11 +305,7 @@ public class CharClasses {
    * @return code of the character class.
    */
   public int getClassCode(int codePoint) {
-    int i = -1;
-    while (true) {
-      IntCharSet x = classes.get(++i);
-      if (x.contains(codePoint)) return i;
-    }
+    return classOf[find(codePoint)];
   }
 
   /** Dumps charclasses to the dump output stream. */
@@ -185,7 +320,10 @@ public class CharClasses {
    * @return a {@link java.lang.String} object.
    */
   public String toString(int theClass) {
-    return classes.get(theClass).toString();
+    IntCharSet set = new IntCharSet();
+    for (int i = 0; i < numIntervals; i++)
+      if (classOf[i] == theClass) set.add(new Interval(start[i], end(i)));
+    return set.toString();
   }
 
   /**
@@ -200,13 +338,13 @@ public class CharClasses {
 
     result.append(Out.NL);
 
-    for (int i = 0; i < classes.size(); i++)
+    for (int i = 0; i < numClasses; i++)
       result
           .append("class ")
           .append(i)
           .append(":")
           .append(Out.NL)
-          .append(classes.get(i))
+          .append(toString(i))
           .append(Out.NL);
 
     return result.toString();
@@ -279,29 +417,29 @@ public class CharClasses {
       if (negate) Out.dump("[negated]");
     }
 
-    int size = classes.size();
-
-    // [fixme: optimize]
-    int temp[] = new int[size];
+    boolean[] in = new boolean[numClasses];
     int length = 0;
 
-    for (int i = 0; i < size; i++) {
-      IntCharSet x = classes.get(i);
-      if (negate) {
-        if (!set.and(x).containsElements()) {
-          temp[length++] = i;
-          if (DEBUG) Out.dump("code " + i);
-        }
-      } else {
-        if (set.and(x).containsElements()) {
-          temp[length++] = i;
-          if (DEBUG) Out.dump("code " + i);
+    for (Interval interval : set.getIntervals()) {
+      if (interval.start > last) break;
+      int end = Math.min(interval.end, last);
+      for (int i = find(interval.start); i < numIntervals && start[i] <= end; i++) {
+        if (!in[classOf[i]]) {
+          in[classOf[i]] = true;
+          length++;
         }
       }
     }
 
-    int result[] = new int[length];
-    System.arraycopy(temp, 0, result, 0, length);
+    int result[] = new int[negate ? numClasses - length : length];
+    length = 0;
+
+    for (int i = 0; i < numClasses; i++) {
+      if (in[i] != negate) {
+        result[length++] = i;
+        if (DEBUG) Out.dump("code " + i);
+      }
+    }
 
     return result;
   }
@@ -332,28 +470,27 @@ public class CharClasses {
   /**
    * Check consistency of the stored classes [debug].
    *
-   * <p>all classes must be disjoint, checks if all characters have a class assigned.
+   * <p>the intervals must be ordered and cover all characters, adjacent intervals must be in
+   * different classes, and no class may be empty.
    */
   public void check() {
-    for (int i = 0; i < classes.size(); i++)
-      for (int j = i + 1; j < classes.size(); j++) {
-        IntCharSet x = classes.get(i);
-        IntCharSet y = classes.get(j);
-        if (x.and(y).containsElements()) {
-          System.out.println("Error: non disjoint char classes " + i + " and " + j);
-          System.out.println("class " + i + ": " + x);
-          System.out.println("class " + j + ": " + y);
-        }
-      }
+    int[] count = new int[numClasses];
 
-    // check if each character has a classcode
-    // (= if getClassCode terminates)
-    for (int c = 0; c < maxChar; c++) {
-      getClassCode(c);
-      if (c % 100 == 0) System.out.print(".");
+    if (start[0] != 0) System.out.println("Error: first interval starts at " + start[0]);
+
+    for (int i = 0; i < numIntervals; i++) {
+      if (i > 0 && start[i] <= start[i - 1])
+        System.out.println("Error: intervals " + (i - 1) + " and " + i + " not ordered");
+      if (i > 0 && classOf[i] == classOf[i - 1])
+        System.out.println("Error: intervals " + (i - 1) + " and " + i + " in the same class");
+      count[classOf[i]] += end(i) - start[i] + 1;
     }
 
-    getClassCode(maxChar);
+    for (int c = 0; c < numClasses; c++) {
+      if (count[c] == 0 || count[c] != size[c])
+        System.out.println(
+            "Error: class " + c + " has " + count[c] + " characters, not " + size[c]);
+    }
   }
 
   /**
@@ -365,24 +502,10 @@ public class CharClasses {
    * @return an array of all {@link jflex.CharClassInterval} in this char class collection.
    */
   public CharClassInterval[] getIntervals() {
-    int i, c;
-    int size = classes.size();
-    int numIntervals = 0;
-
-    for (i = 0; i < size; i++) numIntervals += (classes.get(i)).numIntervals();
-
     CharClassInterval[] result = new CharClassInterval[numIntervals];
 
-    i = 0;
-    c = 0;
-    while (i < numIntervals) {
-      int code = getClassCode(c);
-      IntCharSet set = classes.get(code);
-      Interval iv = set.getNext();
-
-      result[i++] = new CharClassInterval(iv.start, iv.end, code);
-      c = iv.end + 1;
-    }
+    for (int i = 0; i < numIntervals; i++)
+      result[i] = new CharClassInterval(start[i], end(i), classOf[i]);
 
     return result;
   }
@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,12 +31,32 @@ public final class DFA {
   /** The code for "no target state" in the transition table. */
   public static final int NO_TARGET = -1;
 
+  /** The exceptions of a row with only its default target. */
+  private static final int[] NO_EXCEPTIONS = new int[0];
+
   /**
-   * table[current_state][character] is the next state for <code>current_state</code> with input
-   * <code>character</code>, <code>NO_TARGET</code> if there is no transition for this input in
-   * <code>current_state</code>
+   * The transitions of the states, row by row; use {@link #get(int, int)} to read them.
+   *
+   * <p>A dense row is an array: table[current_state][character] is the next state for <code>
+   * current_state</code> with input <code>character</code>, <code>NO_TARGET</code> if there is no
+   * transition for this input in <code>current_state</code>. With large alphabets most rows lead
+   * to a few states only. Such a row is stored as <code>defaultTarget[current_state]</code> plus
+   * <code>exceptions[current_state]</code>, and <code>table[current_state]</code> is <code>null
+   * </code>. Which one a row uses depends on its density, see {@link #compact(int)}.
    */
-  int[][] table;
+  private int[][] table;
+
+  /** defaultTarget[current_state] is the next state for the inputs that are not exceptions */
+  private int[] defaultTarget;
+
+  /**
+   * exceptions[current_state] are the pairs (character, next state) of the inputs that don't lead
+   * to the default target, ordered by character
+   */
+  private int[][] exceptions;
+
+  /** The dense row addTransition writes to, -1 for none. It is compacted when another one is. */
+  private int openRow = -1;
 
   /** <code>isFinal[state] == true</code> <=> the state <code>state</code> is a final state. */
   boolean[] isFinal;
@@ -70,7 +91,9 @@ public final class DFA {
 
     int statesNeeded = Math.max(numEntryStates, STATES);
 
-    table = new int[statesNeeded][numInput];
+    table = new int[statesNeeded][];
+    defaultTarget = new int[statesNeeded];
+    exceptions = new int[statesNeeded][];
     action = new Action[statesNeeded];
     isFinal = new boolean[statesNeeded];
     entryState = new int[numEntryStates];
@@ -78,9 +101,8 @@ public final class DFA {
 
     this.numLexStates = numLexStates;
 
-    for (int i = 0; i < statesNeeded; i++) {
-      for (int j = 0; j < numInput; j++) table[i][j] = NO_TARGET;
-    }
+    Arrays.fill(defaultTarget, NO_TARGET);
+    Arrays.fill(exceptions, NO_EXCEPTIONS);
   }
 
   /**
@@ -104,23 +126,18 @@ public final class DFA {
     boolean[] newFinal = new boolean[newLength];
     boolean[] newPushback = new boolean[newLength];
     Action[] newAction = new Action[newLength];
-    int[][] newTable = new int[newLength][numInput];
 
     System.arraycopy(isFinal, 0, newFinal, 0, numStates);
     System.arraycopy(action, 0, newAction, 0, numStates);
-    System.arraycopy(table, 0, newTable, 0, oldLength);
 
-    int i, j;
-
-    for (i = oldLength; i < newLength; i++) {
-      for (j = 0; j < numInput; j++) {
-        newTable[i][j] = NO_TARGET;
-      }
-    }
+    table = Arrays.copyOf(table, newLength);
+    defaultTarget = Arrays.copyOf(defaultTarget, newLength);
+    exceptions = Arrays.copyOf(exceptions, newLength);
+    Arrays.fill(defaultTarget, oldLength, newLength, NO_TARGET);
+    Arrays.fill(exceptions, oldLength, newLength, NO_EXCEPTIONS);
 
     isFinal = newFinal;
     action = newAction;
-    table = newTable;
   }
 
   /**
@@ -161,9 +178,137 @@ public final class DFA {
 
     //  Out.debug("Adding DFA transition ("+start+", "+(int)input+", "+dest+")");
 
+    if (start != openRow) {
+      if (openRow >= 0) compact(openRow);
+      expand(start);
+      openRow = start;
+    }
+
     table[start][input] = dest;
   }
 
+  /**
+   * Returns the next state of a transition.
+   *
+   * @param state the current state
+   * @param input the input character
+   * @return the next state for <code>state</code> with <code>input</code>, <code>NO_TARGET</code>
+   *     if there is no transition for this input.
+   */
+  int get(int state, int input) {
+    int[] row = table[state];
+    if (row != null) return row[input];
+
+    int[] pairs = exceptions[state];
+    int low = 0;
+    int high = pairs.length / 2 - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int c = pairs[2 * mid];
+      if (c < input) low = mid + 1;
+      else if (c > input) high = mid - 1;
+      else return pairs[2 * mid + 1];
+    }
+
+    return defaultTarget[state];
+  }
+
+  /**
+   * Tests if two states have the same transitions.
+   *
+   * @param state1 a state
+   * @param state2 another state
+   * @return true iff <code>get(state1, c) == get(state2, c)</code> for all inputs <code>c</code>.
+   */
+  boolean sameTransitions(int state1, int state2) {
+    int[] row1 = table[state1];
+    int[] row2 = table[state2];
+
+    if (row1 != null && row2 != null) return Arrays.equals(row1, row2);
+
+    // compact rows of the same transitions have the same default and exceptions
+    if (row1 == null && row2 == null)
+      return defaultTarget[state1] == defaultTarget[state2]
+          && Arrays.equals(exceptions[state1], exceptions[state2]);
+
+    for (int c = 0; c < numInput; c++) if (get(state1, c) != get(state2, c)) return false;
+    return true;
+  }
+
+  /**
+   * Tests if the row of a state is stored compactly, see {@link #compact(int)}.
+   *
+   * @param state a state
+   * @return true iff the row of <code>state</code> is a default target plus exceptions.
+   */
+  boolean isCompact(int state) {
+    return table[state] == null;
+  }
+
+  /**
+   * Replaces all transitions of a state.
+   *
+   * @param state the state
+   * @param row the next states of <code>state</code> by input
+   */
+  private void setRow(int state, int[] row) {
+    if (state == openRow) openRow = -1;
+    table[state] = row.clone();
+    exceptions[state] = NO_EXCEPTIONS;
+    compact(state);
+  }
+
+  /** Makes the row of a state dense. */
+  private void expand(int state) {
+    if (table[state] != null) return;
+
+    int[] row = new int[numInput];
+    Arrays.fill(row, defaultTarget[state]);
+    int[] pairs = exceptions[state];
+    for (int i = 0; i < pairs.length; i += 2) row[pairs[i]] = pairs[i + 1];
+
+    table[state] = row;
+    exceptions[state] = NO_EXCEPTIONS;
+  }
+
+  /**
+   * Stores the dense row of a state as default target plus exceptions, if that takes at most half
+   * the space. The default target is the most frequent next state of the row.
+   */
+  private void compact(int state) {
+    int[] row = table[state];
+    if (row == null) return;
+
+    int[] sorted = row.clone();
+    Arrays.sort(sorted);
+    int target = NO_TARGET;
+    int count = 0;
+    for (int i = 0; i < sorted.length; ) {
+      int j = i + 1;
+      while (j < sorted.length && sorted[j] == sorted[i]) j++;
+      if (j - i > count) {
+        target = sorted[i];
+        count = j - i;
+      }
+      i = j;
+    }
+
+    int numExceptions = numInput - count;
+    if (4 * numExceptions > numInput) return;
+
+    int[] pairs = numExceptions == 0 ? NO_EXCEPTIONS : new int[2 * numExceptions];
+    for (int c = 0, i = 0; c < numInput; c++) {
+      if (row[c] != target) {
+        pairs[i++] = c;
+        pairs[i++] = row[c];
+      }
+    }
+
+    table[state] = null;
+    defaultTarget[state] = target;
+    exceptions[state] = pairs;
+  }
+
   /** Returns a string representation of the DFA. */
   public String toString() {
     StringBuilder result = new StringBuilder();
@@ -182,12 +327,12 @@ public final class DFA {
       result.append(i + ":" + Out.NL);
 
       for (int j = 0; j < numInput; j++) {
-        if (table[i][j] >= 0)
+        if (get(i, j) >= 0)
           result
               .append("  with ")
               .append((int) j)
               .append(" in ")
-              .append(table[i][j])
+              .append(get(i, j))
               .append(Out.NL);
       }
     }
@@ -232,8 +377,8 @@ public final class DFA {
 
     for (int i = 0; i < numStates; i++) {
       for (int input = 0; input < numInput; input++) {
-        if (table[i][input] >= 0) {
-          result.append(i).append(" -> ").append(table[i][input]);
+        if (get(i, input) >= 0) {
+          result.append(i).append(" -> ").append(get(i, input));
           result.append(" [label=\"[").append(input).append("]\"]").append(Out.NL);
           // result.append(" [label=\"[").append(classes.toString(input)).append("]\"]\n");
         }
@@ -339,7 +484,7 @@ public final class DFA {
 
       // accumulate states of inverse delta into lists (inv_delta serves as head of list)
       for (int s = 1; s < n; s++) {
-        int t = table[s - 1][c] + 1;
+        int t = get(s - 1, c) + 1;
 
         if (inv_list_last[t] == -1) { // if there are no elements in the list yet
           inv_delta[t][c] = s; // mark t as first and last element
@@ -539,7 +684,7 @@ public final class DFA {
           int t = b_forward[B_i];
           while (t != B_i
               && (t != 0 || block[0] == B_j)
-              && (t == 0 || block[table[t - 1][a] + 1] == B_j)) {
+              && (t == 0 || block[get(t - 1, a) + 1] == B_j)) {
             SD[B_i]++;
             t = b_forward[t];
           }
@@ -688,6 +833,7 @@ public final class DFA {
     }
 
     int i, j;
+    int[] row = new int[numInput];
     // j is the index in the new transition table
     // the transition table is transformed in place (in O(c n))
     for (i = 0, j = 0; i < numStates; i++) {
@@ -697,13 +843,15 @@ public final class DFA {
 
         // translate the target states
         for (int c = 0; c < numInput; c++) {
-          if (table[i][c] >= 0) {
-            table[j][c] = trans[table[i][c]];
-            table[j][c] -= move[table[j][c]];
+          int t = get(i, c);
+          if (t >= 0) {
+            row[c] = trans[t];
+            row[c] -= move[row[c]];
           } else {
-            table[j][c] = table[i][c];
+            row[c] = t;
           }
         }
+        setRow(j, row);
 
         isFinal[j] = isFinal[i];
         action[j] = action[i];
@@ -856,8 +1004,8 @@ public final class DFA {
 
             if (equiv[i][j]) {
 
-              int p = table[i][c];
-              int q = table[j][c];
+              int p = get(i, c);
+              int q = get(j, c);
               if (p < q) {
                 int t = p;
                 p = q;
@@ -883,8 +1031,8 @@ public final class DFA {
 
             for (c = 0; c < numInput; c++) {
 
-              int p = table[i][c];
-              int q = table[j][c];
+              int p = get(i, c);
+              int q = get(j, c);
               if (p < q) {
                 int t = p;
                 p = q;
@@ -68,8 +68,6 @@ public final class Emitter {
   /** maps actions to their switch label */
   private Map<Action, Integer> actionTable = new LinkedHashMap<>();
 
-  private CharClassInterval[] intervals;
-
   private String visibility = "public";
 
   /**
@@ -511,7 +509,7 @@ public final class Emitter {
 
   private void emitDynamicInit() {
     int count = 0;
-    int value = dfa.table[0][0];
+    int value = dfa.get(0, 0);
 
     println("  /** ");
     println("   * The transition table of the DFA");
@@ -525,13 +523,13 @@ public final class Emitter {
       if (!rowKilled[i]) {
         for (int c = 0; c < dfa.numInput; c++) {
           if (!colKilled[c]) {
-            if (dfa.table[i][c] == value) {
+            if (dfa.get(i, c) == value) {
               count++;
             } else {
               e.emit(count, value);
 
               count = 1;
-              value = dfa.table[i][c];
+              value = dfa.get(i, c);
             }
           }
         }
@@ -544,29 +542,31 @@ public final class Emitter {
     println(e.toString());
   }
 
-  private void emitCharMapInitFunction(int packedCharMapPairs) {
+  private void emitCharMapFunction() {
 
     CharClasses cl = parser.getCharClasses();
 
-    if (cl.getMaxCharCode() < 256) return;
-
     println("");
     println("  /** ");
-    println("   * Unpacks the compressed character translation table.");
+    println("   * Translates a character to its character class.");
     println("   *");
-    println("   * @param packed   the packed character translation table");
-    println("   * @return         the unpacked character translation table");
+    println("   * @param input    the character");
+    println("   * @return         the character class of <code>input</code>");
     println("   */");
-    println("  private static char [] zzUnpackCMap(String packed) {");
-    println("    char [] map = new char[0x" + Integer.toHexString(cl.getMaxCharCode() + 1) + "];");
-    println("    int i = 0;  /* index in packed string  */");
-    println("    int j = 0;  /* index in unpacked array */");
-    println("    while (i < " + 2 * packedCharMapPairs + ") {");
-    println("      int  count = packed.charAt(i++);");
-    println("      char value = packed.charAt(i++);");
-    println("      do map[j++] = value; while (--count > 0);");
-    println("    }");
-    println("    return map;");
+    println("  private static int zzCMap(int input) {");
+    if (cl.getMaxCharCode() < 256) {
+      println("    return ZZ_CMAP[input];");
+    } else {
+      // characters 0-255 are in the first block
+      println("    int offset = input & " + CMapBlocks.BLOCK_MASK + ";");
+      println("    return offset == input ? ZZ_CMAP_BLOCKS[offset] :");
+      println(
+          "      ZZ_CMAP_BLOCKS[ZZ_CMAP_TOP[input >> "
+              + CMapBlocks.BLOCK_SHIFT
+              + "] << "
+              + CMapBlocks.BLOCK_SHIFT
+              + " | offset];");
+    }
     println("  }");
   }
 
@@ -605,88 +605,55 @@ public final class Emitter {
   }
 
   /**
-   * Returns the number of elements in the packed char map array, or zero if the char map array will
-   * be not be packed.
-   *
-   * <p>This will be more than intervals.length if the count for any of the values is more than
-   * 0xFFFF, since the number of char map array entries per value is ceil(count / 0xFFFF)
+   * Emits the character map, as one array for up to 256 characters, or else as the two levels of
+   * a {@link CMapBlocks}, since a flat map of 0x110000 characters costs every scanner class
+   * megabytes and its unpacking at class initialization.
    */
-  private int emitCharMapArray() {
+  private void emitCharMapArray() {
     CharClasses cl = parser.getCharClasses();
 
     if (cl.getMaxCharCode() < 256) {
       emitCharMapArrayUnPacked();
-      return 0; // the char map array will not be packed
+      return;
     }
 
-    // ignores cl.getMaxCharCode(), emits all intervals instead
-
-    intervals = cl.getIntervals();
+    CMapBlocks cmap = new CMapBlocks(cl.getIntervals(), colMap, cl.getMaxCharCode());
 
     println("");
     println("  /** ");
-    println("   * Translates characters to character classes");
+    println(
+        "   * Translates the number of a block of "
+            + CMapBlocks.BLOCK_SIZE
+            + " characters to its number in ZZ_CMAP_BLOCKS");
     println("   */");
-    println("  private static final String ZZ_CMAP_PACKED = ");
-
-    int n = 0; // numbers of entries in current line
-    print("    \"");
-
-    int i = 0, numPairs = 0;
-    int count, value;
-    while (i < intervals.length) {
-      count = intervals[i].end - intervals[i].start + 1;
-      value = colMap[intervals[i].charClass];
-
-      // count could be >= 0x10000
-      while (count > 0xFFFF) {
-        printUC(0xFFFF);
-        printUC(value);
-        count -= 0xFFFF;
-        numPairs++;
-        n++;
-      }
-      numPairs++;
-      printUC(count);
-      printUC(value);
-
-      if (i < intervals.length - 1) {
-        if (++n >= 10) {
-          println("\"+");
-          print("    \"");
-          n = 0;
-        }
-      }
-
-      i++;
-    }
-
-    println("\";");
-    println();
+    emitCounted("CMap_Top", cmap.getTop());
 
     println("  /** ");
-    println("   * Translates characters to character classes");
+    println("   * Translates characters to character classes, one block after another");
     println("   */");
-    println("  private static final char [] ZZ_CMAP = zzUnpackCMap(ZZ_CMAP_PACKED);");
-    println();
-    return numPairs;
+    emitCounted("CMap_Blocks", cmap.getBlocks());
   }
 
-  /**
-   * Print number as octal/unicode escaped string character.
-   *
-   * @param c the value to print
-   * @prec 0 <= c <= 0xFFFF
-   */
-  private void printUC(int c) {
-    if (c > 255) {
-      out.print("\\u");
-      if (c < 0x1000) out.print("0");
-      out.print(Integer.toHexString(c));
-    } else {
-      out.print("\\");
-      out.print(Integer.toOctalString(c));
+  /** Emits an array as a count/value packed string and its unpacking code. */
+  private void emitCounted(String name, int[] values) {
+    CountEmitter e = new CountEmitter(name);
+    e.emitInit();
+
+    int count = 1;
+    int value = values[0];
+    for (int i = 1; i < values.length; i++) {
+      if (values[i] == value && count < 0xFFFF) {
+        count++;
+      } else {
+        e.emit(count, value);
+        count = 1;
+        value = values[i];
+      }
     }
+    e.emit(count, value);
+
+    e.emitUnpack();
+    println(e.toString());
   }
 
   private void emitRowMapArray() {
@@ -1009,7 +976,7 @@ public final class Emitter {
   }
 
   private void emitGetRowMapNext() {
-    println("          int zzNext = zzTransL[ zzRowMapL[zzState] + zzCMapL[zzInput] ];");
+    println("          int zzNext = zzTransL[ zzRowMapL[zzState] + zzCMap(zzInput) ];");
     println("          if (zzNext == " + DFA.NO_TARGET + ") break zzForAction;");
     println("          zzState = zzNext;");
     println();
@@ -1145,7 +1112,7 @@ public final class Emitter {
         println("                zzFinL[zzFPos] = ((zzAttrL[zzFState] & 1) == 1);");
         println("                zzInput = Character.codePointAt(zzBufferL, zzFPos, zzMarkedPos);");
         println("                zzFPos += Character.charCount(zzInput);");
-        println("                zzFState = zzTransL[ zzRowMapL[zzFState] + zzCMapL[zzInput] ];");
+        println("                zzFState = zzTransL[ zzRowMapL[zzFState] + zzCMap(zzInput) ];");
         println("              }");
         println(
             "              if (zzFState != -1) { zzFinL[zzFPos++] = ((zzAttrL[zzFState] & 1) == 1); } ");
@@ -1159,7 +1126,7 @@ public final class Emitter {
         println(
             "                zzInput = Character.codePointBefore(zzBufferL, zzFPos, zzStartRead);");
         println("                zzFPos -= Character.charCount(zzInput);");
-        println("                zzFState = zzTransL[ zzRowMapL[zzFState] + zzCMapL[zzInput] ];");
+        println("                zzFState = zzTransL[ zzRowMapL[zzFState] + zzCMap(zzInput) ];");
         println("              };");
         println("              zzMarkedPos = zzFPos;");
         println("            }");
@@ -1254,7 +1221,7 @@ public final class Emitter {
     for (int i = 0; i < dfa.numStates; i++) {
       char j = 0;
       while (!isTransition[i] && j < dfa.numInput)
-        isTransition[i] = dfa.table[i][j++] != DFA.NO_TARGET;
+        isTransition[i] = dfa.get(i, j++) != DFA.NO_TARGET;
     }
   }
 
@@ -1277,7 +1244,7 @@ public final class Emitter {
         // test for equality:
         k = -1;
         equal = true;
-        while (equal && ++k < dfa.numStates) equal = dfa.table[k][i] == dfa.table[k][j];
+        while (equal && ++k < dfa.numStates) equal = dfa.get(k, i) == dfa.get(k, j);
 
         if (equal) {
           translate++;
@@ -1294,9 +1261,8 @@ public final class Emitter {
     rowMap = new int[dfa.numStates];
     rowKilled = new boolean[dfa.numStates];
 
-    int i, j, k;
+    int i, j;
     int translate = 0;
-    boolean equal;
 
     numRows = dfa.numStates;
 
@@ -1309,12 +1275,7 @@ public final class Emitter {
       // exists in entries 0..i-1)
       for (j = 0; j < i; j++) {
 
-        // test for equality:
-        k = -1;
-        equal = true;
-        while (equal && ++k < dfa.numInput) equal = dfa.table[i][k] == dfa.table[j][k];
-
-        if (equal) {
+        if (dfa.sameTransitions(i, j)) {
           translate++;
           rowMap[i] = rowMap[j];
           rowKilled[i] = true;
@@ -1359,7 +1320,7 @@ public final class Emitter {
 
     emitLexicalStates();
 
-    int packedCharMapPairs = emitCharMapArray();
+    emitCharMapArray();
 
     emitActionTable();
 
@@ -1383,7 +1344,7 @@ public final class Emitter {
 
     emitConstructorDecl();
 
-    emitCharMapInitFunction(packedCharMapPairs);
+    emitCharMapFunction();
 
     if (scanner.debugOption) {
       println("");
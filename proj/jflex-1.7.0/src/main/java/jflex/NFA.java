@@ -16,6 +16,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Non-deterministic finite automata representation in JFlex.
@@ -29,10 +31,17 @@ public final class NFA {
 
   /**
    * table[current_state][next_char] is the set of states that can be reached from current_state
-   * with an input next_char
+   * with an input next_char. Most states only have epsilon edges, their row is <code>null</code>.
+   * The sets are never modified once they are in the table, so the inputs of a row that lead to
+   * the same state can share one set (see addTransition).
    */
   StateSet[][] table;
 
+  // the last transition added by addTransition, for sharing its target set
+  private int lastStart = -1;
+  private int lastDest;
+  private StateSet lastTarget;
+
   /**
    * epsilon[current_state] is the set of states that can be reached from current_state via epsilon
    * edges
@@ -73,6 +82,12 @@ public final class NFA {
   private static StateSetEnumerator states = new StateSetEnumerator();
   private static StateSet tempStateSet = new StateSet();
 
+  /** entries of successor tables in one batch of getDFA */
+  private static final int BATCH_ENTRIES = 1 << 20;
+
+  /** successor of a DFA state in a batch that was not yet a DFA state when it was computed */
+  private static final int UNKNOWN = -2;
+
   /** Constructor for NFA. */
   public NFA(int numInput, int estSize) {
     this.numInput = numInput;
@@ -81,7 +96,7 @@ public final class NFA {
     epsilon = new StateSet[estSize];
     action = new Action[estSize];
     isFinal = new boolean[estSize];
-    table = new StateSet[estSize][numInput];
+    table = new StateSet[estSize][];
   }
 
   /**
@@ -262,7 +277,7 @@ public final class NFA {
     boolean[] newFinal = new boolean[newStatesLength];
     boolean[] newIsPush = new boolean[newStatesLength];
     Action[] newAction = new Action[newStatesLength];
-    StateSet[][] newTable = new StateSet[newStatesLength][numInput];
+    StateSet[][] newTable = new StateSet[newStatesLength][];
     StateSet[] newEpsilon = new StateSet[newStatesLength];
 
     System.arraycopy(isFinal, 0, newFinal, 0, numStates);
@@ -292,8 +307,35 @@ public final class NFA {
 
     if (maxS > numStates) numStates = maxS;
 
-    if (table[start][input] != null) table[start][input].addState(dest);
-    else table[start][input] = new StateSet(estSize, dest);
+    StateSet[] row = table[start];
+    if (row == null) row = table[start] = new StateSet[numInput];
+
+    if (row[input] != null) {
+      // copy, the set may be shared
+      StateSet target = new StateSet(row[input]);
+      target.addState(dest);
+      row[input] = target;
+    } else {
+      // a character class adds the same transition for many inputs
+      if (start != lastStart || dest != lastDest) {
+        lastStart = start;
+        lastDest = dest;
+        lastTarget = new StateSet(estSize, dest);
+      }
+      row[input] = lastTarget;
+    }
+  }
+
+  /**
+   * Returns the set of states that can be reached from a state with an input.
+   *
+   * @param state the state to start from
+   * @param input the input character
+   * @return the set of states, <code>null</code> if there is none.
+   */
+  private StateSet transition(int state, int input) {
+    StateSet[] row = table[state];
+    return row == null ? null : row[input];
   }
 
   /**
@@ -426,7 +468,7 @@ public final class NFA {
     tempStateSet.clear();
 
     states.reset(start);
-    while (states.hasMoreElements()) tempStateSet.add(table[states.nextElement()][input]);
+    while (states.hasMoreElements()) tempStateSet.add(transition(states.nextElement(), input));
 
     StateSet result = new StateSet(tempStateSet);
 
@@ -444,9 +486,23 @@ public final class NFA {
    * @return a {@link jflex.DFA} object.
    */
   public DFA getDFA() {
+    return getDFA(
+        Runtime.getRuntime().availableProcessors(),
+        Math.max(1, BATCH_ENTRIES / Math.max(1, numInput)));
+  }
 
-    Map<StateSet, Integer> dfaStates = new HashMap<>(numStates);
-    List<StateSet> dfaList = new ArrayList<>(numStates);
+  /**
+   * Returns a DFA that accepts the same language as this NFA, computing successors of DFA states
+   * in batches. The DFA does not depend on the parameters.
+   *
+   * @param parallelism the number of threads computing the successors of a batch, 1 for none
+   * @param batchSize the maximum number of DFA states in a batch
+   * @return a {@link jflex.DFA} object.
+   */
+  DFA getDFA(int parallelism, int batchSize) {
+
+    // the table doubles as it fills, so it starts with room for the entry states only
+    StateSetTable dfaStates = new StateSetTable(numStates, numEntryStates());
 
     DFA dfa = new DFA(numEntryStates(), numInput, numLexStates);
 
@@ -457,14 +513,11 @@ public final class NFA {
 
     epsilonFill();
 
-    StateSet currentState, newState;
-
     // create the initial states of the DFA
     for (int i = 0; i < numEntryStates(); i++) {
-      newState = epsilon[i];
+      StateSet newState = epsilon[i];
 
-      dfaStates.put(newState, numDFAStates);
-      dfaList.add(newState);
+      dfaStates.put(newState);
 
       dfa.setEntryState(i, numDFAStates);
 
@@ -476,84 +529,174 @@ public final class NFA {
 
     numDFAStates--;
 
-    if (Options.DEBUG)
-      Out.debug(
-          "DFA start states are :"
-              + Out.NL
-              + dfaStates
-              + Out.NL
-              + Out.NL
-              + "ordered :"
-              + Out.NL
-              + dfaList);
+    if (Options.DEBUG) Out.debug("DFA start states are :" + Out.NL + dfaStates);
 
-    currentDFAState = 0;
+    // The worklist is processed in batches of DFA states that are already numbered. The
+    // successors of the states of a batch are computed in parallel, and the ones that are not DFA
+    // states yet are numbered afterwards, in the order of the states and inputs. That is the
+    // order in which a sequential worklist would number them, so the DFA does not depend on the
+    // number of threads.
+    ForkJoinPool pool = null;
 
-    StateSet tempStateSet = NFA.tempStateSet;
-    StateSetEnumerator states = NFA.states;
+    try {
+      while (currentDFAState <= numDFAStates) {
+        int size = Math.min(numDFAStates + 1 - currentDFAState, batchSize);
+        Batch batch = new Batch(dfaStates, currentDFAState, currentDFAState + size);
+
+        if (parallelism > 1 && batch.end - batch.start > 1) {
+          if (pool == null) pool = new ForkJoinPool(parallelism);
+          int grain = Math.max(1, (batch.end - batch.start) / (4 * parallelism));
+          pool.invoke(new BatchTask(batch, batch.start, batch.end, grain));
+        } else {
+          batch.compute(batch.start, batch.end);
+        }
 
-    // will be reused
-    newState = new StateSet(numStates);
+        for (; currentDFAState < batch.end; currentDFAState++) {
+          int[] targets = batch.targets[currentDFAState - batch.start];
 
-    while (currentDFAState <= numDFAStates) {
+          for (int input = 0; input < numInput; input++) {
+            int target = targets[input];
 
-      currentState = dfaList.get(currentDFAState);
+            if (target == DFA.NO_TARGET) continue;
 
-      for (int input = 0; input < numInput; input++) {
+            if (target == UNKNOWN) {
+              StateSet newState = batch.unknown[currentDFAState - batch.start][input];
+              long hash = batch.hashes[currentDFAState - batch.start][input];
+              target = dfaStates.lookup(newState, hash);
 
-        // newState = DFAEdge(currentState, input);
+              if (target < 0) {
+                if (Options.progress) Out.print(".");
+                numDFAStates = dfaStates.put(newState, hash);
 
-        // inlining DFAEdge for performance:
+                // the transition first: it makes room for the new state in the DFA
+                dfa.addTransition(currentDFAState, input, numDFAStates);
+                dfa.setFinal(numDFAStates, containsFinal(newState));
+                dfa.setAction(numDFAStates, getAction(newState));
+                continue;
+              }
+            }
 
-        // Out.debug("Calculating DFAEdge for state set "+currentState+" and input '"+input+"'");
+            dfa.addTransition(currentDFAState, input, target);
+          }
+        }
+      }
+    } finally {
+      if (pool != null) pool.shutdown();
+    }
 
-        tempStateSet.clear();
-        states.reset(currentState);
-        while (states.hasMoreElements()) tempStateSet.add(table[states.nextElement()][input]);
+    if (Options.verbose) Out.println("");
 
-        newState.copy(tempStateSet);
+    return dfa;
+  }
 
-        states.reset(tempStateSet);
-        while (states.hasMoreElements()) newState.add(epsilon[states.nextElement()]);
+  /**
+   * The successors of a batch of DFA states in getDFA, by input.
+   *
+   * <p>Computing them only reads the NFA and the DFA states numbered before the batch, so parts of
+   * a batch can be computed by different threads, each with its own scratch sets.
+   */
+  private final class Batch {
+    final StateSetTable dfaStates;
 
-        // Out.debug("DFAEdge is : "+newState);
+    /** the DFA states start..end-1 */
+    final int start, end;
 
-        if (newState.containsElements()) {
+    /** [state - start][input]: a DFA state, DFA.NO_TARGET, or UNKNOWN */
+    final int[][] targets;
 
-          // Out.debug("DFAEdge for input "+(int)input+" and state set "+currentState+" is
-          // "+newState);
+    /** [state - start][input]: the set of NFA states of an UNKNOWN successor */
+    final StateSet[][] unknown;
 
-          // Out.debug("Looking for state set "+newState);
-          Integer nextDFAState = dfaStates.get(newState);
+    /** [state - start][input]: the hash of an UNKNOWN successor in dfaStates */
+    final long[][] hashes;
 
-          if (nextDFAState != null) {
-            // Out.debug("FOUND!");
-            dfa.addTransition(currentDFAState, input, nextDFAState);
-          } else {
-            if (Options.progress) Out.print(".");
-            // Out.debug("NOT FOUND!");
-            // Out.debug("Table was "+dfaStates);
-            numDFAStates++;
+    Batch(StateSetTable dfaStates, int start, int end) {
+      this.dfaStates = dfaStates;
+      this.start = start;
+      this.end = end;
+      targets = new int[end - start][];
+      unknown = new StateSet[end - start][];
+      hashes = new long[end - start][];
+    }
+
+    /** Computes the successors of the DFA states from..to-1 of this batch. */
+    void compute(int from, int to) {
+      StateSetEnumerator states = new StateSetEnumerator();
+      StateSet tempStateSet = new StateSet(numStates);
+      StateSet newState = new StateSet(numStates);
+      StateSet currentState = new StateSet(numStates);
+
+      for (int state = from; state < to; state++) {
+        dfaStates.get(state, currentState);
+        int[] stateTargets = new int[numInput];
+
+        for (int input = 0; input < numInput; input++) {
 
-            // make a new copy of newState to store in dfaStates
-            StateSet storeState = new StateSet(newState);
+          // newState = DFAEdge(currentState, input);
 
-            dfaStates.put(storeState, numDFAStates);
-            dfaList.add(storeState);
+          // inlining DFAEdge for performance:
 
-            dfa.addTransition(currentDFAState, input, numDFAStates);
-            dfa.setFinal(numDFAStates, containsFinal(storeState));
-            dfa.setAction(numDFAStates, getAction(storeState));
+          tempStateSet.clear();
+          states.reset(currentState);
+          while (states.hasMoreElements())
+            tempStateSet.add(transition(states.nextElement(), input));
+
+          newState.copy(tempStateSet);
+
+          states.reset(tempStateSet);
+          while (states.hasMoreElements()) newState.add(epsilon[states.nextElement()]);
+
+          if (!newState.containsElements()) {
+            stateTargets[input] = DFA.NO_TARGET;
+            continue;
+          }
+
+          long hash = dfaStates.hash(newState);
+          int nextDFAState = dfaStates.lookup(newState, hash);
+
+          if (nextDFAState >= 0) {
+            stateTargets[input] = nextDFAState;
+          } else {
+            if (unknown[state - start] == null) {
+              unknown[state - start] = new StateSet[numInput];
+              hashes[state - start] = new long[numInput];
+            }
+            // make a new copy of newState, it may become a DFA state
+            unknown[state - start][input] = new StateSet(newState);
+            hashes[state - start][input] = hash;
+            stateTargets[input] = UNKNOWN;
           }
         }
-      }
 
-      currentDFAState++;
+        targets[state - start] = stateTargets;
+      }
     }
+  }
 
-    if (Options.verbose) Out.println("");
+  /** Splits the computation of a part of a Batch between the threads of a ForkJoinPool. */
+  private static final class BatchTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
 
-    return dfa;
+    private final Batch batch;
+    private final int from, to, grain;
+
+    BatchTask(Batch batch, int from, int to, int grain) {
+      this.batch = batch;
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grain) {
+        batch.compute(from, to);
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(
+            new BatchTask(batch, from, middle, grain), new BatchTask(batch, middle, to, grain));
+      }
+    }
   }
 
   /** dumpTable. */
@@ -583,12 +726,13 @@ public final class NFA {
       result.append(" " + i + Out.NL);
 
       for (int input = 0; input < numInput; input++) {
-        if (table[i][input] != null && table[i][input].containsElements())
+        StateSet target = transition(i, input);
+        if (target != null && target.containsElements())
           result
               .append("  with ")
               .append((int) input)
               .append(" in ")
-              .append(table[i][input])
+              .append(target)
               .append(Out.NL);
       }
 
@@ -636,8 +780,8 @@ public final class NFA {
 
     for (int i = 0; i < numStates; i++) {
       for (int input = 0; input < numInput; input++) {
-        if (table[i][input] != null) {
-          StateSetEnumerator states = table[i][input].states();
+        if (transition(i, input) != null) {
+          StateSetEnumerator states = transition(i, input).states();
 
           while (states.hasMoreElements()) {
             int s = states.nextElement();
@@ -826,7 +970,7 @@ public final class NFA {
       // all inputs not present (formerly leading to an implicit error)
       // now lead to an explicit (final) state accepting everything.
       for (int i = 0; i < numInput; i++)
-        if (table[currentDFAState][i] == null) addTransition(currentDFAState, i, error);
+        if (transition(currentDFAState, i) == null) addTransition(currentDFAState, i, error);
     }
 
     // eliminate transitions leading to dead states
@@ -861,7 +1005,7 @@ public final class NFA {
     // Out.debug("is final :"+live[start]);
 
     for (int i = 0; i < numInput; i++) {
-      StateSet nextState = closure(table[start][i]);
+      StateSet nextState = closure(transition(start, i));
       StateSetEnumerator states = nextState.states();
       while (states.hasMoreElements()) {
         int next = states.nextElement();
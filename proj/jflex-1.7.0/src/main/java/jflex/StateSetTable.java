@@ -0,0 +1,246 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.7.0                                                             *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex;
+
+/**
+ * Numbers sets of NFA states, for the subset construction.
+ *
+ * <p>The sets are numbered 0, 1, 2, ... in the order they are put into the table. Their bits are
+ * copied into one array, a fixed number of words per set, so the table does not keep a {@link
+ * StateSet} object per set. Sets are found by open addressing over a 64-bit hash of their bits,
+ * which is stored with every set, so that a lookup only compares the bits of sets with the same
+ * hash.
+ *
+ * <p>All sets must only contain states below the <code>numStates</code> of the table. Lookups
+ * don't change the table, so several threads can look up sets at the same time as long as none is
+ * putting sets into it.
+ *
+ * @version JFlex 1.7.0
+ */
+public final class StateSetTable {
+
+  /** number of words of each set in <code>arena</code> */
+  private final int words;
+
+  /** the bits of set i are <code>arena[i*words .. (i+1)*words-1]</code> */
+  private long[] arena;
+
+  /** hash of set i */
+  private long[] hashes;
+
+  /** number of sets in the table */
+  private int size;
+
+  /** open addressing table: 0 for a free slot, set number + 1 otherwise */
+  private int[] slots;
+
+  /** set numbers are found by looking at slots <code>hash & mask</code>, then the next ones */
+  private int mask;
+
+  /**
+   * Creates an empty table.
+   *
+   * @param numStates the number of NFA states; all sets must only contain states below it
+   * @param capacity the expected number of sets
+   */
+  public StateSetTable(int numStates, int capacity) {
+    words = (numStates >> StateSet.BITS) + 1;
+    capacity = Math.max(16, capacity);
+    arena = new long[capacity * words];
+    hashes = new long[capacity];
+
+    int numSlots = Integer.highestOneBit(capacity) << 2;
+    slots = new int[numSlots];
+    mask = numSlots - 1;
+  }
+
+  /**
+   * Returns the number of sets in the table.
+   *
+   * @return the number of the next set that is put into the table.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Computes the hash of a set for {@link #lookup(StateSet, long)} and {@link #put(StateSet,
+   * long)}.
+   *
+   * @param set a set of states below the <code>numStates</code> of the table
+   * @return the hash of <code>set</code>
+   */
+  public long hash(StateSet set) {
+    long[] bits = set.bits;
+    int n = Math.min(words, bits.length);
+    long h = 0;
+    for (int i = 0; i < n; i++) h = (h + bits[i]) * 0x9E3779B97F4A7C15L;
+    for (int i = n; i < words; i++) h *= 0x9E3779B97F4A7C15L;
+
+    // finalizer of MurmurHash3, so that all bits depend on all words
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Looks up a set.
+   *
+   * @param set a set of states below the <code>numStates</code> of the table
+   * @return the number of the set that was put into the table last and is equal to
+   *     <code>set</code>, or -1 if there is none.
+   */
+  public int lookup(StateSet set) {
+    return lookup(set, hash(set));
+  }
+
+  /**
+   * Looks up a set.
+   *
+   * @param set a set of states below the <code>numStates</code> of the table
+   * @param hash the {@link #hash(StateSet)} of <code>set</code>
+   * @return the number of the set that was put into the table last and is equal to
+   *     <code>set</code>, or -1 if there is none.
+   */
+  public int lookup(StateSet set, long hash) {
+    for (int slot = (int) hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int number = slots[slot] - 1;
+      if (hashes[number] == hash && equals(number, set)) return number;
+    }
+    return -1;
+  }
+
+  /**
+   * Puts a copy of a set into the table.
+   *
+   * <p>The set gets a new number even if an equal set is already in the table. Lookups then find
+   * the new number.
+   *
+   * @param set a set of states below the <code>numStates</code> of the table
+   * @return the number of the set
+   */
+  public int put(StateSet set) {
+    return put(set, hash(set));
+  }
+
+  /**
+   * Puts a copy of a set into the table.
+   *
+   * <p>The set gets a new number even if an equal set is already in the table. Lookups then find
+   * the new number.
+   *
+   * @param set a set of states below the <code>numStates</code> of the table
+   * @param hash the {@link #hash(StateSet)} of <code>set</code>
+   * @return the number of the set
+   */
+  public int put(StateSet set, long hash) {
+    if (size == hashes.length) grow();
+
+    int number = size++;
+    System.arraycopy(set.bits, 0, arena, number * words, Math.min(words, set.bits.length));
+    hashes[number] = hash;
+
+    if (2 * size > slots.length) rehash();
+
+    int slot = (int) hash & mask;
+    while (slots[slot] != 0) {
+      int other = slots[slot] - 1;
+      if (hashes[other] == hash && equals(other, set)) break;
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = number + 1;
+
+    return number;
+  }
+
+  /**
+   * Copies a set of the table into a StateSet.
+   *
+   * @param number the number of the set
+   * @param set the StateSet to overwrite, with room for the <code>numStates</code> of the table
+   * @return <code>set</code>
+   */
+  public StateSet get(int number, StateSet set) {
+    long[] bits = set.bits;
+    System.arraycopy(arena, number * words, bits, 0, words);
+    for (int i = words; i < bits.length; i++) bits[i] = 0;
+    return set;
+  }
+
+  /**
+   * Returns a copy of a set of the table.
+   *
+   * @param number the number of the set
+   * @return a new StateSet with the elements of set <code>number</code>
+   */
+  public StateSet get(int number) {
+    return get(number, new StateSet(words << StateSet.BITS));
+  }
+
+  /** Returns <code>true</code> iff set <code>number</code> has the elements of <code>set</code>. */
+  private boolean equals(int number, StateSet set) {
+    long[] bits = set.bits;
+    int n = Math.min(words, bits.length);
+    int offset = number * words;
+    for (int i = 0; i < n; i++) if (arena[offset + i] != bits[i]) return false;
+    for (int i = n; i < words; i++) if (arena[offset + i] != 0) return false;
+    return true;
+  }
+
+  private void grow() {
+    long[] newArena = new long[2 * arena.length];
+    System.arraycopy(arena, 0, newArena, 0, size * words);
+    arena = newArena;
+
+    long[] newHashes = new long[2 * hashes.length];
+    System.arraycopy(hashes, 0, newHashes, 0, size);
+    hashes = newHashes;
+  }
+
+  /** Doubles the number of slots and puts the sets 0..size-2 into them again. */
+  private void rehash() {
+    slots = new int[2 * slots.length];
+    mask = slots.length - 1;
+
+    // in order, so that of several equal sets the last one ends up in a slot
+    for (int number = 0; number < size - 1; number++) {
+      int slot = (int) hashes[number] & mask;
+      while (slots[slot] != 0) {
+        int other = slots[slot] - 1;
+        if (hashes[other] == hashes[number] && sameSet(other, number)) break;
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = number + 1;
+    }
+  }
+
+  private boolean sameSet(int number1, int number2) {
+    int offset1 = number1 * words;
+    int offset2 = number2 * words;
+    for (int i = 0; i < words; i++) if (arena[offset1 + i] != arena[offset2 + i]) return false;
+    return true;
+  }
+
+  /**
+   * Returns a string representation of the table.
+   *
+   * @return the sets of the table with their numbers.
+   */
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (int number = 0; number < size; number++) {
+      result.append(number).append(": ").append(get(number)).append(Out.NL);
+    }
+    return result.toString();
+  }
+}
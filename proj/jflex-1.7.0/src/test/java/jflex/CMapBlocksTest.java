@@ -0,0 +1,74 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.7.0                                                             *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex;
+
+import junit.framework.TestCase;
+
+/**
+ * CMapBlocksTest
+ *
+ * @version JFlex 1.7.0
+ */
+public class CMapBlocksTest extends TestCase {
+
+  /**
+   * Constructor for CMapBlocksTest.
+   *
+   * @param arg0 test name
+   */
+  public CMapBlocksTest(String arg0) {
+    super(arg0);
+  }
+
+  private static CharClasses classes(int maxChar) {
+    CharClasses classes = new CharClasses();
+    classes.init(maxChar, null);
+    classes.makeClass(new IntCharSet(new Interval('a', 'z')), false);
+    classes.makeClass(new IntCharSet(new Interval('0', '9')), false);
+    classes.makeClass(new IntCharSet(new Interval(0x391, 0x3A9)), false);
+    classes.makeClass(new IntCharSet(new Interval(0x4E00, 0x9FFF)), false);
+    classes.makeClass(new IntCharSet(new Interval(0x1F600, 0x1F64F)), false);
+    classes.makeClass(new IntCharSet(0x10FFFF), false);
+    return classes;
+  }
+
+  private static int[] identity(int size) {
+    int[] map = new int[size];
+    for (int i = 0; i < size; i++) map[i] = i;
+    return map;
+  }
+
+  public void testUnicode() {
+    CharClasses classes = classes(CharClasses.maxChar);
+    CMapBlocks cmap =
+        new CMapBlocks(
+            classes.getIntervals(), identity(classes.getNumClasses()), CharClasses.maxChar);
+
+    for (int c = 0; c <= CharClasses.maxChar; c++) {
+      assertEquals("class of " + c, classes.getClassCode(c), cmap.get(c));
+    }
+    // the first block, then one each for the rest of class 0, Greek, CJK, emoji and 0x10FFFF
+    assertEquals(0, cmap.getTop()[0]);
+    assertEquals(6, cmap.numBlocks());
+    assertEquals(0x1100, cmap.getTop().length);
+  }
+
+  public void testColMap() {
+    CharClasses classes = classes(0xFFFF);
+    int[] colMap = new int[classes.getNumClasses()];
+    for (int i = 0; i < colMap.length; i++) colMap[i] = colMap.length - i;
+    CMapBlocks cmap = new CMapBlocks(classes.getIntervals(), colMap, 0xFFFF);
+
+    for (int c = 0; c <= 0xFFFF; c++) {
+      assertEquals("value of " + c, colMap[classes.getClassCode(c)], cmap.get(c));
+    }
+    assertEquals(0x100, cmap.getTop().length);
+  }
+}
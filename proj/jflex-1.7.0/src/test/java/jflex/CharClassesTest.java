@@ -9,6 +9,9 @@
 
 package jflex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import jflex.unicode.UnicodeProperties;
 import junit.framework.TestCase;
 
@@ -83,6 +86,38 @@ public class CharClassesTest extends TestCase {
     assertEquals("{ ['a'-'z'] }", copy.toString());
   }
 
+  public void testMakeClass() {
+    CharClasses classes = new CharClasses();
+    classes.init(127, null);
+
+    classes.makeClass(new IntCharSet(new Interval('a', 'z')), false);
+    IntCharSet set = new IntCharSet(new Interval('0', '9'));
+    set.add(new Interval('x', 'z'));
+    classes.makeClass(set, false);
+    classes.makeClass(new IntCharSet(new Interval('0', '9')), false);
+
+    // new classes are numbered in the order of the classes they are split from
+    assertEquals(4, classes.getNumClasses());
+    assertEquals(0, classes.getClassCode('A'));
+    assertEquals(1, classes.getClassCode('a'));
+    assertEquals(2, classes.getClassCode('0'));
+    assertEquals(3, classes.getClassCode('y'));
+    assertEquals(0, classes.getClassCode(127));
+
+    List<Interval> digitsAndA = new ArrayList<>();
+    digitsAndA.add(new Interval('0', '9'));
+    digitsAndA.add(new Interval('a', 'a'));
+    assertTrue(Arrays.equals(new int[] {1, 2}, classes.getClassCodes(digitsAndA)));
+    assertTrue(Arrays.equals(new int[] {0, 3}, classes.getNotClassCodes(digitsAndA)));
+
+    CharClassInterval[] intervals = classes.getIntervals();
+    assertEquals(6, intervals.length);
+    assertEquals('x', intervals[4].start);
+    assertEquals('z', intervals[4].end);
+    assertEquals(3, intervals[4].charClass);
+    assertEquals("{ ['0'-'9'] }", classes.toString(2));
+  }
+
   public void testCaseless() {
     UnicodeProperties unicodeProperties;
     try {
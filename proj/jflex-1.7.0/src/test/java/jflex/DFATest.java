@@ -0,0 +1,219 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.7.0                                                             *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * DFATest
+ *
+ * @version JFlex 1.7.0
+ */
+public class DFATest extends TestCase {
+
+  private static final int NUM_INPUT = 64;
+
+  /**
+   * Constructor for DFATest.
+   *
+   * @param arg0 test name
+   */
+  public DFATest(String arg0) {
+    super(arg0);
+  }
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    Options.setDefaults();
+    Options.verbose = false;
+  }
+
+  /** A row of next states: <code>exception</code> for inputs below n, <code>target</code> else. */
+  private static int[] row(int target, int n, int exception) {
+    int[] row = new int[NUM_INPUT];
+    Arrays.fill(row, target);
+    Arrays.fill(row, 0, n, exception);
+    return row;
+  }
+
+  private static void addRow(DFA dfa, int state, int[] row) {
+    for (int c = 0; c < row.length; c++) {
+      if (row[c] != DFA.NO_TARGET) dfa.addTransition(state, c, row[c]);
+    }
+  }
+
+  private static void assertRow(int[] row, DFA dfa, int state) {
+    for (int c = 0; c < row.length; c++) assertEquals(row[c], dfa.get(state, c));
+  }
+
+  public void testCompactThreshold() {
+    DFA dfa = new DFA(1, NUM_INPUT, 1);
+
+    // a compact row takes two ints per exception, so it may have at most NUM_INPUT/4 of them
+    int[] row0 = row(1, NUM_INPUT / 4, 2);
+    int[] row1 = row(1, NUM_INPUT / 4 + 1, 2);
+    int[] row2 = row(DFA.NO_TARGET, 2, 0);
+
+    addRow(dfa, 0, row0);
+    assertFalse(dfa.isCompact(0)); // the row addTransition writes to stays dense
+    addRow(dfa, 1, row1);
+    addRow(dfa, 2, row2);
+    addRow(dfa, 3, row2);
+
+    assertTrue(dfa.isCompact(0));
+    assertFalse(dfa.isCompact(1));
+    assertTrue(dfa.isCompact(2));
+    assertRow(row0, dfa, 0);
+    assertRow(row1, dfa, 1);
+    assertRow(row2, dfa, 2);
+    assertRow(row2, dfa, 3);
+  }
+
+  public void testExpandCompactRow() {
+    DFA dfa = new DFA(1, NUM_INPUT, 1);
+    int[] row0 = row(DFA.NO_TARGET, 3, 1);
+
+    addRow(dfa, 0, row0);
+    addRow(dfa, 1, row0);
+    assertTrue(dfa.isCompact(0));
+
+    // writing to a compact row again makes it dense, with the transitions it had
+    dfa.addTransition(0, 10, 2);
+    row0[10] = 2;
+    assertFalse(dfa.isCompact(0));
+    assertRow(row0, dfa, 0);
+
+    dfa.addTransition(0, 1, 3);
+    row0[1] = 3;
+    dfa.addTransition(1, 0, 0);
+    assertTrue(dfa.isCompact(0));
+    assertRow(row0, dfa, 0);
+  }
+
+  public void testSameTransitions() {
+    DFA dfa = new DFA(1, NUM_INPUT, 1);
+    int[] sparse = row(0, 5, 1);
+    int[] dense = new int[NUM_INPUT];
+    for (int c = 0; c < NUM_INPUT; c++) dense[c] = c % 3;
+
+    addRow(dfa, 0, sparse);
+    addRow(dfa, 1, dense);
+    addRow(dfa, 2, dense);
+    addRow(dfa, 3, sparse);
+    addRow(dfa, 4, sparse);
+    dfa.addTransition(4, 7, 2);
+    addRow(dfa, 5, sparse);
+
+    assertTrue(dfa.isCompact(0));
+    assertFalse(dfa.isCompact(1));
+    assertFalse(dfa.isCompact(2));
+    assertTrue(dfa.isCompact(3));
+    assertTrue(dfa.isCompact(4));
+    assertFalse(dfa.isCompact(5));
+
+    assertTrue(dfa.sameTransitions(1, 2));
+    assertFalse(dfa.sameTransitions(5, 2));
+    assertTrue(dfa.sameTransitions(0, 3));
+    assertFalse(dfa.sameTransitions(0, 4));
+
+    // a compact and a dense row
+    assertTrue(dfa.sameTransitions(0, 5));
+    assertTrue(dfa.sameTransitions(5, 3));
+    assertFalse(dfa.sameTransitions(4, 5));
+    assertFalse(dfa.sameTransitions(0, 1));
+  }
+
+  /**
+   * Checks that the states of two DFAs that are reached from the same entry state by the same
+   * input accept the same words, and that each state of <code>dfa</code> corresponds to one state
+   * of <code>min</code>.
+   */
+  private static void assertEquivalent(DFA dfa, DFA min) {
+    int[] map = new int[dfa.numStates];
+    Arrays.fill(map, -1);
+
+    List<int[]> todo = new ArrayList<>();
+    for (int i = 0; i < dfa.entryState.length; i++) {
+      todo.add(new int[] {dfa.entryState[i], min.entryState[i]});
+    }
+
+    while (!todo.isEmpty()) {
+      int[] pair = todo.remove(todo.size() - 1);
+      int s = pair[0];
+      int t = pair[1];
+      if (map[s] >= 0) {
+        assertEquals(map[s], t);
+        continue;
+      }
+      map[s] = t;
+
+      assertEquals(dfa.isFinal[s], min.isFinal[t]);
+      if (dfa.isFinal[s]) assertTrue(dfa.action[s].isEquiv(min.action[t]));
+      for (int c = 0; c < dfa.numInput; c++) {
+        int next = dfa.get(s, c);
+        assertEquals(next == DFA.NO_TARGET, min.get(t, c) == DFA.NO_TARGET);
+        if (next != DFA.NO_TARGET) todo.add(new int[] {next, min.get(t, c)});
+      }
+    }
+  }
+
+  /** A DFA with dense and compact rows, in which states 1 and 2 are equivalent. */
+  private static DFA example() {
+    Action a = new Action("a", 1);
+    Action b = new Action("b", 2);
+    DFA dfa = new DFA(2, NUM_INPUT, 1);
+
+    int[] row0 = row(1, 1, 2);
+    row0[1] = 3;
+    int[] row3 = new int[NUM_INPUT];
+    for (int c = 0; c < NUM_INPUT; c++) row3[c] = c % 3 == 0 ? 1 : c % 3 == 1 ? 2 : 4;
+    int[] row4 = row(DFA.NO_TARGET, 1, 4);
+
+    addRow(dfa, 0, row0);
+    addRow(dfa, 1, row(4, 0, 4));
+    addRow(dfa, 2, row(4, 0, 4));
+    addRow(dfa, 3, row3);
+    addRow(dfa, 4, row4);
+
+    dfa.setEntryState(0, 0);
+    dfa.setEntryState(1, 3);
+    dfa.setFinal(1, true);
+    dfa.setAction(1, a);
+    dfa.setFinal(2, true);
+    dfa.setAction(2, a);
+    dfa.setFinal(3, true);
+    dfa.setAction(3, b);
+    return dfa;
+  }
+
+  public void testMinimize() {
+    DFA dfa = example();
+    DFA min = example();
+    min.minimize();
+
+    assertEquals(5, dfa.numStates);
+    assertEquals(4, min.numStates);
+    assertEquivalent(dfa, min);
+
+    // minimizing a minimal DFA keeps its transitions
+    DFA again = example();
+    again.minimize();
+    again.minimize();
+    assertEquals(min.numStates, again.numStates);
+    assertTrue(Arrays.equals(min.entryState, again.entryState));
+    for (int i = 0; i < min.numStates; i++) {
+      for (int c = 0; c < NUM_INPUT; c++) assertEquals(min.get(i, c), again.get(i, c));
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.7.0                                                             *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * NFATest
+ *
+ * @version JFlex 1.7.0
+ */
+public class NFATest extends TestCase {
+
+  private final String DIR_RESOURCES = "src/test/resources";
+
+  /**
+   * Constructor for NFATest.
+   *
+   * @param arg0 test name
+   */
+  public NFATest(String arg0) {
+    super(arg0);
+  }
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    Options.setDefaults();
+    Options.verbose = false;
+    Options.progress = false;
+  }
+
+  private NFA parse(String spec) throws Exception {
+    File file = new File(DIR_RESOURCES + spec);
+    LexScan scanner = new LexScan(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    scanner.setFile(file);
+    return (NFA) new LexParse(scanner).parse().value;
+  }
+
+  private static void assertSameDFA(DFA expected, DFA actual) {
+    assertEquals(expected.numStates, actual.numStates);
+    assertEquals(expected.numInput, actual.numInput);
+    assertTrue(Arrays.equals(expected.entryState, actual.entryState));
+    for (int i = 0; i < expected.numStates; i++) {
+      assertEquals(expected.isFinal[i], actual.isFinal[i]);
+      assertSame(expected.action[i], actual.action[i]);
+      for (int c = 0; c < expected.numInput; c++) {
+        assertEquals(expected.get(i, c), actual.get(i, c));
+      }
+    }
+  }
+
+  public void testParallelDFA() throws Exception {
+    NFA nfa = parse("/jflex/LexScan-test.flex");
+    DFA sequential = nfa.getDFA(1, 1);
+    assertTrue(sequential.numStates > 100);
+
+    // states are numbered in the same order for any split of the worklist into batches and threads
+    assertSameDFA(sequential, nfa.getDFA());
+    assertSameDFA(sequential, nfa.getDFA(1, Integer.MAX_VALUE));
+    assertSameDFA(sequential, nfa.getDFA(4, 2));
+    assertSameDFA(sequential, nfa.getDFA(3, 7));
+    assertSameDFA(sequential, nfa.getDFA(8, 64));
+  }
+}
@@ -0,0 +1,79 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.7.0                                                             *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex;
+
+import junit.framework.TestCase;
+
+/**
+ * StateSetTableTest
+ *
+ * @version JFlex 1.7.0
+ */
+public class StateSetTableTest extends TestCase {
+
+  /**
+   * Constructor for StateSetTableTest.
+   *
+   * @param arg0 test name
+   */
+  public StateSetTableTest(String arg0) {
+    super(arg0);
+  }
+
+  private static StateSet set(int size, int... states) {
+    StateSet set = new StateSet(size);
+    for (int state : states) set.addState(state);
+    return set;
+  }
+
+  public void testNumbering() {
+    StateSetTable table = new StateSetTable(200, 1);
+    int n = 1000;
+
+    // more sets than the initial capacity, all of them dense in the low words
+    for (int i = 0; i < n; i++) {
+      assertEquals(-1, table.lookup(set(200, i % 64, i / 64 + 64, 199)));
+      assertEquals(i, table.put(set(200, i % 64, i / 64 + 64, 199)));
+    }
+    assertEquals(n, table.size());
+
+    for (int i = 0; i < n; i++) {
+      StateSet set = set(200, i % 64, i / 64 + 64, 199);
+      assertEquals(i, table.lookup(set));
+      assertEquals(set, table.get(i));
+      assertEquals(set, table.get(i, new StateSet(200)));
+    }
+    assertEquals(-1, table.lookup(set(200)));
+  }
+
+  public void testLengths() {
+    StateSetTable table = new StateSetTable(100, 4);
+
+    // equal sets with different lengths of their bit arrays
+    assertEquals(0, table.put(set(10, 3, 5)));
+    assertEquals(0, table.lookup(set(1000, 3, 5)));
+    assertEquals(0, table.lookup(set(100, 3, 5)));
+    assertEquals(table.hash(set(10, 3, 5)), table.hash(set(1000, 3, 5)));
+  }
+
+  public void testDuplicates() {
+    StateSetTable table = new StateSetTable(100, 2);
+
+    // like a HashMap, lookups find the number of the set put into the table last
+    assertEquals(0, table.put(set(100, 1)));
+    assertEquals(1, table.put(set(100, 2)));
+    assertEquals(2, table.put(set(100, 1)));
+    for (int i = 3; i < 100; i++) assertEquals(i, table.put(set(100, i)));
+
+    assertEquals(2, table.lookup(set(100, 1)));
+    assertEquals(1, table.lookup(set(100, 2)));
+    assertEquals(set(100, 1), table.get(0));
+  }
+}
@@ -1,20 +1,19 @@
 package ast;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Stack;
 
 public final class Runtime {
     private HashMap<Expr, RuntimeMeta> exprCache = new HashMap<Expr, RuntimeMeta>();
     private SymbolTableHelper stHelper;
-    private Queue<ValueMeta> injectedValues;
+    private InputReader input;
 
     ////////////////////////////////////////////////////////////////////////////
     // Constructor
 
-    public Runtime(SymbolTableHelper stHelper, Queue<ValueMeta> injectedValues) {
+    public Runtime(SymbolTableHelper stHelper, InputReader input) {
         this.stHelper = stHelper;
-        this.injectedValues = injectedValues;
+        this.input = input;
 
         stHelper.newScope(); // global scope
     }
@@ -144,15 +143,11 @@ public final class Runtime {
             return exprCache.get((Expr)readIntExpr);
         }
 
-        if (injectedValues == null || injectedValues.isEmpty()) {
+        if (input == null || input.peek() != ValueMeta.ValueType.INT) {
             return RuntimeMeta.createError(AstErrorHandler.ErrorCode.FAILED_STDIN_READ);
         }
 
-        if (injectedValues.peek().getType() != ValueMeta.ValueType.INT) {
-            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.FAILED_STDIN_READ);
-        }
-
-        ValueMeta value = injectedValues.poll();
+        ValueMeta value = ValueMeta.createInt(null, Long.valueOf(input.nextInt()));
         RuntimeMeta resStatus = RuntimeMeta.createSuccess(value);
         exprCache.put((Expr)readIntExpr, resStatus);
         return resStatus;
@@ -163,15 +158,11 @@ public final class Runtime {
             return exprCache.get((Expr)readFloatExpr);
         }
 
-        if (injectedValues == null || injectedValues.isEmpty()) {
-            return null;
-        }
-
-        if (injectedValues.peek().getType() != ValueMeta.ValueType.FLOAT) {
+        if (input == null || input.peek() != ValueMeta.ValueType.FLOAT) {
             return null;
         }
 
-        ValueMeta value = injectedValues.poll();
+        ValueMeta value = ValueMeta.createFloat(null, Double.valueOf(input.nextFloat()));
         RuntimeMeta resStatus = RuntimeMeta.createSuccess(value);
         exprCache.put((Expr)readFloatExpr, resStatus);
         return resStatus;
@@ -1,6 +1,7 @@
 package interpreter;
 
 import ast.AstErrorHandler;
+import ast.InputReader;
 import ast.Program;
 import ast.SymbolTableHelper;
 import ast.TypeCheck;
@@ -9,7 +10,6 @@ import ast.RuntimeMeta;
 import ast.Runtime;
 import java.io.*;
 import java.util.*;
-import java.util.Scanner;
 import parser.ParserWrapper;
 
 ////////////////////////////////////////////////////////////////////////////////
@@ -42,27 +42,6 @@ public class Interpreter {
         // for debugging
         // astRoot.print(System.out);
 
-        // for ReadIntExpr, ReadFloatExpr
-        Queue<ValueMeta> values = new LinkedList<>();
-        try {
-            if (System.in.available() != 0) {
-                Scanner s = new Scanner(System.in);
-                while (s.hasNext()) {
-                    if (s.hasNextInt()) {
-                        values.add(ValueMeta.createInt(null, Long.valueOf(s.nextInt())));
-                    } else if (s.hasNextFloat()) {
-                        values.add(ValueMeta.createFloat(null, Double.valueOf(s.nextFloat())));
-                    } else {
-                        throw new RuntimeException("Invalid input");
-                    }
-                }
-                s.close();
-            }
-        } catch (IOException ex) {
-            // do nothing
-        }
-
-
         // type checking. If the program does not typecheck,
         // call fatalError with return code EXIT_STATIC_CHECKING_ERROR
         Stack<Map<String,ValueMeta>> symbolTables = new Stack<Map<String,ValueMeta>>();
@@ -84,7 +63,7 @@ public class Interpreter {
         // run the program
         Stack<Map<String,ValueMeta>> symbolTablesRun = new Stack<Map<String,ValueMeta>>();
         SymbolTableHelper symbolTableHelperRun = new SymbolTableHelper(symbolTablesRun);
-        Runtime runtime = new Runtime(symbolTableHelperRun, values);
+        Runtime runtime = new Runtime(symbolTableHelperRun, new InputReader(System.in));
         RuntimeMeta runtimeMeta = astRoot.run(runtime);
         if (runtimeMeta == null) {
             throw new RuntimeException("Failed to run the program");
@@ -0,0 +1,131 @@
+package ast;
+
+/**
+ * Immutable variable state of AbstRuntime, indexed by VarDecl.index.
+ *
+ * A persistent vector: a 32-way trie whose set() copies only the path to the
+ * changed slot, so forking a state is free and states derived from each other
+ * share every node they did not touch. Comparing and merging walk two tries
+ * together and skip the shared nodes, so they only visit the slots that
+ * differ.
+ */
+final class AbstEnv {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    // a null node stands for a subtree of empty slots
+    private final Object[] root;
+    private final int shift;
+
+    interface Merge {
+        // new value of slot i on the left, or left itself to keep it
+        ValueMeta apply(int i, ValueMeta left, ValueMeta right);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private AbstEnv(Object[] root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    static AbstEnv empty(int size) {
+        int shift = 0;
+        while ((long) WIDTH << shift < size) {
+            shift += BITS;
+        }
+        return new AbstEnv(null, shift);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    ValueMeta get(int i) {
+        Object[] node = root;
+        for (int s = shift; s > 0 && node != null; s -= BITS) {
+            node = (Object[]) node[(i >>> s) & MASK];
+        }
+        return node == null ? null : (ValueMeta) node[i & MASK];
+    }
+
+    AbstEnv set(int i, ValueMeta value) {
+        if (get(i) == value) {
+            return this;
+        }
+        return new AbstEnv(set(root, shift, i, value), shift);
+    }
+
+    private static Object[] set(Object[] node, int shift, int i, ValueMeta value) {
+        Object[] res = node == null ? new Object[WIDTH] : node.clone();
+        int k = (i >>> shift) & MASK;
+        res[k] = shift == 0 ? value : set((Object[]) res[k], shift - BITS, i, value);
+        return res;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // this with fn applied to every slot that holds another ValueMeta in other
+    AbstEnv merge(AbstEnv other, Merge fn) {
+        Object[] res = merge(root, other.root, shift, 0, fn);
+        return res == root ? this : new AbstEnv(res, shift);
+    }
+
+    private static Object[] merge(Object[] left, Object[] right, int shift, int base, Merge fn) {
+        if (left == right) {
+            return left;
+        }
+        Object[] res = left;
+        for (int k = 0; k < WIDTH; k++) {
+            Object l = left == null ? null : left[k];
+            Object r = right == null ? null : right[k];
+            if (l == r) {
+                continue;
+            }
+            Object m = shift == 0
+                ? fn.apply(base + k, (ValueMeta) l, (ValueMeta) r)
+                : merge((Object[]) l, (Object[]) r, shift - BITS, base + (k << shift), fn);
+            if (m == l) {
+                continue;
+            }
+            if (res == left) {
+                res = left == null ? new Object[WIDTH] : left.clone();
+            }
+            res[k] = m;
+        }
+        return res;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // same declarations and the same abstract values in every slot
+    static boolean same(AbstEnv left, AbstEnv right) {
+        return same(left.root, right.root, left.shift);
+    }
+
+    private static boolean same(Object[] left, Object[] right, int shift) {
+        if (left == right) {
+            return true;
+        }
+        for (int k = 0; k < WIDTH; k++) {
+            Object l = left == null ? null : left[k];
+            Object r = right == null ? null : right[k];
+            if (l == r) {
+                continue;
+            }
+            if (shift == 0 ? !sameValue((ValueMeta) l, (ValueMeta) r) : !same((Object[]) l, (Object[]) r, shift - BITS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean sameValue(ValueMeta left, ValueMeta right) {
+        if (left == right) {
+            return true;
+        }
+        if (left == null || right == null || left.hasValue() != right.hasValue()) {
+            return false;
+        }
+        return !left.hasValue() || ValueMeta.equals(left, right);
+    }
+}
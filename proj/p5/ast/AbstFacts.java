@@ -0,0 +1,67 @@
+package ast;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Facts AbstRuntime proves about a program, handed on to RealRuntime.
+ *
+ * While AbstRuntime runs, every int division notes whether its divisor was
+ * a nonzero sign. A fact holds only if it held at every visit. The facts are
+ * written onto the nodes (BinaryExpr.nonZeroDivisor) only if the abstract
+ * run ended without an error, since an interrupted run has not seen every
+ * state the program reaches.
+ *
+ * The sign domain ignores int wraparound (65536*65536*65536*65536 is a
+ * PosInt that wraps to 0), so its facts can be wrong. A fact may only let a
+ * runtime skip work whose outcome it still checks: a nonzero divisor only
+ * drops the zero test in front of a division that traps on zero anyway.
+ * TrueBool conditions are not recorded, since skipping a condition would
+ * change what the program prints.
+ */
+public final class AbstFacts {
+    private IdentityHashMap<BinaryExpr, Boolean> facts = new IdentityHashMap<BinaryExpr, Boolean>();
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // Runs the abstract interpretation of a resolved program, printing
+    // nowhere, and annotates the program if it succeeds.
+    public static boolean specialize(Program program) {
+        AbstFacts facts = new AbstFacts();
+        OutputSink discard = new OutputSink(OutputStream.nullOutputStream());
+        RuntimeMeta resStatus = program.run(new AbstRuntime(program, discard, facts));
+        if (resStatus == null || !resStatus.isSuccessful()) {
+            return false;
+        }
+        facts.apply();
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Recording, from AbstRuntime
+
+    void divisor(BinaryExpr binExpr, ValueMeta divisor) {
+        if (divisor.getType() != ValueMeta.ValueType.ABST_INT) {
+            return;
+        }
+        ValueMeta.AbstValue sign = divisor.getAbstIntValue();
+        note(binExpr, sign == ValueMeta.AbstValue.POS_INT || sign == ValueMeta.AbstValue.NEG_INT);
+    }
+
+    private void note(BinaryExpr binExpr, boolean holds) {
+        Boolean held = facts.get(binExpr);
+        facts.put(binExpr, (held == null || held) && holds);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void apply() {
+        for (Map.Entry<BinaryExpr, Boolean> fact : facts.entrySet()) {
+            if (fact.getValue()) {
+                fact.getKey().nonZeroDivisor = true;
+            }
+        }
+    }
+}
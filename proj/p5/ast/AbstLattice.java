@@ -0,0 +1,231 @@
+package ast;
+
+import ast.ValueMeta.AbstValue;
+
+/**
+ * Transfer functions of the sign domain used by AbstRuntime.
+ *
+ * Every AbstValue stands for a set of concrete members (its mask: signs for
+ * ints and floats, truth values for bools). An operator is declared once as a
+ * rule over single members; the tables below lift each rule to every pair of
+ * abstract values by taking the union over their members and abstracting the
+ * result back. Lookups are then one load from a byte[ordinal * N + ordinal]
+ * table, -1 marking an operand pair the operator is not defined on.
+ */
+final class AbstLattice {
+    static final int N = AbstValue.values().length;
+    private static final AbstValue[] VALUES = AbstValue.values();
+
+    // kinds
+    static final int NONE = 0;
+    static final int BOOL = 1;
+    static final int INT = 2;
+    static final int FLOAT = 3;
+
+    // members of a numeric kind, in ascending order
+    static final int NEG = 1;
+    static final int ZERO = 2;
+    static final int POS = 4;
+
+    // members of the bool kind, in ascending order
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+
+    // possible orderings between two members
+    private static final int LT = 1;
+    private static final int EQ = 2;
+    private static final int GT = 4;
+
+    private static final int NUMERIC = 1 << INT | 1 << FLOAT;
+    private static final int ANY_KIND = 1 << BOOL | NUMERIC;
+
+    // result of a rule on members that have no defined result
+    private static final int UNDEFINED = -1;
+
+    private interface Rule {
+        int apply(int kind, int x, int y);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Declarative definition
+
+    private static int negate(int x) {
+        return x == NEG ? POS : x == POS ? NEG : x;
+    }
+
+    private static int add(int kind, int x, int y) {
+        if (x == ZERO) {
+            return y;
+        }
+        if (y == ZERO || x == y) {
+            return x;
+        }
+        return NEG | ZERO | POS;
+    }
+
+    private static int sub(int kind, int x, int y) {
+        return add(kind, x, negate(y));
+    }
+
+    private static int mul(int kind, int x, int y) {
+        if (x == ZERO || y == ZERO) {
+            return ZERO;
+        }
+        return x == y ? POS : NEG;
+    }
+
+    // integer division truncates, so a nonzero quotient may still be zero
+    private static int div(int kind, int x, int y) {
+        if (y == ZERO) {
+            return UNDEFINED;
+        }
+        if (x == ZERO) {
+            return ZERO;
+        }
+        return (x == y ? POS : NEG) | ZERO;
+    }
+
+    private static int order(int kind, int x, int y) {
+        if (x != y) {
+            return x < y ? LT : GT;
+        }
+        // two nonzero numbers of the same sign may compare either way
+        if (kind != BOOL && x != ZERO) {
+            return LT | EQ | GT;
+        }
+        return EQ;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Tables
+
+    private static final byte[] EQ_TABLE = compare(EQ);
+    private static final byte[] NE_TABLE = compare(LT | GT);
+    private static final byte[] LT_TABLE = compare(LT);
+    private static final byte[] GT_TABLE = compare(GT);
+    private static final byte[] LE_TABLE = compare(LT | EQ);
+    private static final byte[] GE_TABLE = compare(GT | EQ);
+
+    private static final byte[] ADD_TABLE = lift(NUMERIC, NONE, AbstLattice::add);
+    private static final byte[] SUB_TABLE = lift(NUMERIC, NONE, AbstLattice::sub);
+    private static final byte[] MUL_TABLE = lift(NUMERIC, NONE, AbstLattice::mul);
+    private static final byte[] DIV_TABLE = lift(NUMERIC, NONE, AbstLattice::div);
+    private static final byte[] MERGE_TABLE = lift(NUMERIC, NONE, (kind, x, y) -> x | y);
+
+    private static final byte[] NEG_TABLE = lift(NUMERIC, (kind, x, y) -> negate(x));
+    private static final byte[] NOT_TABLE = lift(1 << BOOL, (kind, x, y) -> x == TRUE ? FALSE : TRUE);
+
+    // holds: the orderings under which the comparison is true
+    private static byte[] compare(int holds) {
+        return lift(ANY_KIND, BOOL, (kind, x, y) -> {
+            int res = 0;
+            int orders = order(kind, x, y);
+            if ((orders & holds) != 0) {
+                res |= TRUE;
+            }
+            if ((orders & ~holds) != 0) {
+                res |= FALSE;
+            }
+            return res;
+        });
+    }
+
+    // resultKind NONE keeps the kind of the operands
+    private static byte[] lift(int kinds, int resultKind, Rule rule) {
+        byte[] table = new byte[N * N];
+        for (AbstValue a : VALUES) {
+            for (AbstValue b : VALUES) {
+                int res = UNDEFINED;
+                if (a.kind == b.kind && (kinds & 1 << a.kind) != 0) {
+                    res = abstractOf(resultKind == NONE ? a.kind : resultKind, apply(rule, a.kind, a.mask, b.mask));
+                }
+                table[a.ordinal() * N + b.ordinal()] = (byte) res;
+            }
+        }
+        return table;
+    }
+
+    private static byte[] lift(int kinds, Rule rule) {
+        byte[] table = new byte[N];
+        for (AbstValue a : VALUES) {
+            int res = UNDEFINED;
+            if ((kinds & 1 << a.kind) != 0) {
+                res = abstractOf(a.kind, apply(rule, a.kind, a.mask, a.mask));
+            }
+            table[a.ordinal()] = (byte) res;
+        }
+        return table;
+    }
+
+    private static int apply(Rule rule, int kind, int xs, int ys) {
+        int res = 0;
+        for (int x = 1; x <= xs; x <<= 1) {
+            for (int y = 1; y <= ys; y <<= 1) {
+                if ((xs & x) == 0 || (ys & y) == 0) {
+                    continue;
+                }
+                int r = rule.apply(kind, x, y);
+                if (r == UNDEFINED) {
+                    return UNDEFINED;
+                }
+                res |= r;
+            }
+        }
+        return res;
+    }
+
+    // smallest abstract value of the kind covering every member of mask
+    private static int abstractOf(int kind, int mask) {
+        if (mask == UNDEFINED) {
+            return AbstValue.ILLEGAL.ordinal();
+        }
+        AbstValue best = null;
+        for (AbstValue v : VALUES) {
+            if (v.kind != kind || (v.mask & mask) != mask) {
+                continue;
+            }
+            if (best == null || Integer.bitCount(v.mask) < Integer.bitCount(best.mask)) {
+                best = v;
+            }
+        }
+        if (best == null) {
+            throw new RuntimeException("AbstLattice: no abstract value for mask " + mask);
+        }
+        return best.ordinal();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lookups, null when the operator is not defined on the operands
+
+    private static AbstValue at(byte[] table, AbstValue a, AbstValue b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        int res = table[a.ordinal() * N + b.ordinal()];
+        return res < 0 ? null : VALUES[res];
+    }
+
+    private static AbstValue at(byte[] table, AbstValue a) {
+        if (a == null) {
+            return null;
+        }
+        int res = table[a.ordinal()];
+        return res < 0 ? null : VALUES[res];
+    }
+
+    static AbstValue eq(AbstValue a, AbstValue b) { return at(EQ_TABLE, a, b); }
+    static AbstValue ne(AbstValue a, AbstValue b) { return at(NE_TABLE, a, b); }
+    static AbstValue lt(AbstValue a, AbstValue b) { return at(LT_TABLE, a, b); }
+    static AbstValue gt(AbstValue a, AbstValue b) { return at(GT_TABLE, a, b); }
+    static AbstValue le(AbstValue a, AbstValue b) { return at(LE_TABLE, a, b); }
+    static AbstValue ge(AbstValue a, AbstValue b) { return at(GE_TABLE, a, b); }
+
+    static AbstValue add(AbstValue a, AbstValue b) { return at(ADD_TABLE, a, b); }
+    static AbstValue sub(AbstValue a, AbstValue b) { return at(SUB_TABLE, a, b); }
+    static AbstValue mul(AbstValue a, AbstValue b) { return at(MUL_TABLE, a, b); }
+    static AbstValue div(AbstValue a, AbstValue b) { return at(DIV_TABLE, a, b); }
+    static AbstValue merge(AbstValue a, AbstValue b) { return at(MERGE_TABLE, a, b); }
+
+    static AbstValue neg(AbstValue a) { return at(NEG_TABLE, a); }
+    static AbstValue not(AbstValue a) { return at(NOT_TABLE, a); }
+}
@@ -1,20 +1,34 @@
 package ast;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Queue;
-import java.util.Stack;
 
 public final class AbstRuntime implements Runtime {
     private HashMap<Expr, RuntimeMeta> exprCache = new HashMap<Expr, RuntimeMeta>();
-    private SymbolTableHelper stHelper;
+    private VarDecl[][] scope;
+    private VarDecl[] vars;
+    private AbstEnv state;
+    private OutputSink out;
+    private AbstFacts facts; // null unless collecting for AbstFacts.specialize
+    private Runtime outer; // runs nested units if set, see Runtime.setOuter
 
     ////////////////////////////////////////////////////////////////////////////
     // Constructor
 
-    public AbstRuntime(SymbolTableHelper stHelper) {
-        this.stHelper = stHelper;
+    public AbstRuntime(Program program, OutputSink out) {
+        this(program, out, null);
+    }
+
+    public AbstRuntime(Program program, OutputSink out, AbstFacts facts) {
+        this.facts = facts;
+        this.scope = new VarDecl[][] { program.locals };
+        this.vars = program.vars;
+        this.state = AbstEnv.empty(program.vars.length);
+        this.out = out;
+    }
 
-        stHelper.newScope(); // global scope
+    public void setOuter(Runtime outer) {
+        this.outer = outer;
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -39,7 +53,7 @@ public final class AbstRuntime implements Runtime {
         }
 
         ValueMeta value = refer.getValue().copyWithIdent(decl.varDecl.ident);
-        stHelper.envalue(decl.varDecl.ident, value);
+        envalue(decl.varDecl, value);
         return RuntimeMeta.createSuccess(null);
     }
 
@@ -56,18 +70,18 @@ public final class AbstRuntime implements Runtime {
     }
 
     public RuntimeMeta runIntVarDecl(IntVarDecl varDecl) {
-        if (stHelper.isLocalPlaned(varDecl.ident)) {
+        if (state.get(varDecl.index) != null) {
             throw new RuntimeException("Variable " + varDecl.ident + " already declared");
         }
-        stHelper.planIdent(varDecl.ident, ValueMeta.ValueType.ABST_INT);
+        state = state.set(varDecl.index, ValueMeta.createNull(varDecl.ident, ValueMeta.ValueType.ABST_INT));
         return RuntimeMeta.createSuccess(null);
     }
 
     public RuntimeMeta runFloatVarDecl(FloatVarDecl varDecl) {
-        if (stHelper.isLocalPlaned(varDecl.ident)) {
+        if (state.get(varDecl.index) != null) {
             throw new RuntimeException("Variable " + varDecl.ident + " already declared");
         }
-        stHelper.planIdent(varDecl.ident, ValueMeta.ValueType.ABST_FLOAT);
+        state = state.set(varDecl.index, ValueMeta.createNull(varDecl.ident, ValueMeta.ValueType.ABST_FLOAT));
         return RuntimeMeta.createSuccess(null);
     }
 
@@ -114,7 +128,7 @@ public final class AbstRuntime implements Runtime {
     }
 
     public RuntimeMeta runIdentExpr(IdentExpr identExpr) {
-        ValueMeta val = stHelper.findValue(identExpr.ident);
+        ValueMeta val = findValue(state, identExpr.decl.chain);
         if (val == null) {
             return RuntimeMeta.createError(AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR);
             // throw new RuntimeException("Variable " + identExpr.ident + " not declared");
@@ -198,6 +212,9 @@ public final class AbstRuntime implements Runtime {
                 break;
             case BinaryExpr.DIV:
                 resStatus = runDiv(left, right);
+                if (facts != null) {
+                    facts.divisor(binExpr, right);
+                }
                 break;
         }
 
@@ -396,168 +413,261 @@ public final class AbstRuntime implements Runtime {
     }
 
     public RuntimeMeta runBlockStmt(BlockStmt blockStmt) {
-        stHelper.newScope();
-        RuntimeMeta resStatus = runUnitList(blockStmt.block);
-        boolean exitOk = stHelper.exitScope();
-        if (!exitOk) {
-            throw new RuntimeException("BlockStmt is not valid");
-        }
-        return resStatus;
+        return solve(ControlFlowGraph.of(blockStmt, scope));
     }
 
     public RuntimeMeta runIfStmt(IfStmt ifStmt) {
-        RuntimeMeta resStatus = runCondExpr(ifStmt.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("IfStmt is not valid");
-        }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
-        }
-        if (!resStatus.hasValue()) {
-            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR);
-        }
-
-        if (resStatus.getValue().isFalse()) {
-            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DEAD_CODE_ERROR);
-        }
-
-        if (resStatus.getValue().isTrue() && ifStmt.elsestmt != null) {
-            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DEAD_CODE_ERROR);
-        }
+        return solve(ControlFlowGraph.of(ifStmt, scope));
+    }
 
-        if (resStatus.getValue().isTrue()) {
-            Stack<Map<String,ValueMeta>> stashed = stHelper.useTwin();
-            resStatus = runStmt(ifStmt.thenstmt);
-            if (resStatus == null) {
-                throw new RuntimeException("thenStmt is not valid");
-            }
-            if (!resStatus.isSuccessful()) {
-                return resStatus;
-            }
-            SymbolTableHelper twin = stHelper.switchTwin(stashed);
-            stHelper = twin;
-            return RuntimeMeta.createSuccess(null);
-        }
+    public RuntimeMeta runWhileStmt(WhileStmt whileStmt) {
+        return solve(ControlFlowGraph.of(whileStmt, scope));
+    }
 
-        Stack<Map<String,ValueMeta>> stashed = stHelper.useTwin();
-        resStatus = runStmt(ifStmt.thenstmt);
+    public RuntimeMeta runAssignStmt(AssignStmt assignStmt) {
+        RuntimeMeta resStatus = runExpr(assignStmt.expr);
         if (resStatus == null) {
-            throw new RuntimeException("thenStmt is not valid");
+            throw new RuntimeException("AssignStmt is not valid");
         }
         if (!resStatus.isSuccessful()) {
             return resStatus;
         }
-        SymbolTableHelper twin = stHelper.switchTwin(stashed);
-        if (ifStmt.elsestmt != null) {
-            stashed = stHelper.useTwin();
-            resStatus = runStmt(ifStmt.elsestmt);
-            if (resStatus == null) {
-                throw new RuntimeException("elseStmt is not valid");
-            }
-            if (!resStatus.isSuccessful()) {
-                return resStatus;
-            }
-            SymbolTableHelper elseTwin = stHelper.switchTwin(stashed);
-            twin.mergeTwin(elseTwin);
-            stHelper = twin;
-        } else {
-            stHelper.mergeTwin(twin);
-        }
 
+        ValueMeta value = resStatus.getValue().copyWithIdent(assignStmt.ident);
+        envalue(assignStmt.decl, value);
         return RuntimeMeta.createSuccess(null);
     }
 
-    public RuntimeMeta runWhileStmt(WhileStmt whileStmt) {
-        RuntimeMeta resStatus = runCondExpr(whileStmt.expr);
+    public RuntimeMeta runPrintStmt(PrintStmt printStmt) {
+        RuntimeMeta resStatus = runExpr(printStmt.expr);
         if (resStatus == null) {
-            throw new RuntimeException("WhileStmt is not valid");
+            throw new RuntimeException("PrintStmt is not valid");
         }
         if (!resStatus.isSuccessful()) {
             return resStatus;
         }
-        if (!resStatus.hasValue()) {
-            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR);
-        }
 
-        if (resStatus.getValue().isFalse()) {
-            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DEAD_CODE_ERROR);
+        resStatus.getValue().print(out);
+        return RuntimeMeta.createSuccess(null);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Unit
+
+    public RuntimeMeta runUnit(Unit unit) {
+        return unit.run(this);
+    }
+
+    public RuntimeMeta runUnitList(UnitList unitList) {
+        if (unitList == null) {
+            return RuntimeMeta.createSuccess(null);
         }
 
-        // TODO:
-        while (!resStatus.getValue().isFalse()) {
-            Stack<Map<String,ValueMeta>> stashed = stHelper.useTwin();
-            resStatus = runStmt(whileStmt.body);
-            if (resStatus == null) {
-                throw new RuntimeException("WhileStmt is not valid");
+        return solve(ControlFlowGraph.of(unitList, scope));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Fixpoint
+
+    /**
+     * Worklist solver over the blocks of cfg, starting from the current state.
+     *
+     * A block is evaluated again only when the state reaching it changed, and
+     * a loop head joins every new state into the one it holds, so a loop is
+     * done as soon as its head state stops growing. Pending blocks are taken
+     * lowest number first, which keeps prints and errors in program order.
+     * States are AbstEnv tries: a block starts from its entry state without
+     * copying it, and joins only visit the slots where the states differ.
+     */
+    private RuntimeMeta solve(ControlFlowGraph cfg) {
+        ControlFlowGraph.Block[] blocks = cfg.blocks;
+        AbstEnv[] in = new AbstEnv[blocks.length];
+        AbstEnv[] out = new AbstEnv[blocks.length];
+        int[] taken = new int[blocks.length]; // edges taken by the last visit
+        BitSet pending = new BitSet(blocks.length);
+        // loop head visits, only counted while a recording wants them
+        int[] visits = Events.recording() && new Events.Fixpoint().isEnabled() ? new int[blocks.length] : null;
+
+        pending.set(0);
+        for (int b = pending.nextSetBit(0); b >= 0; b = pending.nextSetBit(0)) {
+            pending.clear(b);
+            ControlFlowGraph.Block block = blocks[b];
+            AbstEnv entry = b == 0 ? state : join(block, in[b], out, taken);
+            if (in[b] != null && AbstEnv.same(in[b], entry)) {
+                continue;
             }
-            if (!resStatus.isSuccessful()) {
-                return resStatus;
+            boolean first = in[b] == null;
+            in[b] = entry;
+            state = entry;
+            if (visits != null) {
+                visits[b]++;
             }
-            SymbolTableHelper twin = stHelper.switchTwin(stashed);
-            if (stHelper.hasIdenticalVal(twin)) {
-                break;
+
+            for (ASTNode op : block.ops) {
+                if (op instanceof BlockStmt) {
+                    exitScope(((BlockStmt) op).locals);
+                    continue;
+                }
+                RuntimeMeta resStatus = outer == null ? runUnit((Unit) op) : outer.runUnit((Unit) op);
+                if (resStatus == null) {
+                    throw new RuntimeException("UnitList is not valid");
+                }
+                if (!resStatus.isSuccessful()) {
+                    return resStatus;
+                }
             }
-            stHelper.mergeTwin(twin);
 
-            resStatus = runCondExpr(whileStmt.expr);
-            if (resStatus == null) {
-                throw new RuntimeException("WhileStmt is not valid");
+            int edges = 1 << ControlFlowGraph.NEXT;
+            if (block.kind != ControlFlowGraph.GOTO) {
+                RuntimeMeta resStatus = outer == null ? runCondExpr(block.cond) : outer.runCondExpr(block.cond);
+                if (resStatus == null) {
+                    throw new RuntimeException(block.kind == ControlFlowGraph.BRANCH ? "IfStmt is not valid" : "WhileStmt is not valid");
+                }
+                if (!resStatus.isSuccessful()) {
+                    return resStatus;
+                }
+                if (!resStatus.hasValue()) {
+                    return RuntimeMeta.createError(AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR);
+                }
+                edges = branch(block, resStatus.getValue(), first);
+                if (edges == 0) {
+                    return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DEAD_CODE_ERROR);
+                }
             }
-            if (!resStatus.isSuccessful()) {
-                return resStatus;
+
+            out[b] = state;
+            taken[b] = edges;
+            if ((edges & 1 << ControlFlowGraph.NEXT) != 0 && block.next >= 0) {
+                pending.set(block.next);
+            }
+            if ((edges & 1 << ControlFlowGraph.OTHER) != 0) {
+                pending.set(block.other);
             }
         }
 
+        if (out[cfg.exit] == null) {
+            throw new RuntimeException("ControlFlowGraph exit not reached");
+        }
+        state = out[cfg.exit];
+        if (visits != null) {
+            fixpoints(blocks, visits);
+        }
         return RuntimeMeta.createSuccess(null);
     }
 
-    public RuntimeMeta runAssignStmt(AssignStmt assignStmt) {
-        RuntimeMeta resStatus = runExpr(assignStmt.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("AssignStmt is not valid");
+    private static void fixpoints(ControlFlowGraph.Block[] blocks, int[] visits) {
+        for (ControlFlowGraph.Block block : blocks) {
+            if (block.kind != ControlFlowGraph.LOOP) {
+                continue;
+            }
+            Events.Fixpoint event = new Events.Fixpoint();
+            event.location = block.stmt.loc.toString();
+            event.iterations = visits[block.id];
+            event.commit();
         }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
+    }
+
+    // edges taken for a condition value; none means dead code
+    private int branch(ControlFlowGraph.Block block, ValueMeta cond, boolean first) {
+        int both = 1 << ControlFlowGraph.NEXT | 1 << ControlFlowGraph.OTHER;
+        if (block.kind == ControlFlowGraph.BRANCH) {
+            if (cond.isFalse()) {
+                return 0;
+            }
+            if (cond.isTrue()) {
+                return ((IfStmt) block.stmt).elsestmt != null ? 0 : 1 << ControlFlowGraph.NEXT;
+            }
+            return both;
+        }
+        // a loop exits once its head is stable, whatever the condition says;
+        // only a condition that is false on entry makes the body dead
+        if (cond.isFalse()) {
+            return first ? 0 : 1 << ControlFlowGraph.OTHER;
         }
+        return both;
+    }
 
-        ValueMeta value = resStatus.getValue().copyWithIdent(assignStmt.ident);
-        stHelper.envalue(assignStmt.ident, value);
-        return RuntimeMeta.createSuccess(null);
+    private AbstEnv join(ControlFlowGraph.Block block, AbstEnv previous, AbstEnv[] out, int[] taken) {
+        AbstEnv res = block.kind == ControlFlowGraph.LOOP ? previous : null;
+        for (int edge : block.preds) {
+            int pred = edge >> 1;
+            if ((taken[pred] & 1 << (edge & 1)) == 0) {
+                continue;
+            }
+            res = res == null ? out[pred] : merge(res, out[pred], block);
+        }
+        return res;
     }
 
-    public RuntimeMeta runPrintStmt(PrintStmt printStmt) {
-        RuntimeMeta resStatus = runExpr(printStmt.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("PrintStmt is not valid");
+    // Only variables holding a value on the left take part, and the right
+    // side is looked up by name, as the twin frames of FrameHelper did. A
+    // slot both sides share merges into itself, so only the differing slots
+    // and the declarations hidden by name need a look.
+    private AbstEnv merge(AbstEnv left, AbstEnv right, ControlFlowGraph.Block block) {
+        VarDecl[][] scope = block.scope;
+        AbstEnv res = left.merge(right, (i, l, r) -> mergeValue(l, right, vars[i], scope));
+        for (VarDecl varDecl : block.shadows) {
+            ValueMeta value = left.get(varDecl.index);
+            res = res.set(varDecl.index, mergeValue(value, right, varDecl, scope));
+        }
+        return res;
+    }
+
+    private static ValueMeta mergeValue(ValueMeta value, AbstEnv right, VarDecl varDecl, VarDecl[][] scope) {
+        if (value == null || !value.hasValue()) {
+            return value;
         }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
+        ValueMeta other = findValue(right, varDecl, scope);
+        if (other == null) {
+            return value;
         }
-
-        resStatus.getValue().print();
-        return RuntimeMeta.createSuccess(null);
+        ValueMeta res = ValueMeta.merge(value, other);
+        return AbstEnv.sameValue(value, res) ? value : res;
     }
 
     ////////////////////////////////////////////////////////////////////////////
-    // Unit
+    // State
 
-    public RuntimeMeta runUnit(Unit unit) {
-        return unit.run(this);
+    private void envalue(VarDecl varDecl, ValueMeta value) {
+        ValueMeta planed = state.get(varDecl.index);
+        if (planed == null) {
+            throw new RuntimeException("Variable " + varDecl.ident + " not declared");
+        }
+        if (planed.getType() != value.getType()) {
+            throw new RuntimeException("Variable " + varDecl.ident + " type mismatch");
+        }
+        state = state.set(varDecl.index, value);
     }
 
-    public RuntimeMeta runUnitList(UnitList unitList) {
-        if (unitList == null) {
-            return RuntimeMeta.createSuccess(null);
+    private void exitScope(VarDecl[] locals) {
+        for (VarDecl varDecl : locals) {
+            state = state.set(varDecl.index, null);
         }
+    }
 
-        RuntimeMeta resStatus = runUnit(unitList.unit);
-        if (resStatus == null) {
-            throw new RuntimeException("UnitList is not valid");
-        }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
+    // a read falls through to the outer declarations of the same name while
+    // the inner one has no value yet
+    private static ValueMeta findValue(AbstEnv state, VarDecl[] chain) {
+        for (int i = 0; i < chain.length; i++) {
+            ValueMeta value = state.get(chain[i].index);
+            if (value != null && value.hasValue()) {
+                return value;
+            }
         }
+        return null;
+    }
 
-        return runUnitList(unitList.unitList);
+    private static ValueMeta findValue(AbstEnv state, VarDecl varDecl, VarDecl[][] scope) {
+        if (varDecl.shadowed) {
+            for (int d = scope.length - 1; d > varDecl.depth; d--) {
+                for (VarDecl inner : scope[d]) {
+                    ValueMeta value = state.get(inner.index);
+                    if (value != null && value.hasValue() && inner.ident.equals(varDecl.ident)) {
+                        return value;
+                    }
+                }
+            }
+        }
+        return findValue(state, varDecl.chain);
     }
 }
@@ -4,6 +4,7 @@ import java.io.PrintStream;
 public class AssignStmt extends Stmt {
     public final String ident;
     public final Expr expr;
+    public VarDecl decl; // assigned by SymbolResolver
     
     public AssignStmt(String i, Expr e, Location loc) {
         super(loc);
@@ -0,0 +1,174 @@
+package ast;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * One rewrite of the checked tree, run by PassManager after TypeCheck and
+ * before SymbolResolver.
+ *
+ * The tree is walked bottom-up: a node's children are rewritten first, the
+ * node is rebuilt only if one of them changed, and then handed to the
+ * rewrite hook of the pass. An expression that replaces another takes over
+ * its index, so Program.exprTypes still types every expression.
+ */
+public abstract class AstPass {
+
+    public Program run(Program program) {
+        UnitList ul = walkUnitList(program.unitList);
+        if (ul == program.unitList) {
+            return program;
+        }
+        Program res = new Program(ul, program.loc);
+        res.exprTypes = program.exprTypes;
+        return res;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Hooks
+
+    // expr, with its operands already rewritten
+    protected Expr rewriteExpr(Expr expr) {
+        return expr;
+    }
+
+    protected CondExpr rewriteCondExpr(CondExpr condExpr) {
+        return condExpr;
+    }
+
+    // stmt, with its parts already rewritten; null removes it
+    protected Stmt rewriteStmt(Stmt stmt) {
+        return stmt;
+    }
+
+    // replacement, typed like the expression it replaces
+    protected static <E extends Expr> E replacing(E replacement, Expr expr) {
+        replacement.index = expr.index;
+        return replacement;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Expr
+
+    private Expr walkExpr(Expr expr) {
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            Expr e1 = walkExpr(binExpr.expr1);
+            Expr e2 = walkExpr(binExpr.expr2);
+            if (e1 != binExpr.expr1 || e2 != binExpr.expr2) {
+                expr = replacing(new BinaryExpr(e1, binExpr.op, e2, binExpr.loc), binExpr);
+            }
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            UnaryMinusExpr unaryMinusExpr = (UnaryMinusExpr) expr;
+            Expr e = walkExpr(unaryMinusExpr.expr);
+            if (e != unaryMinusExpr.expr) {
+                expr = replacing(new UnaryMinusExpr(e, unaryMinusExpr.loc), unaryMinusExpr);
+            }
+        }
+        return rewriteExpr(expr);
+    }
+
+    private CondExpr walkCondExpr(CondExpr condExpr) {
+        if (condExpr instanceof CompExpr) {
+            CompExpr compExpr = (CompExpr) condExpr;
+            Expr e1 = walkExpr(compExpr.expr1);
+            Expr e2 = walkExpr(compExpr.expr2);
+            if (e1 != compExpr.expr1 || e2 != compExpr.expr2) {
+                condExpr = new CompExpr(e1, compExpr.op, e2, compExpr.loc);
+            }
+        }
+        if (condExpr instanceof LogicalExpr) {
+            LogicalExpr logicalExpr = (LogicalExpr) condExpr;
+            CondExpr e1 = walkCondExpr(logicalExpr.expr1);
+            CondExpr e2 = logicalExpr.expr2 == null ? null : walkCondExpr(logicalExpr.expr2);
+            if (e1 != logicalExpr.expr1 || e2 != logicalExpr.expr2) {
+                condExpr = new LogicalExpr(e1, logicalExpr.op, e2, logicalExpr.loc);
+            }
+        }
+        return rewriteCondExpr(condExpr);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Stmt
+
+    private Stmt walkStmt(Stmt stmt) {
+        if (stmt instanceof BlockStmt) {
+            BlockStmt blockStmt = (BlockStmt) stmt;
+            UnitList block = walkUnitList(blockStmt.block);
+            if (block != blockStmt.block) {
+                stmt = new BlockStmt(block, blockStmt.loc);
+            }
+        }
+        if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            CondExpr e = walkCondExpr(ifStmt.expr);
+            Stmt s1 = orEmpty(walkStmt(ifStmt.thenstmt), ifStmt.thenstmt.loc);
+            Stmt s2 = ifStmt.elsestmt == null ? null : walkStmt(ifStmt.elsestmt);
+            if (e != ifStmt.expr || s1 != ifStmt.thenstmt || s2 != ifStmt.elsestmt) {
+                stmt = s2 == null ? new IfStmt(e, s1, ifStmt.loc) : new IfStmt(e, s1, s2, ifStmt.loc);
+            }
+        }
+        if (stmt instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) stmt;
+            CondExpr e = walkCondExpr(whileStmt.expr);
+            Stmt s = orEmpty(walkStmt(whileStmt.body), whileStmt.body.loc);
+            if (e != whileStmt.expr || s != whileStmt.body) {
+                stmt = new WhileStmt(e, s, whileStmt.loc);
+            }
+        }
+        if (stmt instanceof AssignStmt) {
+            AssignStmt assignStmt = (AssignStmt) stmt;
+            Expr e = walkExpr(assignStmt.expr);
+            if (e != assignStmt.expr) {
+                stmt = new AssignStmt(assignStmt.ident, e, assignStmt.loc);
+            }
+        }
+        if (stmt instanceof PrintStmt) {
+            PrintStmt printStmt = (PrintStmt) stmt;
+            Expr e = walkExpr(printStmt.expr);
+            if (e != printStmt.expr) {
+                stmt = new PrintStmt(e, printStmt.loc);
+            }
+        }
+        return rewriteStmt(stmt);
+    }
+
+    // a removed statement where the grammar needs one
+    private static Stmt orEmpty(Stmt stmt, Location loc) {
+        return stmt != null ? stmt : new BlockStmt(new UnitList(new Unit[0], loc), loc);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Unit
+
+    private Unit walkUnit(Unit unit) {
+        if (unit instanceof Decl) {
+            Decl decl = (Decl) unit;
+            if (decl.expr == null) {
+                return decl;
+            }
+            Expr e = walkExpr(decl.expr);
+            return e == decl.expr ? decl : new Decl(decl.varDecl, e, decl.loc);
+        }
+        return walkStmt((Stmt) unit);
+    }
+
+    private UnitList walkUnitList(UnitList ul) {
+        Unit[] units = new Unit[ul.units.length];
+        int size = 0;
+        boolean changed = false;
+        for (Unit unit : ul.units) {
+            Unit u = walkUnit(unit);
+            changed |= u != unit;
+            if (u != null) {
+                units[size++] = u;
+            }
+        }
+        if (!changed) {
+            return ul;
+        }
+        Unit[] kept = new Unit[size];
+        System.arraycopy(units, 0, kept, 0, size);
+        return new UnitList(kept, ul.loc);
+    }
+}
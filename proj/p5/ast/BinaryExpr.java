@@ -8,6 +8,7 @@ public class BinaryExpr extends Expr {
     public static final int DIV = 4;
     public final Expr expr1, expr2;
     public final int op;
+    public boolean nonZeroDivisor; // int DIV only, proven by AbstFacts
 
     public BinaryExpr(Expr e1, int oper, Expr e2, Location loc) {
         super(loc);
@@ -3,6 +3,7 @@ import java.io.PrintStream;
 
 public class BlockStmt extends Stmt {
     public final UnitList block;
+    public VarDecl[] locals; // assigned by SymbolResolver
 
     public BlockStmt(UnitList b, Location loc) {
         super(loc);
@@ -0,0 +1,31 @@
+package ast;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Drops the arm of an IfStmt that a constant condition never takes, and a
+ * WhileStmt whose condition is constant false.
+ *
+ * Conditions are decided by ConstantFolder.condValue, so this pass belongs
+ * after ConstantFolder has reduced their operands to constants. A condition
+ * that may fail at runtime (a division by zero in it) is never constant.
+ */
+public final class BranchPruner extends AstPass {
+
+    protected Stmt rewriteStmt(Stmt stmt) {
+        if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            Boolean cond = ConstantFolder.condValue(ifStmt.expr);
+            if (cond == null) {
+                return ifStmt;
+            }
+            return cond ? ifStmt.thenstmt : ifStmt.elsestmt;
+        }
+        if (stmt instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) stmt;
+            Boolean cond = ConstantFolder.condValue(whileStmt.expr);
+            return cond == Boolean.FALSE ? null : whileStmt;
+        }
+        return stmt;
+    }
+}
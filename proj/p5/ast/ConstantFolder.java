@@ -0,0 +1,180 @@
+package ast;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Folds constant BinaryExpr/UnaryMinusExpr subtrees and drops identity
+ * operations (x*1, x/1, x+0, x-0, --x).
+ *
+ * Folding computes exactly what the runtimes would: int on long, float on
+ * double. A division by a constant zero is left in place, so the program
+ * still fails with a division by zero error when (and if) it gets there.
+ * Identities keep their operand, so reads and errors inside it still happen.
+ */
+public final class ConstantFolder extends AstPass {
+
+    protected Expr rewriteExpr(Expr expr) {
+        if (expr instanceof BinaryExpr) {
+            return foldBinExpr((BinaryExpr) expr);
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            return foldUnaryMinusExpr((UnaryMinusExpr) expr);
+        }
+        return expr;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Expr
+
+    private static Expr foldBinExpr(BinaryExpr binExpr) {
+        Expr e1 = binExpr.expr1;
+        Expr e2 = binExpr.expr2;
+        if (e1 instanceof IntConstExpr && e2 instanceof IntConstExpr) {
+            long left = ((IntConstExpr) e1).ival;
+            long right = ((IntConstExpr) e2).ival;
+            switch (binExpr.op) {
+                case BinaryExpr.PLUS:
+                    return intConst(left + right, binExpr);
+                case BinaryExpr.MINUS:
+                    return intConst(left - right, binExpr);
+                case BinaryExpr.TIMES:
+                    return intConst(left * right, binExpr);
+                case BinaryExpr.DIV:
+                    return right == 0 ? binExpr : intConst(left / right, binExpr);
+            }
+            throw new RuntimeException("BinaryExpr is not valid");
+        }
+        if (e1 instanceof FloatConstExpr && e2 instanceof FloatConstExpr) {
+            double left = ((FloatConstExpr) e1).fval;
+            double right = ((FloatConstExpr) e2).fval;
+            switch (binExpr.op) {
+                case BinaryExpr.PLUS:
+                    return floatConst(left + right, binExpr);
+                case BinaryExpr.MINUS:
+                    return floatConst(left - right, binExpr);
+                case BinaryExpr.TIMES:
+                    return floatConst(left * right, binExpr);
+                case BinaryExpr.DIV:
+                    return right == 0.0 ? binExpr : floatConst(left / right, binExpr);
+            }
+            throw new RuntimeException("BinaryExpr is not valid");
+        }
+
+        // x*1, 1*x, x/1 for both types; x+0, 0+x, x-0 only for ints, since
+        // -0.0 + 0.0 is 0.0
+        switch (binExpr.op) {
+            case BinaryExpr.TIMES:
+                if (isOne(e2)) {
+                    return e1;
+                }
+                if (isOne(e1)) {
+                    return e2;
+                }
+                break;
+            case BinaryExpr.DIV:
+                if (isOne(e2)) {
+                    return e1;
+                }
+                break;
+            case BinaryExpr.PLUS:
+                if (isIntZero(e2)) {
+                    return e1;
+                }
+                if (isIntZero(e1)) {
+                    return e2;
+                }
+                break;
+            case BinaryExpr.MINUS:
+                if (isIntZero(e2)) {
+                    return e1;
+                }
+                break;
+        }
+        return binExpr;
+    }
+
+    private static Expr foldUnaryMinusExpr(UnaryMinusExpr unaryMinusExpr) {
+        Expr e = unaryMinusExpr.expr;
+        if (e instanceof IntConstExpr) {
+            return intConst(-((IntConstExpr) e).ival, unaryMinusExpr);
+        }
+        if (e instanceof FloatConstExpr) {
+            return floatConst(-((FloatConstExpr) e).fval, unaryMinusExpr);
+        }
+        if (e instanceof UnaryMinusExpr) {
+            return ((UnaryMinusExpr) e).expr;
+        }
+        return unaryMinusExpr;
+    }
+
+    private static Expr intConst(long value, Expr expr) {
+        return replacing(new IntConstExpr(value, expr.loc), expr);
+    }
+
+    private static Expr floatConst(double value, Expr expr) {
+        return replacing(new FloatConstExpr(value, expr.loc), expr);
+    }
+
+    private static boolean isOne(Expr expr) {
+        return (expr instanceof IntConstExpr && ((IntConstExpr) expr).ival == 1)
+            || (expr instanceof FloatConstExpr && ((FloatConstExpr) expr).fval == 1.0);
+    }
+
+    private static boolean isIntZero(Expr expr) {
+        return expr instanceof IntConstExpr && ((IntConstExpr) expr).ival == 0;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // CondExpr
+
+    // The value of a condition over constants, or null if it depends on the
+    // program state. && and || only decide on their left operand, the way
+    // they short-circuit at runtime.
+    static Boolean condValue(CondExpr condExpr) {
+        if (condExpr instanceof CompExpr) {
+            CompExpr compExpr = (CompExpr) condExpr;
+            int cmp;
+            if (compExpr.expr1 instanceof IntConstExpr && compExpr.expr2 instanceof IntConstExpr) {
+                cmp = Long.compare(((IntConstExpr) compExpr.expr1).ival, ((IntConstExpr) compExpr.expr2).ival);
+            } else if (compExpr.expr1 instanceof FloatConstExpr && compExpr.expr2 instanceof FloatConstExpr) {
+                double left = ((FloatConstExpr) compExpr.expr1).fval;
+                double right = ((FloatConstExpr) compExpr.expr2).fval;
+                if (Double.isNaN(left) || Double.isNaN(right)) {
+                    return compExpr.op == CompExpr.NE;
+                }
+                cmp = left < right ? -1 : left > right ? 1 : 0;
+            } else {
+                return null;
+            }
+            switch (compExpr.op) {
+                case CompExpr.EQ: return cmp == 0;
+                case CompExpr.NE: return cmp != 0;
+                case CompExpr.LT: return cmp < 0;
+                case CompExpr.GT: return cmp > 0;
+                case CompExpr.LE: return cmp <= 0;
+                case CompExpr.GE: return cmp >= 0;
+            }
+            throw new RuntimeException("CompExpr is not valid");
+        }
+
+        if (condExpr instanceof LogicalExpr) {
+            LogicalExpr logicalExpr = (LogicalExpr) condExpr;
+            Boolean left = condValue(logicalExpr.expr1);
+            if (left == null) {
+                return null;
+            }
+            if (logicalExpr.op == LogicalExpr.NOT) {
+                return !left;
+            }
+            if (logicalExpr.op == LogicalExpr.AND) {
+                return left ? condValue(logicalExpr.expr2) : Boolean.FALSE;
+            }
+            if (logicalExpr.op == LogicalExpr.OR) {
+                return left ? Boolean.TRUE : condValue(logicalExpr.expr2);
+            }
+            throw new RuntimeException("LogicalExpr is not valid");
+        }
+
+        throw new RuntimeException("CondExpr is not valid");
+    }
+}
@@ -0,0 +1,211 @@
+package ast;
+import java.util.ArrayList;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Basic blocks of a resolved statement list, solved by AbstRuntime.
+ *
+ * Blocks are numbered in program order, so every edge but the back edge of a
+ * while loop points to a higher number. Visiting the pending block with the
+ * lowest number first therefore finishes a branch before its join and an
+ * inner loop before its exit, in the order the statements appear.
+ */
+final class ControlFlowGraph {
+    // terminators
+    static final int GOTO = 0;   // next only; -1 ends the graph
+    static final int BRANCH = 1; // IfStmt: next = then, other = else (or the join)
+    static final int LOOP = 2;   // WhileStmt: next = body, other = exit
+
+    // edge selectors, see Block.preds
+    static final int NEXT = 0;
+    static final int OTHER = 1;
+
+    static final class Block {
+        final int id;
+        final VarDecl[][] scope; // declarations in scope on entry, by depth
+        ASTNode[] ops;           // Decl, AssignStmt, PrintStmt; a BlockStmt closes its scope
+        int kind = GOTO;
+        CondExpr cond;
+        Stmt stmt;               // the IfStmt or WhileStmt of cond
+        int next = -1;
+        int other = -1;
+        int[] preds;             // pred * 2 + NEXT / OTHER; the first one is joined into
+        VarDecl[] shadows;       // joins only: declarations in scope hidden by another one in scope
+
+        private ArrayList<ASTNode> opList = new ArrayList<ASTNode>();
+        private ArrayList<Integer> predList = new ArrayList<Integer>();
+
+        private Block(int id, VarDecl[][] scope) {
+            this.id = id;
+            this.scope = scope;
+        }
+    }
+
+    Block[] blocks;
+    int exit; // the block the graph ends in
+
+    private ArrayList<Block> list = new ArrayList<Block>();
+    private ArrayList<VarDecl[]> layouts = new ArrayList<VarDecl[]>();
+    private Block cur;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // scope: the declarations in scope where the graph starts, by depth
+    private ControlFlowGraph(VarDecl[][] scope) {
+        for (VarDecl[] locals : scope) {
+            layouts.add(locals);
+        }
+        cur = newBlock();
+    }
+
+    private ControlFlowGraph finish() {
+        blocks = list.toArray(new Block[list.size()]);
+        exit = cur.id;
+        for (Block b : blocks) {
+            b.ops = b.opList.toArray(new ASTNode[b.opList.size()]);
+            b.preds = new int[b.predList.size()];
+            for (int i = 0; i < b.preds.length; i++) {
+                b.preds[i] = b.predList.get(i);
+            }
+            b.opList = null;
+            b.predList = null;
+            if (b.preds.length > 1 || b.kind == LOOP) {
+                b.shadows = shadowsOf(b.scope);
+            }
+        }
+        list = null;
+        layouts = null;
+        return this;
+    }
+
+    static ControlFlowGraph of(UnitList unitList, VarDecl[][] scope) {
+        ControlFlowGraph cfg = new ControlFlowGraph(scope);
+        cfg.buildUnitList(unitList);
+        return cfg.finish();
+    }
+
+    static ControlFlowGraph of(Stmt stmt, VarDecl[][] scope) {
+        ControlFlowGraph cfg = new ControlFlowGraph(scope);
+        cfg.buildStmt(stmt);
+        return cfg.finish();
+    }
+
+    private static VarDecl[] shadowsOf(VarDecl[][] scope) {
+        ArrayList<VarDecl> res = new ArrayList<VarDecl>();
+        for (int d = 0; d < scope.length; d++) {
+            for (VarDecl outer : scope[d]) {
+                if (outer.shadowed && hidden(outer, scope)) {
+                    res.add(outer);
+                }
+            }
+        }
+        return res.toArray(new VarDecl[res.size()]);
+    }
+
+    private static boolean hidden(VarDecl outer, VarDecl[][] scope) {
+        for (int d = outer.depth + 1; d < scope.length; d++) {
+            for (VarDecl inner : scope[d]) {
+                if (inner.ident.equals(outer.ident)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private Block newBlock() {
+        Block b = new Block(list.size(), layouts.toArray(new VarDecl[layouts.size()][]));
+        list.add(b);
+        return b;
+    }
+
+    private void edge(Block from, int which, Block to) {
+        if (which == NEXT) {
+            from.next = to.id;
+        } else {
+            from.other = to.id;
+        }
+        to.predList.add(from.id * 2 + which);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Stmt
+
+    private void buildStmt(Stmt stmt) {
+        if (stmt instanceof BlockStmt) {
+            BlockStmt blockStmt = (BlockStmt) stmt;
+            layouts.add(blockStmt.locals);
+            buildUnitList(blockStmt.block);
+            layouts.remove(layouts.size() - 1);
+            cur.opList.add(blockStmt);
+            return;
+        }
+        if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            Block cond = cur;
+            cond.kind = BRANCH;
+            cond.cond = ifStmt.expr;
+            cond.stmt = ifStmt;
+
+            cur = newBlock();
+            edge(cond, NEXT, cur);
+            buildStmt(ifStmt.thenstmt);
+            Block thenEnd = cur;
+
+            if (ifStmt.elsestmt == null) {
+                cur = newBlock();
+                edge(cond, OTHER, cur);
+                edge(thenEnd, NEXT, cur);
+                return;
+            }
+            cur = newBlock();
+            edge(cond, OTHER, cur);
+            buildStmt(ifStmt.elsestmt);
+            Block elseEnd = cur;
+
+            cur = newBlock();
+            edge(thenEnd, NEXT, cur);
+            edge(elseEnd, NEXT, cur);
+            return;
+        }
+        if (stmt instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) stmt;
+            Block head = newBlock();
+            head.kind = LOOP;
+            head.cond = whileStmt.expr;
+            head.stmt = whileStmt;
+            edge(cur, NEXT, head);
+
+            cur = newBlock();
+            edge(head, NEXT, cur);
+            buildStmt(whileStmt.body);
+            edge(cur, NEXT, head);
+
+            cur = newBlock();
+            edge(head, OTHER, cur);
+            return;
+        }
+        if (stmt instanceof AssignStmt || stmt instanceof PrintStmt) {
+            cur.opList.add(stmt);
+            return;
+        }
+
+        throw new RuntimeException("Unknown Stmt type");
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Unit
+
+    private void buildUnitList(UnitList ul) {
+        for (Unit unit : ul.units) {
+            if (unit instanceof Decl) {
+                cur.opList.add(unit);
+            } else {
+                buildStmt((Stmt) unit);
+            }
+        }
+    }
+}
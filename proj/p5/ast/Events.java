@@ -0,0 +1,91 @@
+package ast;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * JDK Flight Recorder events of the interpreter, under "Plan" in JMC.
+ *
+ * The phases of a run (see interpreter.Phases) are duration events. An
+ * AbstRuntime fixpoint ends with an instant event per loop, with the number
+ * of times its head was analysed, and every scope the TypeCheck pushes is
+ * an instant event as well. On JDK 17 loading the first event class starts
+ * up Flight Recorder, which takes longer than most runs, so events are only
+ * created once it is running (see recording); then they cost a check of a
+ * flag while no recording asks for them. Record them with
+ *
+ *   java -XX:StartFlightRecording:filename=run.jfr ... interpreter.Interpreter ...
+ *   jfr print --categories Plan run.jfr
+ */
+public final class Events {
+    private Events() {}
+
+    // Whether Flight Recorder is up, from -XX:StartFlightRecording or a
+    // later jcmd JFR.start; cheap, and loads none of the event classes.
+    public static boolean recording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    @Category("Plan")
+    public abstract static class PhaseEvent extends Event {
+        @Label("Program")
+        public String program;
+    }
+
+    @Name("plan.Load")
+    @Label("Load")
+    @Description("Reading the source and looking it up in the --cache")
+    public static final class Load extends PhaseEvent {}
+
+    @Name("plan.Parse")
+    @Label("Parse")
+    public static final class Parse extends PhaseEvent {}
+
+    @Name("plan.StaticCheck")
+    @Label("Static Check")
+    public static final class StaticCheck extends PhaseEvent {}
+
+    @Name("plan.Prepare")
+    @Label("Prepare")
+    @Description("Optimizing, resolving and specializing the checked program")
+    public static final class Prepare extends PhaseEvent {}
+
+    @Name("plan.AbstractRun")
+    @Label("Abstract Run")
+    public static final class AbstractRun extends PhaseEvent {}
+
+    @Name("plan.ConcreteRun")
+    @Label("Concrete Run")
+    public static final class ConcreteRun extends PhaseEvent {
+        @Label("Mode")
+        @Description("real, nodes, vm or jit")
+        public String mode;
+    }
+
+    @Name("plan.Fixpoint")
+    @Label("Fixpoint")
+    @Category("Plan")
+    @Description("A WhileStmt of a fixpoint AbstRuntime reached")
+    public static final class Fixpoint extends Event {
+        @Label("Location")
+        public String location;
+
+        @Label("Iterations")
+        @Description("Times the loop head was analysed before its state was stable")
+        public int iterations;
+    }
+
+    @Name("plan.ScopePush")
+    @Label("Scope Push")
+    @Category("Plan")
+    public static final class ScopePush extends Event {
+        @Label("Depth")
+        @Description("Scopes open, including the new one")
+        public int depth;
+    }
+}
@@ -0,0 +1,461 @@
+package ast;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Executable nodes of NodeRuntime.
+ *
+ * Every node is specialized for one operation on one static type (IntAdd,
+ * FloatDiv, IntLessThan, IntLocalRead, ...), so evaluating it is a direct
+ * chain of eval calls on unboxed values with no type tests left. Variables
+ * live in Frame arrays by their program-wide VarDecl.index: without calls,
+ * a declaration has at most one live instance at a time.
+ *
+ * Runtime errors unwind to NodeRuntime as a preallocated Failure.
+ */
+abstract class ExecNode {
+
+    static final class Frame {
+        final long[] ints;
+        final double[] floats;
+        final boolean[] valued;
+        final InputReader input;
+        final OutputSink out;
+
+        Frame(int vars, InputReader input, OutputSink out) {
+            this.ints = new long[vars];
+            this.floats = new double[vars];
+            this.valued = new boolean[vars];
+            this.input = input;
+            this.out = out;
+        }
+    }
+
+    static final class Failure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        static final Failure DIV_BY_ZERO = new Failure(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+        static final Failure FAILED_STDIN_READ = new Failure(AstErrorHandler.ErrorCode.FAILED_STDIN_READ);
+
+        final RuntimeMeta status;
+
+        private Failure(AstErrorHandler.ErrorCode code) {
+            super(null, null, false, false);
+            this.status = RuntimeMeta.createError(code);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Kinds
+
+    abstract static class IntNode extends ExecNode {
+        abstract long eval(Frame f);
+    }
+
+    abstract static class FloatNode extends ExecNode {
+        abstract double eval(Frame f);
+    }
+
+    abstract static class CondNode extends ExecNode {
+        abstract boolean eval(Frame f);
+    }
+
+    abstract static class StmtNode extends ExecNode {
+        abstract void exec(Frame f);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Int
+
+    static final class IntConst extends IntNode {
+        final long value;
+        IntConst(long value) { this.value = value; }
+        long eval(Frame f) { return value; }
+    }
+
+    static final class IntLocalRead extends IntNode {
+        final int index;
+        final String ident;
+        IntLocalRead(VarDecl decl) { this.index = decl.index; this.ident = decl.ident; }
+        long eval(Frame f) {
+            if (!f.valued[index]) {
+                throw new RuntimeException("Variable " + ident + " not declared");
+            }
+            return f.ints[index];
+        }
+    }
+
+    // a read of a declaration that hides outer ones of the same name falls
+    // through to them while it has no value yet
+    static final class IntChainRead extends IntNode {
+        final int[] chain;
+        final String ident;
+        IntChainRead(VarDecl decl) { this.chain = indices(decl.chain); this.ident = decl.ident; }
+        long eval(Frame f) {
+            for (int index : chain) {
+                if (f.valued[index]) {
+                    return f.ints[index];
+                }
+            }
+            throw new RuntimeException("Variable " + ident + " not declared");
+        }
+    }
+
+    static final class IntAdd extends IntNode {
+        final IntNode left, right;
+        IntAdd(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        long eval(Frame f) { return left.eval(f) + right.eval(f); }
+    }
+
+    static final class IntSub extends IntNode {
+        final IntNode left, right;
+        IntSub(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        long eval(Frame f) { return left.eval(f) - right.eval(f); }
+    }
+
+    static final class IntMul extends IntNode {
+        final IntNode left, right;
+        IntMul(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        long eval(Frame f) { return left.eval(f) * right.eval(f); }
+    }
+
+    static final class IntDiv extends IntNode {
+        final IntNode left, right;
+        IntDiv(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        long eval(Frame f) {
+            long l = left.eval(f);
+            long r = right.eval(f);
+            if (r == 0) {
+                throw Failure.DIV_BY_ZERO;
+            }
+            return l / r;
+        }
+    }
+
+    // BinaryExpr.nonZeroDivisor; the JVM's own zero check stays the fallback
+    static final class IntDivNonZero extends IntNode {
+        final IntNode left, right;
+        IntDivNonZero(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        long eval(Frame f) {
+            long l = left.eval(f);
+            long r = right.eval(f);
+            try {
+                return l / r;
+            } catch (ArithmeticException ex) {
+                throw Failure.DIV_BY_ZERO;
+            }
+        }
+    }
+
+    static final class IntNeg extends IntNode {
+        final IntNode value;
+        IntNeg(IntNode value) { this.value = value; }
+        long eval(Frame f) { return -value.eval(f); }
+    }
+
+    // reads once, on its first evaluation, like every ReadIntExpr
+    static final class IntRead extends IntNode {
+        boolean done;
+        long value;
+        long eval(Frame f) {
+            if (!done) {
+                if (f.input == null || f.input.peek() != ValueMeta.ValueType.INT) {
+                    throw Failure.FAILED_STDIN_READ;
+                }
+                value = f.input.nextInt();
+                done = true;
+            }
+            return value;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Float
+
+    static final class FloatConst extends FloatNode {
+        final double value;
+        FloatConst(double value) { this.value = value; }
+        double eval(Frame f) { return value; }
+    }
+
+    static final class FloatLocalRead extends FloatNode {
+        final int index;
+        final String ident;
+        FloatLocalRead(VarDecl decl) { this.index = decl.index; this.ident = decl.ident; }
+        double eval(Frame f) {
+            if (!f.valued[index]) {
+                throw new RuntimeException("Variable " + ident + " not declared");
+            }
+            return f.floats[index];
+        }
+    }
+
+    static final class FloatChainRead extends FloatNode {
+        final int[] chain;
+        final String ident;
+        FloatChainRead(VarDecl decl) { this.chain = indices(decl.chain); this.ident = decl.ident; }
+        double eval(Frame f) {
+            for (int index : chain) {
+                if (f.valued[index]) {
+                    return f.floats[index];
+                }
+            }
+            throw new RuntimeException("Variable " + ident + " not declared");
+        }
+    }
+
+    static final class FloatAdd extends FloatNode {
+        final FloatNode left, right;
+        FloatAdd(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        double eval(Frame f) { return left.eval(f) + right.eval(f); }
+    }
+
+    static final class FloatSub extends FloatNode {
+        final FloatNode left, right;
+        FloatSub(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        double eval(Frame f) { return left.eval(f) - right.eval(f); }
+    }
+
+    static final class FloatMul extends FloatNode {
+        final FloatNode left, right;
+        FloatMul(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        double eval(Frame f) { return left.eval(f) * right.eval(f); }
+    }
+
+    static final class FloatDiv extends FloatNode {
+        final FloatNode left, right;
+        FloatDiv(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        double eval(Frame f) {
+            double l = left.eval(f);
+            double r = right.eval(f);
+            if (r == 0.0) {
+                throw Failure.DIV_BY_ZERO;
+            }
+            return l / r;
+        }
+    }
+
+    static final class FloatNeg extends FloatNode {
+        final FloatNode value;
+        FloatNeg(FloatNode value) { this.value = value; }
+        double eval(Frame f) { return -value.eval(f); }
+    }
+
+    static final class FloatRead extends FloatNode {
+        boolean done;
+        double value;
+        double eval(Frame f) {
+            if (!done) {
+                if (f.input == null || f.input.peek() != ValueMeta.ValueType.FLOAT) {
+                    throw new RuntimeException("Expression is not valid");
+                }
+                value = f.input.nextFloat();
+                done = true;
+            }
+            return value;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Cond
+
+    static final class IntEquals extends CondNode {
+        final IntNode left, right;
+        IntEquals(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) == right.eval(f); }
+    }
+
+    static final class IntNotEquals extends CondNode {
+        final IntNode left, right;
+        IntNotEquals(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) != right.eval(f); }
+    }
+
+    static final class IntLessThan extends CondNode {
+        final IntNode left, right;
+        IntLessThan(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) < right.eval(f); }
+    }
+
+    static final class IntLessEquals extends CondNode {
+        final IntNode left, right;
+        IntLessEquals(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) <= right.eval(f); }
+    }
+
+    static final class IntGreaterThan extends CondNode {
+        final IntNode left, right;
+        IntGreaterThan(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) > right.eval(f); }
+    }
+
+    static final class IntGreaterEquals extends CondNode {
+        final IntNode left, right;
+        IntGreaterEquals(IntNode left, IntNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) >= right.eval(f); }
+    }
+
+    static final class FloatEquals extends CondNode {
+        final FloatNode left, right;
+        FloatEquals(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) == right.eval(f); }
+    }
+
+    static final class FloatNotEquals extends CondNode {
+        final FloatNode left, right;
+        FloatNotEquals(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) != right.eval(f); }
+    }
+
+    static final class FloatLessThan extends CondNode {
+        final FloatNode left, right;
+        FloatLessThan(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) < right.eval(f); }
+    }
+
+    static final class FloatLessEquals extends CondNode {
+        final FloatNode left, right;
+        FloatLessEquals(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) <= right.eval(f); }
+    }
+
+    static final class FloatGreaterThan extends CondNode {
+        final FloatNode left, right;
+        FloatGreaterThan(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) > right.eval(f); }
+    }
+
+    static final class FloatGreaterEquals extends CondNode {
+        final FloatNode left, right;
+        FloatGreaterEquals(FloatNode left, FloatNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) >= right.eval(f); }
+    }
+
+    static final class And extends CondNode {
+        final CondNode left, right;
+        And(CondNode left, CondNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) && right.eval(f); }
+    }
+
+    static final class Or extends CondNode {
+        final CondNode left, right;
+        Or(CondNode left, CondNode right) { this.left = left; this.right = right; }
+        boolean eval(Frame f) { return left.eval(f) || right.eval(f); }
+    }
+
+    static final class Not extends CondNode {
+        final CondNode value;
+        Not(CondNode value) { this.value = value; }
+        boolean eval(Frame f) { return !value.eval(f); }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Stmt
+
+    // entering a block clears its declarations, since a block runs with a
+    // fresh frame every time
+    static final class Block extends StmtNode {
+        final int[] locals;
+        final StmtNode[] body;
+        Block(int[] locals, StmtNode[] body) { this.locals = locals; this.body = body; }
+        void exec(Frame f) {
+            for (int index : locals) {
+                f.valued[index] = false;
+            }
+            for (StmtNode stmt : body) {
+                stmt.exec(f);
+            }
+        }
+    }
+
+    static final class Sequence extends StmtNode {
+        final StmtNode[] body;
+        Sequence(StmtNode[] body) { this.body = body; }
+        void exec(Frame f) {
+            for (StmtNode stmt : body) {
+                stmt.exec(f);
+            }
+        }
+    }
+
+    static final class If extends StmtNode {
+        final CondNode cond;
+        final StmtNode then;
+        If(CondNode cond, StmtNode then) { this.cond = cond; this.then = then; }
+        void exec(Frame f) {
+            if (cond.eval(f)) {
+                then.exec(f);
+            }
+        }
+    }
+
+    static final class IfElse extends StmtNode {
+        final CondNode cond;
+        final StmtNode then, otherwise;
+        IfElse(CondNode cond, StmtNode then, StmtNode otherwise) { this.cond = cond; this.then = then; this.otherwise = otherwise; }
+        void exec(Frame f) {
+            if (cond.eval(f)) {
+                then.exec(f);
+            } else {
+                otherwise.exec(f);
+            }
+        }
+    }
+
+    static final class While extends StmtNode {
+        final CondNode cond;
+        final StmtNode body;
+        While(CondNode cond, StmtNode body) { this.cond = cond; this.body = body; }
+        void exec(Frame f) {
+            while (cond.eval(f)) {
+                body.exec(f);
+            }
+        }
+    }
+
+    static final class IntStore extends StmtNode {
+        final int index;
+        final IntNode value;
+        IntStore(VarDecl decl, IntNode value) { this.index = decl.index; this.value = value; }
+        void exec(Frame f) {
+            f.ints[index] = value.eval(f);
+            f.valued[index] = true;
+        }
+    }
+
+    static final class FloatStore extends StmtNode {
+        final int index;
+        final FloatNode value;
+        FloatStore(VarDecl decl, FloatNode value) { this.index = decl.index; this.value = value; }
+        void exec(Frame f) {
+            f.floats[index] = value.eval(f);
+            f.valued[index] = true;
+        }
+    }
+
+    static final class IntPrint extends StmtNode {
+        final IntNode value;
+        IntPrint(IntNode value) { this.value = value; }
+        void exec(Frame f) { f.out.printInt(value.eval(f)); }
+    }
+
+    static final class FloatPrint extends StmtNode {
+        final FloatNode value;
+        FloatPrint(FloatNode value) { this.value = value; }
+        void exec(Frame f) { f.out.printFloat(value.eval(f)); }
+    }
+
+    static final class Nop extends StmtNode {
+        void exec(Frame f) {}
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    static int[] indices(VarDecl[] decls) {
+        int[] res = new int[decls.length];
+        for (int i = 0; i < decls.length; i++) {
+            res[i] = decls[i].index;
+        }
+        return res;
+    }
+}
@@ -2,6 +2,8 @@ package ast;
 import java.io.PrintStream;
 
 public abstract class Expr extends ASTNode {
+    public int index = -1; // assigned by TypeCheck, into Program.exprTypes
+
     public Expr(Location loc) {
         super(loc);
     }
@@ -0,0 +1,111 @@
+package ast;
+
+/**
+ * Variable storage addressed by the (depth, slot) indices of SymbolResolver.
+ *
+ * frames[d] is the live frame of the block at lexical depth d, so a variable
+ * access is two array loads instead of a walk over a stack of hash maps.
+ * The behaviour mirrors SymbolTableHelper: a read falls through to the outer
+ * declarations of the same name while the inner one has no value yet.
+ */
+public class FrameHelper {
+    // frame of every block without declarations; it has no slots to write
+    private static final ValueMeta[] NO_LOCALS = new ValueMeta[0];
+
+    private ValueMeta[][] frames;
+    private VarDecl[][] layouts;
+    private int top;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public FrameHelper(Program program) {
+        this.frames = new ValueMeta[program.maxDepth + 1][];
+        this.layouts = new VarDecl[program.maxDepth + 1][];
+        this.top = 0;
+        this.frames[0] = new ValueMeta[program.locals.length]; // global scope
+        this.layouts[0] = program.locals;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public ValueMeta findValue(IdentExpr identExpr) {
+        return findValue(identExpr.decl.chain);
+    }
+
+    private ValueMeta findValue(VarDecl[] chain) {
+        for (int i = 0; i < chain.length; i++) {
+            ValueMeta value = frames[chain[i].depth][chain[i].slot];
+            if (value == null || !value.hasValue()) {
+                continue;
+            }
+            return value;
+        }
+        return null;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Ident control (w/o value)
+
+    public boolean newScope(VarDecl[] locals) {
+        top++;
+        frames[top] = locals.length == 0 ? NO_LOCALS : new ValueMeta[locals.length];
+        layouts[top] = locals;
+        return true;
+    }
+
+    public boolean exitScope() {
+        if (top <= 0) {
+            return false;
+        }
+        frames[top] = null;
+        layouts[top] = null;
+        top--;
+        return true;
+    }
+
+    public boolean isLocalPlaned(VarDecl varDecl) {
+        return frames[varDecl.depth][varDecl.slot] != null;
+    }
+
+    public void planIdent(VarDecl varDecl, ValueMeta.ValueType type) {
+        if (isLocalPlaned(varDecl)) {
+            throw new RuntimeException("Variable " + varDecl.ident + " already declared");
+        }
+        frames[varDecl.depth][varDecl.slot] = ValueMeta.createNull(varDecl.ident, type);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Envalue
+
+    public void envalue(VarDecl varDecl, ValueMeta value) {
+        ValueMeta planed = frames[varDecl.depth][varDecl.slot];
+        if (planed == null) {
+            throw new RuntimeException("Variable " + varDecl.ident + " not declared");
+        }
+        if (planed.getType() != value.getType()) {
+            throw new RuntimeException("Variable " + varDecl.ident + " type mismatch");
+        }
+        frames[varDecl.depth][varDecl.slot] = value;
+    }
+
+    // Concrete stores update the planned ValueMeta in place, so an assignment
+    // allocates nothing.
+    public void envalueInt(VarDecl varDecl, long value) {
+        planedOf(varDecl, ValueMeta.ValueType.INT).setIntValue(value);
+    }
+
+    public void envalueFloat(VarDecl varDecl, double value) {
+        planedOf(varDecl, ValueMeta.ValueType.FLOAT).setFloatValue(value);
+    }
+
+    private ValueMeta planedOf(VarDecl varDecl, ValueMeta.ValueType type) {
+        ValueMeta planed = frames[varDecl.depth][varDecl.slot];
+        if (planed == null) {
+            throw new RuntimeException("Variable " + varDecl.ident + " not declared");
+        }
+        if (planed.getType() != type) {
+            throw new RuntimeException("Variable " + varDecl.ident + " type mismatch");
+        }
+        return planed;
+    }
+}
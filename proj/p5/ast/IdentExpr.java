@@ -3,6 +3,7 @@ import java.io.PrintStream;
 
 public class IdentExpr extends Expr {
     public final String ident;
+    public VarDecl decl; // assigned by SymbolResolver
 
     public IdentExpr(String i, Location loc) {
         super(loc);
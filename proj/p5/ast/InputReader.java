@@ -0,0 +1,240 @@
+package ast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Values for ReadIntExpr and ReadFloatExpr, tokenized from stdin on demand.
+ *
+ * The stream is read into a byte buffer only as far as the program asks for
+ * values, one whitespace separated token at a time, without going through
+ * Strings or boxed numbers. Tokens are typed like java.util.Scanner types
+ * them: a decimal integer that fits an int is an INT, any other decimal
+ * number (or NaN, Infinity) is a FLOAT rounded to float precision, and
+ * anything else is invalid input.
+ */
+public final class InputReader {
+    private static final float[] POW10 = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private final InputStream in;
+    private byte[] buf = new byte[1 << 16];
+    private int pos = 0;   // start of the next token
+    private int limit = 0; // end of the buffered input
+    private boolean eof = false;
+
+    // the token buf[pos, end), once peek() has typed it
+    private ValueMeta.ValueType type;
+    private int end;
+    private long intValue;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public InputReader(InputStream in) {
+        this.in = in;
+    }
+
+    // INT or FLOAT for the next token, null at the end of the input
+    public ValueMeta.ValueType peek() {
+        if (type != null) {
+            return type;
+        }
+        while (true) {
+            while (pos < limit && isSpace(buf[pos])) {
+                pos++;
+            }
+            if (pos < limit || !fill()) {
+                break;
+            }
+        }
+        if (pos == limit) {
+            return null;
+        }
+        end = pos;
+        while (true) {
+            while (end < limit && !isSpace(buf[end])) {
+                end++;
+            }
+            if (end < limit || !fill()) {
+                break;
+            }
+        }
+        type = typeOf(pos, end);
+        return type;
+    }
+
+    public long nextInt() {
+        if (peek() != ValueMeta.ValueType.INT) {
+            throw new RuntimeException("Input is not an int");
+        }
+        type = null;
+        pos = end;
+        return intValue;
+    }
+
+    public double nextFloat() {
+        if (peek() != ValueMeta.ValueType.FLOAT) {
+            throw new RuntimeException("Input is not a float");
+        }
+        double res = parseFloat(pos, end);
+        type = null;
+        pos = end;
+        return res;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Buffer
+
+    // reads more input behind buf[pos, limit), false at the end of the input
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            end -= pos;
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            byte[] grown = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, grown, 0, limit);
+            buf = grown;
+        }
+        int n;
+        try {
+            n = in.read(buf, limit, buf.length - limit);
+        } catch (IOException ex) {
+            // an unreadable stdin holds no values
+            n = -1;
+        }
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Tokens
+
+    private ValueMeta.ValueType typeOf(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (buf[i] == '+' || buf[i] == '-') {
+            negative = buf[i] == '-';
+            i++;
+        }
+        int digits = skipDigits(i, to);
+        if (digits > i && digits == to) {
+            long value = 0;
+            for (int k = i; k < to && value <= (long) Integer.MAX_VALUE + 1; k++) {
+                value = value * 10 + (buf[k] - '0');
+            }
+            value = negative ? -value : value;
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                intValue = value;
+                return ValueMeta.ValueType.INT;
+            }
+            return ValueMeta.ValueType.FLOAT;
+        }
+        if (isWord(i, to, "NaN") || isWord(i, to, "Infinity")) {
+            return ValueMeta.ValueType.FLOAT;
+        }
+        // digits [. digits] | . digits, then an optional exponent
+        boolean mantissa = digits > i;
+        i = digits;
+        if (i < to && buf[i] == '.') {
+            int fraction = skipDigits(i + 1, to);
+            mantissa |= fraction > i + 1;
+            i = fraction;
+        }
+        if (mantissa && i < to && (buf[i] == 'e' || buf[i] == 'E')) {
+            int exp = i + 1;
+            if (exp < to && (buf[exp] == '+' || buf[exp] == '-')) {
+                exp++;
+            }
+            int expEnd = skipDigits(exp, to);
+            i = expEnd > exp ? expEnd : -1;
+        }
+        if (!mantissa || i != to) {
+            throw new RuntimeException("Invalid input");
+        }
+        return ValueMeta.ValueType.FLOAT;
+    }
+
+    private int skipDigits(int i, int to) {
+        while (i < to && buf[i] >= '0' && buf[i] <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean isWord(int from, int to, String word) {
+        if (to - from != word.length()) {
+            return false;
+        }
+        for (int k = 0; k < word.length(); k++) {
+            if (buf[from + k] != word.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // a FLOAT token, as Float.parseFloat would round it
+    private double parseFloat(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (buf[i] == '+' || buf[i] == '-') {
+            negative = buf[i] == '-';
+            i++;
+        }
+        // below 2^24 the mantissa and 10^0..10^10 are exact floats, so one
+        // float multiply or divide rounds correctly
+        long mantissa = 0;
+        int scale = 0;
+        boolean exact = true;
+        for (; i < to && buf[i] != 'e' && buf[i] != 'E'; i++) {
+            if (buf[i] == '.') {
+                scale = -1;
+                continue;
+            }
+            if (buf[i] < '0' || buf[i] > '9' || mantissa >= 1 << 24) {
+                exact = false;
+                break;
+            }
+            mantissa = mantissa * 10 + (buf[i] - '0');
+            if (scale < 0) {
+                scale--;
+            }
+        }
+        int exp = scale < 0 ? scale + 1 : 0;
+        if (exact && i < to) {
+            i++;
+            boolean expNegative = buf[i] == '-';
+            if (buf[i] == '+' || buf[i] == '-') {
+                i++;
+            }
+            int e = 0;
+            for (; i < to && e < 100; i++) {
+                e = e * 10 + (buf[i] - '0');
+            }
+            exp += expNegative ? -e : e;
+        }
+        if (exact && mantissa < 1 << 24 && exp >= -10 && exp <= 10) {
+            float res = exp < 0 ? mantissa / POW10[-exp] : mantissa * POW10[exp];
+            return negative ? -res : res;
+        }
+        return Float.parseFloat(new String(buf, from, to - from, StandardCharsets.US_ASCII));
+    }
+}
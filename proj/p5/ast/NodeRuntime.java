@@ -0,0 +1,395 @@
+package ast;
+import java.util.IdentityHashMap;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Concrete Runtime that turns the checked tree into ExecNodes and runs those.
+ *
+ * A tree is translated the first time it runs, each AST node into the node
+ * specialized for its static type (Program.exprTypes) and, where AbstFacts
+ * annotated it, for the proven fact. The translation is kept by the node it
+ * was run from, so a loop body runs as a monomorphic chain of eval calls on
+ * unboxed values.
+ */
+public final class NodeRuntime implements Runtime {
+    private IdentityHashMap<ASTNode, ExecNode> nodes = new IdentityHashMap<ASTNode, ExecNode>();
+    private ValueMeta.ValueType[] exprTypes;
+    private ExecNode.Frame frame;
+    private Runtime outer; // runs the units of a list if set, see Runtime.setOuter
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor
+
+    public NodeRuntime(Program program, InputReader input, OutputSink out) {
+        this.exprTypes = program.exprTypes;
+        this.frame = new ExecNode.Frame(program.vars.length, input, out);
+    }
+
+    // Units below the ones of the list run as part of their node, so a
+    // decorator only sees the units of the lists it runs.
+    public void setOuter(Runtime outer) {
+        this.outer = outer;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Decl
+
+    public RuntimeMeta runDecl(Decl decl) {
+        return exec(decl);
+    }
+
+    public RuntimeMeta runVarDecl(VarDecl varDecl) {
+        frame.valued[varDecl.index] = false;
+        return RuntimeMeta.SUCCESS;
+    }
+
+    public RuntimeMeta runIntVarDecl(IntVarDecl intVarDecl) {
+        return runVarDecl(intVarDecl);
+    }
+
+    public RuntimeMeta runFloatVarDecl(FloatVarDecl floatVarDecl) {
+        return runVarDecl(floatVarDecl);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Expr
+
+    public RuntimeMeta runExpr(Expr expr) {
+        try {
+            if (isFloat(expr)) {
+                return RuntimeMeta.createSuccess(ValueMeta.createFloat(null, floatNode(expr).eval(frame)));
+            }
+            return RuntimeMeta.createSuccess(ValueMeta.createInt(null, intNode(expr).eval(frame)));
+        } catch (ExecNode.Failure ex) {
+            return ex.status;
+        }
+    }
+
+    public RuntimeMeta runIntConstExpr(IntConstExpr intConstExpr) {
+        return runExpr(intConstExpr);
+    }
+
+    public RuntimeMeta runFloatConstExpr(FloatConstExpr floatConstExpr) {
+        return runExpr(floatConstExpr);
+    }
+
+    public RuntimeMeta runIdentExpr(IdentExpr identExpr) {
+        return runExpr(identExpr);
+    }
+
+    public RuntimeMeta runUnaryMinusExpr(UnaryMinusExpr unaryMinusExpr) {
+        return runExpr(unaryMinusExpr);
+    }
+
+    public RuntimeMeta runReadIntExpr(ReadIntExpr readIntExpr) {
+        return runExpr(readIntExpr);
+    }
+
+    public RuntimeMeta runReadFloatExpr(ReadFloatExpr readFloatExpr) {
+        return runExpr(readFloatExpr);
+    }
+
+    public RuntimeMeta runBinaryExpr(BinaryExpr binExpr) {
+        return runExpr(binExpr);
+    }
+
+    public RuntimeMeta runCondExpr(CondExpr condExpr) {
+        try {
+            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, condNode(condExpr).eval(frame)));
+        } catch (ExecNode.Failure ex) {
+            return ex.status;
+        }
+    }
+
+    public RuntimeMeta runCompExpr(CompExpr compExpr) {
+        return runCondExpr(compExpr);
+    }
+
+    public RuntimeMeta runLogicalExpr(LogicalExpr logicalExpr) {
+        return runCondExpr(logicalExpr);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Stmt
+
+    public RuntimeMeta runStmt(Stmt stmt) {
+        return exec(stmt);
+    }
+
+    public RuntimeMeta runBlockStmt(BlockStmt blockStmt) {
+        return exec(blockStmt);
+    }
+
+    public RuntimeMeta runIfStmt(IfStmt ifStmt) {
+        return exec(ifStmt);
+    }
+
+    public RuntimeMeta runWhileStmt(WhileStmt whileStmt) {
+        return exec(whileStmt);
+    }
+
+    public RuntimeMeta runAssignStmt(AssignStmt assignStmt) {
+        return exec(assignStmt);
+    }
+
+    public RuntimeMeta runPrintStmt(PrintStmt printStmt) {
+        return exec(printStmt);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Unit
+
+    public RuntimeMeta runUnit(Unit unit) {
+        return exec(unit);
+    }
+
+    public RuntimeMeta runUnitList(UnitList unitList) {
+        if (outer != null) {
+            for (Unit unit : unitList.units) {
+                RuntimeMeta resStatus = outer.runUnit(unit);
+                if (!resStatus.isSuccessful()) {
+                    return resStatus;
+                }
+            }
+            return RuntimeMeta.SUCCESS;
+        }
+        ExecNode.StmtNode node = (ExecNode.StmtNode) nodes.get(unitList);
+        if (node == null) {
+            node = new ExecNode.Sequence(stmtNodes(unitList));
+            nodes.put(unitList, node);
+        }
+        return exec(node);
+    }
+
+    private RuntimeMeta exec(Unit unit) {
+        return exec(stmtNode(unit));
+    }
+
+    private RuntimeMeta exec(ExecNode.StmtNode node) {
+        try {
+            node.exec(frame);
+            return RuntimeMeta.SUCCESS;
+        } catch (ExecNode.Failure ex) {
+            return ex.status;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Translation
+
+    private boolean isFloat(Expr expr) {
+        return exprTypes[expr.index] == ValueMeta.ValueType.FLOAT;
+    }
+
+    private ExecNode.IntNode intNode(Expr expr) {
+        ExecNode.IntNode node = (ExecNode.IntNode) nodes.get(expr);
+        if (node == null) {
+            node = newIntNode(expr);
+            nodes.put(expr, node);
+        }
+        return node;
+    }
+
+    private ExecNode.FloatNode floatNode(Expr expr) {
+        ExecNode.FloatNode node = (ExecNode.FloatNode) nodes.get(expr);
+        if (node == null) {
+            node = newFloatNode(expr);
+            nodes.put(expr, node);
+        }
+        return node;
+    }
+
+    private ExecNode.IntNode intNode(Expr expr, ExecNode.IntNode fresh) {
+        ExecNode.IntNode node = (ExecNode.IntNode) nodes.get(expr);
+        if (node == null) {
+            node = fresh;
+            nodes.put(expr, node);
+        }
+        return node;
+    }
+
+    private ExecNode.FloatNode floatNode(Expr expr, ExecNode.FloatNode fresh) {
+        ExecNode.FloatNode node = (ExecNode.FloatNode) nodes.get(expr);
+        if (node == null) {
+            node = fresh;
+            nodes.put(expr, node);
+        }
+        return node;
+    }
+
+    private ExecNode.CondNode condNode(CondExpr condExpr) {
+        ExecNode.CondNode node = (ExecNode.CondNode) nodes.get(condExpr);
+        if (node == null) {
+            node = newCondNode(condExpr);
+            nodes.put(condExpr, node);
+        }
+        return node;
+    }
+
+    private ExecNode.StmtNode stmtNode(Unit unit) {
+        ExecNode.StmtNode node = (ExecNode.StmtNode) nodes.get(unit);
+        if (node == null) {
+            node = newStmtNode(unit);
+            nodes.put(unit, node);
+        }
+        return node;
+    }
+
+    private ExecNode.IntNode newIntNode(Expr expr) {
+        if (expr instanceof IntConstExpr) {
+            return new ExecNode.IntConst(((IntConstExpr) expr).ival);
+        }
+        if (expr instanceof IdentExpr) {
+            VarDecl decl = ((IdentExpr) expr).decl;
+            return decl.chain.length == 1 ? new ExecNode.IntLocalRead(decl) : new ExecNode.IntChainRead(decl);
+        }
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            ExecNode.IntNode left = newIntNode(binExpr.expr1);
+            ExecNode.IntNode right = newIntNode(binExpr.expr2);
+            switch (binExpr.op) {
+                case BinaryExpr.PLUS: return new ExecNode.IntAdd(left, right);
+                case BinaryExpr.MINUS: return new ExecNode.IntSub(left, right);
+                case BinaryExpr.TIMES: return new ExecNode.IntMul(left, right);
+                case BinaryExpr.DIV:
+                    return binExpr.nonZeroDivisor ? new ExecNode.IntDivNonZero(left, right) : new ExecNode.IntDiv(left, right);
+            }
+            throw new RuntimeException("BinaryExpr is not valid");
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            return new ExecNode.IntNeg(newIntNode(((UnaryMinusExpr) expr).expr));
+        }
+        // a read holds the value it read, so every translation shares it
+        if (expr instanceof ReadIntExpr) {
+            return intNode(expr, new ExecNode.IntRead());
+        }
+
+        throw new RuntimeException("Expression is not valid");
+    }
+
+    private ExecNode.FloatNode newFloatNode(Expr expr) {
+        if (expr instanceof FloatConstExpr) {
+            return new ExecNode.FloatConst(((FloatConstExpr) expr).fval);
+        }
+        if (expr instanceof IdentExpr) {
+            VarDecl decl = ((IdentExpr) expr).decl;
+            return decl.chain.length == 1 ? new ExecNode.FloatLocalRead(decl) : new ExecNode.FloatChainRead(decl);
+        }
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            ExecNode.FloatNode left = newFloatNode(binExpr.expr1);
+            ExecNode.FloatNode right = newFloatNode(binExpr.expr2);
+            switch (binExpr.op) {
+                case BinaryExpr.PLUS: return new ExecNode.FloatAdd(left, right);
+                case BinaryExpr.MINUS: return new ExecNode.FloatSub(left, right);
+                case BinaryExpr.TIMES: return new ExecNode.FloatMul(left, right);
+                case BinaryExpr.DIV: return new ExecNode.FloatDiv(left, right);
+            }
+            throw new RuntimeException("BinaryExpr is not valid");
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            return new ExecNode.FloatNeg(newFloatNode(((UnaryMinusExpr) expr).expr));
+        }
+        if (expr instanceof ReadFloatExpr) {
+            return floatNode(expr, new ExecNode.FloatRead());
+        }
+
+        throw new RuntimeException("Expression is not valid");
+    }
+
+    private ExecNode.CondNode newCondNode(CondExpr condExpr) {
+        if (condExpr instanceof CompExpr) {
+            CompExpr compExpr = (CompExpr) condExpr;
+            if (isFloat(compExpr.expr1)) {
+                ExecNode.FloatNode left = newFloatNode(compExpr.expr1);
+                ExecNode.FloatNode right = newFloatNode(compExpr.expr2);
+                switch (compExpr.op) {
+                    case CompExpr.EQ: return new ExecNode.FloatEquals(left, right);
+                    case CompExpr.NE: return new ExecNode.FloatNotEquals(left, right);
+                    case CompExpr.LT: return new ExecNode.FloatLessThan(left, right);
+                    case CompExpr.GT: return new ExecNode.FloatGreaterThan(left, right);
+                    case CompExpr.LE: return new ExecNode.FloatLessEquals(left, right);
+                    case CompExpr.GE: return new ExecNode.FloatGreaterEquals(left, right);
+                }
+                throw new RuntimeException("CompExpr is not valid");
+            }
+            ExecNode.IntNode left = newIntNode(compExpr.expr1);
+            ExecNode.IntNode right = newIntNode(compExpr.expr2);
+            switch (compExpr.op) {
+                case CompExpr.EQ: return new ExecNode.IntEquals(left, right);
+                case CompExpr.NE: return new ExecNode.IntNotEquals(left, right);
+                case CompExpr.LT: return new ExecNode.IntLessThan(left, right);
+                case CompExpr.GT: return new ExecNode.IntGreaterThan(left, right);
+                case CompExpr.LE: return new ExecNode.IntLessEquals(left, right);
+                case CompExpr.GE: return new ExecNode.IntGreaterEquals(left, right);
+            }
+            throw new RuntimeException("CompExpr is not valid");
+        }
+
+        if (condExpr instanceof LogicalExpr) {
+            LogicalExpr logicalExpr = (LogicalExpr) condExpr;
+            ExecNode.CondNode left = newCondNode(logicalExpr.expr1);
+            switch (logicalExpr.op) {
+                case LogicalExpr.NOT: return new ExecNode.Not(left);
+                case LogicalExpr.AND: return new ExecNode.And(left, newCondNode(logicalExpr.expr2));
+                case LogicalExpr.OR: return new ExecNode.Or(left, newCondNode(logicalExpr.expr2));
+            }
+            throw new RuntimeException("LogicalExpr is not valid");
+        }
+
+        throw new RuntimeException("CondExpr is not valid");
+    }
+
+    private ExecNode.StmtNode newStmtNode(Unit unit) {
+        if (unit instanceof Decl) {
+            Decl decl = (Decl) unit;
+            // a block clears its declarations on entry, so one without a
+            // value has nothing left to do
+            if (decl.expr == null) {
+                return new ExecNode.Nop();
+            }
+            return store(decl.varDecl, decl.expr);
+        }
+        if (unit instanceof BlockStmt) {
+            BlockStmt blockStmt = (BlockStmt) unit;
+            return new ExecNode.Block(ExecNode.indices(blockStmt.locals), stmtNodes(blockStmt.block));
+        }
+        if (unit instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) unit;
+            if (ifStmt.elsestmt == null) {
+                return new ExecNode.If(newCondNode(ifStmt.expr), newStmtNode(ifStmt.thenstmt));
+            }
+            return new ExecNode.IfElse(newCondNode(ifStmt.expr), newStmtNode(ifStmt.thenstmt), newStmtNode(ifStmt.elsestmt));
+        }
+        if (unit instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) unit;
+            return new ExecNode.While(newCondNode(whileStmt.expr), newStmtNode(whileStmt.body));
+        }
+        if (unit instanceof AssignStmt) {
+            AssignStmt assignStmt = (AssignStmt) unit;
+            return store(assignStmt.decl, assignStmt.expr);
+        }
+        if (unit instanceof PrintStmt) {
+            Expr expr = ((PrintStmt) unit).expr;
+            return isFloat(expr) ? new ExecNode.FloatPrint(newFloatNode(expr)) : new ExecNode.IntPrint(newIntNode(expr));
+        }
+
+        throw new RuntimeException("Unknown Stmt type");
+    }
+
+    private ExecNode.StmtNode store(VarDecl varDecl, Expr expr) {
+        if (varDecl instanceof FloatVarDecl) {
+            return new ExecNode.FloatStore(varDecl, newFloatNode(expr));
+        }
+        return new ExecNode.IntStore(varDecl, newIntNode(expr));
+    }
+
+    private ExecNode.StmtNode[] stmtNodes(UnitList ul) {
+        ExecNode.StmtNode[] res = new ExecNode.StmtNode[ul.units.length];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = newStmtNode(ul.units[i]);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,133 @@
+package ast;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Output of PrintStmt, one value per line.
+ *
+ * Values are formatted straight into a byte buffer, the way PrintStream
+ * would print them, and handed to the stream in large chunks. Whoever owns
+ * the sink flushes it when the program ends or fails.
+ */
+public final class OutputSink {
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes();
+    // room for any long, a ".0" and the line separator
+    private static final int MAX_NUMBER = 22 + NEWLINE.length;
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int size = 0;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public OutputSink(OutputStream out) {
+        this(out, 1 << 16);
+    }
+
+    public OutputSink(OutputStream out, int capacity) {
+        this.out = out;
+        this.buf = new byte[Math.max(capacity, MAX_NUMBER)];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public void printInt(long value) {
+        reserve(MAX_NUMBER);
+        putLong(value);
+        putNewline();
+    }
+
+    // same text as Double.toString; whole numbers below 10^7 skip the String
+    public void printFloat(double value) {
+        long whole = (long) value;
+        if (whole != value || whole <= -10000000L || whole >= 10000000L
+            || (whole == 0 && Double.doubleToRawLongBits(value) != 0)) {
+            println(Double.toString(value));
+            return;
+        }
+        reserve(MAX_NUMBER);
+        putLong(whole);
+        buf[size++] = '.';
+        buf[size++] = '0';
+        putNewline();
+    }
+
+    public void println(String s) {
+        reserve(s.length() + NEWLINE.length);
+        for (int c = 0; c < s.length(); c++) {
+            if (size == buf.length) {
+                flushBuffer();
+            }
+            buf[size++] = (byte) s.charAt(c);
+        }
+        reserve(NEWLINE.length);
+        putNewline();
+    }
+
+    // output printed earlier, as is
+    public void write(byte[] bytes) {
+        flushBuffer();
+        try {
+            out.write(bytes);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public void flush() {
+        flushBuffer();
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void reserve(int n) {
+        if (buf.length - size < n) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() {
+        if (size == 0) {
+            return;
+        }
+        try {
+            out.write(buf, 0, size);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        size = 0;
+    }
+
+    private void putNewline() {
+        for (byte b : NEWLINE) {
+            buf[size++] = b;
+        }
+    }
+
+    // digits are taken off a non-positive value, so Long.MIN_VALUE fits
+    private void putLong(long value) {
+        if (value < 0) {
+            buf[size++] = '-';
+        } else {
+            value = -value;
+        }
+        int start = size;
+        do {
+            buf[size++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte b = buf[i];
+            buf[i] = buf[j];
+            buf[j] = b;
+        }
+    }
+}
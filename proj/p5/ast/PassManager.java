@@ -0,0 +1,35 @@
+package ast;
+import java.util.ArrayList;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Runs AstPasses over a checked Program, in the order they were added.
+ *
+ * Each pass may hand back a new tree, so the Program returned by run
+ * replaces the one passed in. SymbolResolver runs on the result.
+ */
+public final class PassManager {
+    private ArrayList<AstPass> passes = new ArrayList<AstPass>();
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // folding first, so pruning sees constant conditions
+    public static PassManager optimizer() {
+        return new PassManager()
+            .add(new ConstantFolder())
+            .add(new BranchPruner());
+    }
+
+    public PassManager add(AstPass pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    public Program run(Program program) {
+        for (AstPass pass : passes) {
+            program = pass.run(program);
+        }
+        return program;
+    }
+}
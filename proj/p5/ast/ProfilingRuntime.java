@@ -0,0 +1,271 @@
+package ast;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Runtime decorator counting and timing the statements another Runtime runs.
+ *
+ * Every unit the delegate runs (and every condition AbstRuntime evaluates)
+ * is entered in a call tree, keyed by its node and shown by its Location,
+ * with its number of runs and its total and self nanoTime. Expressions are
+ * timed as part of their statement. How deep the tree goes depends on the
+ * delegate: RealRuntime and AbstRuntime run all nested units through the
+ * decorator, NodeRuntime only the top-level ones.
+ */
+public final class ProfilingRuntime implements Runtime {
+    private static final int HOT_LINES = 20;
+    private static final int LABEL_WIDTH = 48;
+
+    private final Runtime delegate;
+    private final Frame root = new Frame(null, null);
+    private Frame current = root;
+
+    // a node run from a given path of enclosing nodes
+    private static final class Frame {
+        final ASTNode node;
+        final Frame parent;
+        IdentityHashMap<ASTNode, Frame> children;
+        long count;
+        long total;
+        long nested; // part of total spent in children
+        long start;
+
+        Frame(ASTNode node, Frame parent) {
+            this.node = node;
+            this.parent = parent;
+        }
+
+        Frame child(ASTNode node) {
+            if (children == null) {
+                children = new IdentityHashMap<ASTNode, Frame>();
+            }
+            Frame frame = children.get(node);
+            if (frame == null) {
+                frame = new Frame(node, this);
+                children.put(node, frame);
+            }
+            return frame;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor
+
+    public ProfilingRuntime(Runtime delegate) {
+        this.delegate = delegate;
+        delegate.setOuter(this);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Timing
+
+    private Frame enter(ASTNode node) {
+        Frame frame = current.child(node);
+        current = frame;
+        frame.start = System.nanoTime();
+        return frame;
+    }
+
+    private RuntimeMeta exit(Frame frame, RuntimeMeta resStatus) {
+        long elapsed = System.nanoTime() - frame.start;
+        frame.count++;
+        frame.total += elapsed;
+        current = frame.parent;
+        current.nested += elapsed;
+        return resStatus;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Decl
+
+    public RuntimeMeta runDecl(Decl decl) {
+        return exit(enter(decl), delegate.runDecl(decl));
+    }
+
+    public RuntimeMeta runVarDecl(VarDecl varDecl) {
+        return delegate.runVarDecl(varDecl);
+    }
+
+    public RuntimeMeta runIntVarDecl(IntVarDecl intVarDecl) {
+        return delegate.runIntVarDecl(intVarDecl);
+    }
+
+    public RuntimeMeta runFloatVarDecl(FloatVarDecl floatVarDecl) {
+        return delegate.runFloatVarDecl(floatVarDecl);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Expr
+
+    public RuntimeMeta runExpr(Expr expr) {
+        return delegate.runExpr(expr);
+    }
+
+    public RuntimeMeta runIntConstExpr(IntConstExpr intConstExpr) {
+        return delegate.runIntConstExpr(intConstExpr);
+    }
+
+    public RuntimeMeta runFloatConstExpr(FloatConstExpr floatConstExpr) {
+        return delegate.runFloatConstExpr(floatConstExpr);
+    }
+
+    public RuntimeMeta runIdentExpr(IdentExpr identExpr) {
+        return delegate.runIdentExpr(identExpr);
+    }
+
+    public RuntimeMeta runUnaryMinusExpr(UnaryMinusExpr unaryMinusExpr) {
+        return delegate.runUnaryMinusExpr(unaryMinusExpr);
+    }
+
+    public RuntimeMeta runReadIntExpr(ReadIntExpr readIntExpr) {
+        return delegate.runReadIntExpr(readIntExpr);
+    }
+
+    public RuntimeMeta runReadFloatExpr(ReadFloatExpr readFloatExpr) {
+        return delegate.runReadFloatExpr(readFloatExpr);
+    }
+
+    public RuntimeMeta runBinaryExpr(BinaryExpr binExpr) {
+        return delegate.runBinaryExpr(binExpr);
+    }
+
+    public RuntimeMeta runCondExpr(CondExpr condExpr) {
+        return exit(enter(condExpr), delegate.runCondExpr(condExpr));
+    }
+
+    public RuntimeMeta runCompExpr(CompExpr compExpr) {
+        return delegate.runCompExpr(compExpr);
+    }
+
+    public RuntimeMeta runLogicalExpr(LogicalExpr logicalExpr) {
+        return delegate.runLogicalExpr(logicalExpr);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Stmt
+
+    public RuntimeMeta runStmt(Stmt stmt) {
+        return stmt.run(this);
+    }
+
+    public RuntimeMeta runBlockStmt(BlockStmt blockStmt) {
+        return exit(enter(blockStmt), delegate.runBlockStmt(blockStmt));
+    }
+
+    public RuntimeMeta runIfStmt(IfStmt ifStmt) {
+        return exit(enter(ifStmt), delegate.runIfStmt(ifStmt));
+    }
+
+    public RuntimeMeta runWhileStmt(WhileStmt whileStmt) {
+        return exit(enter(whileStmt), delegate.runWhileStmt(whileStmt));
+    }
+
+    public RuntimeMeta runAssignStmt(AssignStmt assignStmt) {
+        return exit(enter(assignStmt), delegate.runAssignStmt(assignStmt));
+    }
+
+    public RuntimeMeta runPrintStmt(PrintStmt printStmt) {
+        return exit(enter(printStmt), delegate.runPrintStmt(printStmt));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Unit
+
+    public RuntimeMeta runUnit(Unit unit) {
+        return unit.run(this);
+    }
+
+    public RuntimeMeta runUnitList(UnitList unitList) {
+        return exit(enter(unitList), delegate.runUnitList(unitList));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Reports
+
+    // The nodes with the most self time, over all the paths they ran from.
+    public void report(PrintStream ps) {
+        IdentityHashMap<ASTNode, long[]> totals = new IdentityHashMap<ASTNode, long[]>();
+        List<Frame> frames = new ArrayList<Frame>();
+        collect(root, frames);
+        for (Frame frame : frames) {
+            long[] sums = totals.get(frame.node);
+            if (sums == null) {
+                sums = new long[3];
+                totals.put(frame.node, sums);
+            }
+            sums[0] += frame.total - frame.nested;
+            sums[1] += frame.total;
+            sums[2] += frame.count;
+        }
+        List<ASTNode> nodes = new ArrayList<ASTNode>(totals.keySet());
+        nodes.sort((a, b) -> Long.compare(totals.get(b)[0], totals.get(a)[0]));
+
+        ps.printf("profile: %d nodes, %.3f ms%n", nodes.size(), root.nested / 1e6);
+        ps.printf("%12s %12s %12s  %-10s %s%n", "self ms", "total ms", "count", "line:col", "node");
+        for (ASTNode node : nodes.subList(0, Math.min(HOT_LINES, nodes.size()))) {
+            long[] sums = totals.get(node);
+            ps.printf("%12.3f %12.3f %12d  %-10s %s%n", sums[0] / 1e6, sums[1] / 1e6, sums[2], node.loc, label(node));
+        }
+    }
+
+    // One line per path of nodes, "outer;...;inner self-microseconds", the
+    // collapsed stack format flame graph tools read.
+    public void writeStacks(Writer writer) throws IOException {
+        List<Frame> frames = new ArrayList<Frame>();
+        collect(root, frames);
+        for (Frame frame : frames) {
+            long self = (frame.total - frame.nested) / 1000;
+            if (self == 0) {
+                continue;
+            }
+            writer.write(path(frame) + " " + self + "\n");
+        }
+        writer.flush();
+    }
+
+    private static void collect(Frame frame, List<Frame> frames) {
+        if (frame.children == null) {
+            return;
+        }
+        for (Frame child : frame.children.values()) {
+            frames.add(child);
+            collect(child, frames);
+        }
+    }
+
+    private static String path(Frame frame) {
+        String name = frame.node.getClass().getSimpleName() + "@" + frame.node.loc;
+        return frame.parent.node == null ? name : path(frame.parent) + ";" + name;
+    }
+
+    // the first line of the node's source, as the tree prints it
+    private static String label(ASTNode node) {
+        if (node instanceof UnitList) {
+            return "(program)";
+        }
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(b);
+        if (node instanceof Unit) {
+            ((Unit) node).print(ps, "");
+        } else {
+            node.print(ps);
+        }
+        ps.flush();
+        String text = b.toString().trim();
+        int newline = text.indexOf('\n');
+        if (newline >= 0) {
+            text = text.substring(0, newline).trim();
+        }
+        if (text.length() > LABEL_WIDTH) {
+            text = text.substring(0, LABEL_WIDTH - 3) + "...";
+        }
+        return text;
+    }
+}
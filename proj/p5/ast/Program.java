@@ -3,6 +3,10 @@ import java.io.PrintStream;
 
 public class Program extends ASTNode {
     public final UnitList unitList;
+    public VarDecl[] locals; // assigned by SymbolResolver
+    public int maxDepth;
+    public VarDecl[] vars; // by VarDecl.index
+    public ValueMeta.ValueType[] exprTypes; // by Expr.index, assigned by TypeCheck
     public Program(UnitList ul, Location loc) {
         super(loc);
         unitList = ul;
@@ -13,7 +17,13 @@ public class Program extends ASTNode {
     }
 
     public AstErrorHandler.ErrorCode checkType(TypeCheck tc) {
-        return unitList.checkType(tc);
+        AstErrorHandler.ErrorCode code = unitList.checkType(tc);
+        exprTypes = tc.exprTypes();
+        return code;
+    }
+
+    public void resolve(SymbolResolver resolver) {
+        resolver.resolveProgram(this);
     }
 
     public RuntimeMeta run(Runtime runtime) {
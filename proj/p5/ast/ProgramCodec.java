@@ -0,0 +1,358 @@
+package ast;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Compact binary form of a checked Program, for caching it.
+ *
+ * Nodes are written pre-order, each as a one-byte tag and its fields, and
+ * whole numbers as zigzag varints, since most are small line numbers,
+ * columns and indices.
+ * Expressions keep the index TypeCheck gave them and Program.exprTypes is
+ * written along, so a decoded tree goes straight to SymbolResolver without
+ * being parsed or checked again.
+ */
+public final class ProgramCodec {
+    // Unit
+    private static final int DECL = 1;
+    private static final int BLOCK = 2;
+    private static final int IF = 3;
+    private static final int IF_ELSE = 4;
+    private static final int WHILE = 5;
+    private static final int ASSIGN = 6;
+    private static final int PRINT = 7;
+
+    // VarDecl
+    private static final int INT_VAR = 1;
+    private static final int FLOAT_VAR = 2;
+
+    // Expr
+    private static final int INT_CONST = 1;
+    private static final int FLOAT_CONST = 2;
+    private static final int IDENT = 3;
+    private static final int BINARY = 4;
+    private static final int UNARY_MINUS = 5;
+    private static final int READ_INT = 6;
+    private static final int READ_FLOAT = 7;
+
+    // CondExpr
+    private static final int COMP = 1;
+    private static final int LOGICAL = 2;
+    private static final int NOT = 3;
+
+    private static final ValueMeta.ValueType[] TYPES = ValueMeta.ValueType.values();
+
+    private ProgramCodec() {}
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public static byte[] encode(Program program) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeLoc(out, program.loc);
+            writeUnitList(out, program.unitList);
+            writeVar(out, program.exprTypes.length);
+            for (ValueMeta.ValueType type : program.exprTypes) {
+                out.writeByte(type.ordinal());
+            }
+            out.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    // throws a RuntimeException for data that encode did not write
+    public static Program decode(byte[] data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            Location loc = readLoc(in);
+            Program program = new Program(readUnitList(in), loc);
+            program.exprTypes = new ValueMeta.ValueType[readLength(in)];
+            for (int i = 0; i < program.exprTypes.length; i++) {
+                program.exprTypes[i] = TYPES[in.readUnsignedByte()];
+            }
+            return program;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Encode
+
+    private static void writeVar(DataOutputStream out, long value) throws IOException {
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7fL) != 0) {
+            out.writeByte((int) (bits & 0x7f) | 0x80);
+            bits >>>= 7;
+        }
+        out.writeByte((int) bits);
+    }
+
+    private static void writeLoc(DataOutputStream out, Location loc) throws IOException {
+        writeVar(out, loc.line);
+        writeVar(out, loc.column);
+    }
+
+    private static void writeUnitList(DataOutputStream out, UnitList ul) throws IOException {
+        writeLoc(out, ul.loc);
+        writeVar(out, ul.units.length);
+        for (Unit unit : ul.units) {
+            writeUnit(out, unit);
+        }
+    }
+
+    private static void writeUnit(DataOutputStream out, Unit unit) throws IOException {
+        if (unit instanceof Decl) {
+            Decl decl = (Decl) unit;
+            out.writeByte(DECL);
+            writeLoc(out, decl.loc);
+            out.writeByte(decl.varDecl instanceof FloatVarDecl ? FLOAT_VAR : INT_VAR);
+            out.writeUTF(decl.varDecl.ident);
+            writeLoc(out, decl.varDecl.loc);
+            out.writeBoolean(decl.expr != null);
+            if (decl.expr != null) {
+                writeExpr(out, decl.expr);
+            }
+            return;
+        }
+        if (unit instanceof BlockStmt) {
+            out.writeByte(BLOCK);
+            writeLoc(out, unit.loc);
+            writeUnitList(out, ((BlockStmt) unit).block);
+            return;
+        }
+        if (unit instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) unit;
+            out.writeByte(ifStmt.elsestmt == null ? IF : IF_ELSE);
+            writeLoc(out, ifStmt.loc);
+            writeCondExpr(out, ifStmt.expr);
+            writeUnit(out, ifStmt.thenstmt);
+            if (ifStmt.elsestmt != null) {
+                writeUnit(out, ifStmt.elsestmt);
+            }
+            return;
+        }
+        if (unit instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) unit;
+            out.writeByte(WHILE);
+            writeLoc(out, whileStmt.loc);
+            writeCondExpr(out, whileStmt.expr);
+            writeUnit(out, whileStmt.body);
+            return;
+        }
+        if (unit instanceof AssignStmt) {
+            AssignStmt assignStmt = (AssignStmt) unit;
+            out.writeByte(ASSIGN);
+            writeLoc(out, assignStmt.loc);
+            out.writeUTF(assignStmt.ident);
+            writeExpr(out, assignStmt.expr);
+            return;
+        }
+        if (unit instanceof PrintStmt) {
+            out.writeByte(PRINT);
+            writeLoc(out, unit.loc);
+            writeExpr(out, ((PrintStmt) unit).expr);
+            return;
+        }
+
+        throw new RuntimeException("Unknown Unit type");
+    }
+
+    private static void writeExpr(DataOutputStream out, Expr expr) throws IOException {
+        if (expr instanceof IntConstExpr) {
+            writeHead(out, INT_CONST, expr);
+            writeVar(out, ((IntConstExpr) expr).ival);
+        } else if (expr instanceof FloatConstExpr) {
+            writeHead(out, FLOAT_CONST, expr);
+            out.writeDouble(((FloatConstExpr) expr).fval);
+        } else if (expr instanceof IdentExpr) {
+            writeHead(out, IDENT, expr);
+            out.writeUTF(((IdentExpr) expr).ident);
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            writeHead(out, BINARY, expr);
+            out.writeByte(binExpr.op);
+            writeExpr(out, binExpr.expr1);
+            writeExpr(out, binExpr.expr2);
+        } else if (expr instanceof UnaryMinusExpr) {
+            writeHead(out, UNARY_MINUS, expr);
+            writeExpr(out, ((UnaryMinusExpr) expr).expr);
+        } else if (expr instanceof ReadIntExpr) {
+            writeHead(out, READ_INT, expr);
+        } else if (expr instanceof ReadFloatExpr) {
+            writeHead(out, READ_FLOAT, expr);
+        } else {
+            throw new RuntimeException("Expression is not valid");
+        }
+    }
+
+    private static void writeHead(DataOutputStream out, int tag, Expr expr) throws IOException {
+        out.writeByte(tag);
+        writeLoc(out, expr.loc);
+        writeVar(out, expr.index);
+    }
+
+    private static void writeCondExpr(DataOutputStream out, CondExpr condExpr) throws IOException {
+        if (condExpr instanceof CompExpr) {
+            CompExpr compExpr = (CompExpr) condExpr;
+            out.writeByte(COMP);
+            writeLoc(out, compExpr.loc);
+            out.writeByte(compExpr.op);
+            writeExpr(out, compExpr.expr1);
+            writeExpr(out, compExpr.expr2);
+        } else if (condExpr instanceof LogicalExpr) {
+            LogicalExpr logicalExpr = (LogicalExpr) condExpr;
+            if (logicalExpr.op == LogicalExpr.NOT) {
+                out.writeByte(NOT);
+                writeLoc(out, logicalExpr.loc);
+                writeCondExpr(out, logicalExpr.expr1);
+            } else {
+                out.writeByte(LOGICAL);
+                writeLoc(out, logicalExpr.loc);
+                out.writeByte(logicalExpr.op);
+                writeCondExpr(out, logicalExpr.expr1);
+                writeCondExpr(out, logicalExpr.expr2);
+            }
+        } else {
+            throw new RuntimeException("CondExpr is not valid");
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Decode
+
+    private static long readVar(DataInputStream in) throws IOException {
+        long bits = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            bits |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return (bits >>> 1) ^ -(bits & 1);
+            }
+        }
+    }
+
+    // the number of items that follow; each takes at least a byte, so a
+    // damaged count is caught before its array is allocated
+    private static int readLength(DataInputStream in) throws IOException {
+        long length = readVar(in);
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid length " + length);
+        }
+        return (int) length;
+    }
+
+    private static Location readLoc(DataInputStream in) throws IOException {
+        return new Location((int) readVar(in), (int) readVar(in));
+    }
+
+    private static UnitList readUnitList(DataInputStream in) throws IOException {
+        Location loc = readLoc(in);
+        Unit[] units = new Unit[readLength(in)];
+        for (int i = 0; i < units.length; i++) {
+            units[i] = readUnit(in);
+        }
+        return new UnitList(units, loc);
+    }
+
+    private static Unit readUnit(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        Location loc = readLoc(in);
+        switch (tag) {
+            case DECL: {
+                int kind = in.readUnsignedByte();
+                String ident = in.readUTF();
+                Location varLoc = readLoc(in);
+                VarDecl varDecl = kind == FLOAT_VAR ? new FloatVarDecl(ident, varLoc) : new IntVarDecl(ident, varLoc);
+                return in.readBoolean() ? new Decl(varDecl, readExpr(in), loc) : new Decl(varDecl, loc);
+            }
+            case BLOCK:
+                return new BlockStmt(readUnitList(in), loc);
+            case IF: {
+                CondExpr cond = readCondExpr(in);
+                return new IfStmt(cond, (Stmt) readUnit(in), loc);
+            }
+            case IF_ELSE: {
+                CondExpr cond = readCondExpr(in);
+                Stmt thenstmt = (Stmt) readUnit(in);
+                return new IfStmt(cond, thenstmt, (Stmt) readUnit(in), loc);
+            }
+            case WHILE: {
+                CondExpr cond = readCondExpr(in);
+                return new WhileStmt(cond, (Stmt) readUnit(in), loc);
+            }
+            case ASSIGN: {
+                String ident = in.readUTF();
+                return new AssignStmt(ident, readExpr(in), loc);
+            }
+            case PRINT:
+                return new PrintStmt(readExpr(in), loc);
+        }
+        throw new RuntimeException("Unknown Unit type");
+    }
+
+    private static Expr readExpr(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        Location loc = readLoc(in);
+        int index = (int) readVar(in);
+        Expr expr;
+        switch (tag) {
+            case INT_CONST:
+                expr = new IntConstExpr(readVar(in), loc);
+                break;
+            case FLOAT_CONST:
+                expr = new FloatConstExpr(in.readDouble(), loc);
+                break;
+            case IDENT:
+                expr = new IdentExpr(in.readUTF(), loc);
+                break;
+            case BINARY: {
+                int op = in.readUnsignedByte();
+                Expr e1 = readExpr(in);
+                expr = new BinaryExpr(e1, op, readExpr(in), loc);
+                break;
+            }
+            case UNARY_MINUS:
+                expr = new UnaryMinusExpr(readExpr(in), loc);
+                break;
+            case READ_INT:
+                expr = new ReadIntExpr(loc);
+                break;
+            case READ_FLOAT:
+                expr = new ReadFloatExpr(loc);
+                break;
+            default:
+                throw new RuntimeException("Expression is not valid");
+        }
+        expr.index = index;
+        return expr;
+    }
+
+    private static CondExpr readCondExpr(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        Location loc = readLoc(in);
+        switch (tag) {
+            case COMP: {
+                int op = in.readUnsignedByte();
+                Expr e1 = readExpr(in);
+                return new CompExpr(e1, op, readExpr(in), loc);
+            }
+            case LOGICAL: {
+                int op = in.readUnsignedByte();
+                CondExpr e1 = readCondExpr(in);
+                return new LogicalExpr(e1, op, readCondExpr(in), loc);
+            }
+            case NOT:
+                return new LogicalExpr(readCondExpr(in), LogicalExpr.NOT, loc);
+        }
+        throw new RuntimeException("CondExpr is not valid");
+    }
+}
@@ -1,73 +1,66 @@
 package ast;
 import java.util.HashMap;
-import java.util.Map;
-import java.util.Queue;
-import java.util.Stack;
 
 public final class RealRuntime implements Runtime {
     private HashMap<Expr, RuntimeMeta> exprCache = new HashMap<Expr, RuntimeMeta>();
-    private SymbolTableHelper stHelper;
-    private Queue<ValueMeta> injectedValues;
+    private FrameHelper fHelper;
+    private ValueMeta.ValueType[] exprTypes;
+    private InputReader input;
+    private OutputSink out;
+    private RuntimeMeta failure;
+    private Runtime outer; // runs nested units if set, see Runtime.setOuter
 
     ////////////////////////////////////////////////////////////////////////////
     // Constructor
 
-    public RealRuntime(SymbolTableHelper stHelper, Queue<ValueMeta> injectedValues) {
-        this.stHelper = stHelper;
-        this.injectedValues = injectedValues;
+    public RealRuntime(Program program, InputReader input, OutputSink out) {
+        this.fHelper = new FrameHelper(program);
+        this.exprTypes = program.exprTypes;
+        this.input = input;
+        this.out = out;
+    }
 
-        stHelper.newScope(); // global scope
+    public void setOuter(Runtime outer) {
+        this.outer = outer;
     }
 
     ////////////////////////////////////////////////////////////////////////////
     // Decl
 
     public RuntimeMeta runDecl(Decl decl) {
-        if (decl.expr == null) {
-            runVarDecl(decl.varDecl);
-            return RuntimeMeta.createSuccess(null);
-        }
-
         runVarDecl(decl.varDecl);
-        RuntimeMeta refer = runExpr(decl.expr);
-        if (refer == null) {
-            throw new RuntimeException("Expression is not valid");
-        }
-        if (!refer.isSuccessful()) {
-            return refer;
+        if (decl.expr == null) {
+            return RuntimeMeta.SUCCESS;
         }
-
-        ValueMeta value = refer.getValue().copyWithIdent(decl.varDecl.ident);
-        stHelper.envalue(decl.varDecl.ident, value);
-        return RuntimeMeta.createSuccess(null);
+        return store(decl.varDecl, decl.expr);
     }
 
     public RuntimeMeta runVarDecl(VarDecl varDecl) {
         if (varDecl instanceof IntVarDecl) {
             runIntVarDecl((IntVarDecl) varDecl);
-            return RuntimeMeta.createSuccess(null);
+            return RuntimeMeta.SUCCESS;
         }
         if (varDecl instanceof FloatVarDecl) {
             runFloatVarDecl((FloatVarDecl) varDecl);
-            return RuntimeMeta.createSuccess(null);
+            return RuntimeMeta.SUCCESS;
         }
         throw new RuntimeException("Unknown VarDecl type");
     }
 
     public RuntimeMeta runIntVarDecl(IntVarDecl varDecl) {
-        if (stHelper.isLocalPlaned(varDecl.ident)) {
+        if (fHelper.isLocalPlaned(varDecl)) {
             throw new RuntimeException("Variable " + varDecl.ident + " already declared");
         }
-        stHelper.planIdent(varDecl.ident, ValueMeta.ValueType.INT);
-        return RuntimeMeta.createSuccess(null);
+        fHelper.planIdent(varDecl, ValueMeta.ValueType.INT);
+        return RuntimeMeta.SUCCESS;
     }
 
     public RuntimeMeta runFloatVarDecl(FloatVarDecl varDecl) {
-        if (stHelper.isLocalPlaned(varDecl.ident)) {
+        if (fHelper.isLocalPlaned(varDecl)) {
             throw new RuntimeException("Variable " + varDecl.ident + " already declared");
         }
-        stHelper.planIdent(varDecl.ident, ValueMeta.ValueType.FLOAT);
-        return RuntimeMeta.createSuccess(null);
+        fHelper.planIdent(varDecl, ValueMeta.ValueType.FLOAT);
+        return RuntimeMeta.SUCCESS;
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -113,65 +106,41 @@ public final class RealRuntime implements Runtime {
     }
 
     public RuntimeMeta runIdentExpr(IdentExpr identExpr) {
-        ValueMeta val = stHelper.findValue(identExpr.ident);
-        if (val == null) {
-            // return RuntimeMeta.createError(AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR);
-            throw new RuntimeException("Variable " + identExpr.ident + " not declared");
-        }
-        return RuntimeMeta.createSuccess(val);
+        // slots are updated in place, so hand out a snapshot
+        return RuntimeMeta.createSuccess(identValue(identExpr).copy());
     }
 
     public RuntimeMeta runUnaryMinusExpr(UnaryMinusExpr unaryMinusExpr) {
-        RuntimeMeta resStatus = runExpr(unaryMinusExpr.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("UnaryMinusExpr is not valid");
-        }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
-        }
-
-        if (resStatus.getValue().getType() == ValueMeta.ValueType.INT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createInt(null, -resStatus.getValue().getIntValue()));
-        }
-        if (resStatus.getValue().getType() == ValueMeta.ValueType.FLOAT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createFloat(null, -resStatus.getValue().getFloatValue()));
-        }
-        throw new RuntimeException("UnaryMinusExpr is not valid");
+        return boxExpr(unaryMinusExpr);
     }
 
     public RuntimeMeta runReadIntExpr(ReadIntExpr readIntExpr) {
-        if (exprCache.containsKey((Expr)readIntExpr)) {
-            return exprCache.get((Expr)readIntExpr);
+        RuntimeMeta cached = exprCache.get((Expr)readIntExpr);
+        if (cached != null) {
+            return cached;
         }
 
-        if (injectedValues == null || injectedValues.isEmpty()) {
+        if (input == null || input.peek() != ValueMeta.ValueType.INT) {
             return RuntimeMeta.createError(AstErrorHandler.ErrorCode.FAILED_STDIN_READ);
         }
 
-        if (injectedValues.peek().getType() != ValueMeta.ValueType.INT) {
-            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.FAILED_STDIN_READ);
-        }
-
-        ValueMeta value = injectedValues.poll();
+        ValueMeta value = ValueMeta.createInt(null, input.nextInt());
         RuntimeMeta resStatus = RuntimeMeta.createSuccess(value);
         exprCache.put((Expr)readIntExpr, resStatus);
         return resStatus;
     }
 
     public RuntimeMeta runReadFloatExpr(ReadFloatExpr readFloatExpr) {
-        if (exprCache.containsKey((Expr)readFloatExpr)) {
-            return exprCache.get((Expr)readFloatExpr);
-        }
-
-        if (injectedValues == null || injectedValues.isEmpty()) {
-            return null;
+        RuntimeMeta cached = exprCache.get((Expr)readFloatExpr);
+        if (cached != null) {
+            return cached;
         }
 
-        if (injectedValues.peek().getType() != ValueMeta.ValueType.FLOAT) {
+        if (input == null || input.peek() != ValueMeta.ValueType.FLOAT) {
             return null;
         }
 
-        ValueMeta value = injectedValues.poll();
+        ValueMeta value = ValueMeta.createFloat(null, input.nextFloat());
         RuntimeMeta resStatus = RuntimeMeta.createSuccess(value);
         exprCache.put((Expr)readFloatExpr, resStatus);
         return resStatus;
@@ -180,89 +149,7 @@ public final class RealRuntime implements Runtime {
     ////////////////////////////////////////////////////////////////////////////
 
     public RuntimeMeta runBinaryExpr(BinaryExpr binExpr) {
-        RuntimeMeta leftStatus = runExpr(binExpr.expr1);
-        if (leftStatus == null) {
-            throw new RuntimeException("BinaryExpr is not valid");
-        }
-        if (!leftStatus.isSuccessful()) {
-            return leftStatus;
-        }
-        RuntimeMeta rightStatus = runExpr(binExpr.expr2);
-        if (rightStatus == null) {
-            throw new RuntimeException("BinaryExpr is not valid");
-        }
-        if (!rightStatus.isSuccessful()) {
-            return rightStatus;
-        }
-
-        ValueMeta left = leftStatus.getValue();
-        ValueMeta right = rightStatus.getValue();
-        RuntimeMeta resStatus = null;
-        switch (binExpr.op) {
-            case BinaryExpr.PLUS:
-                resStatus = runPlus(left, right);
-                break;
-            case BinaryExpr.MINUS:
-                resStatus = runMinus(left, right);
-                break;
-            case BinaryExpr.TIMES:
-                resStatus = runTimes(left, right);
-                break;
-            case BinaryExpr.DIV:
-                resStatus = runDiv(left, right);
-                break;
-        }
-
-        if (resStatus == null) {
-            throw new RuntimeException("BinaryExpr is not valid");
-        }
-        return resStatus;
-    }
-
-    private RuntimeMeta runPlus(ValueMeta left, ValueMeta right) {
-        if (left.getType() == ValueMeta.ValueType.INT && right.getType() == ValueMeta.ValueType.INT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createInt(null, left.getIntValue() + right.getIntValue()));
-        }
-        if (left.getType() == ValueMeta.ValueType.FLOAT && right.getType() == ValueMeta.ValueType.FLOAT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createFloat(null, left.getFloatValue() + right.getFloatValue()));
-        }
-        throw new RuntimeException("Plus is not valid");
-    }
-
-    private RuntimeMeta runMinus(ValueMeta left, ValueMeta right) {
-        if (left.getType() == ValueMeta.ValueType.INT && right.getType() == ValueMeta.ValueType.INT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createInt(null, left.getIntValue() - right.getIntValue()));
-        }
-        if (left.getType() == ValueMeta.ValueType.FLOAT && right.getType() == ValueMeta.ValueType.FLOAT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createFloat(null, left.getFloatValue() - right.getFloatValue()));
-        }
-        throw new RuntimeException("Minus is not valid");
-    }
-
-    private RuntimeMeta runTimes(ValueMeta left, ValueMeta right) {
-        if (left.getType() == ValueMeta.ValueType.INT && right.getType() == ValueMeta.ValueType.INT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createInt(null, left.getIntValue() * right.getIntValue()));
-        }
-        if (left.getType() == ValueMeta.ValueType.FLOAT && right.getType() == ValueMeta.ValueType.FLOAT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createFloat(null, left.getFloatValue() * right.getFloatValue()));
-        }
-        throw new RuntimeException("Times is not valid");
-    }
-
-    private RuntimeMeta runDiv(ValueMeta left, ValueMeta right) {
-        if (left.getType() == ValueMeta.ValueType.INT && right.getType() == ValueMeta.ValueType.INT) {
-            if (right.getIntValue() == 0) {
-                return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
-            }
-            return RuntimeMeta.createSuccess(ValueMeta.createInt(null, left.getIntValue() / right.getIntValue()));
-        }
-        if (left.getType() == ValueMeta.ValueType.FLOAT && right.getType() == ValueMeta.ValueType.FLOAT) {
-            if (right.getFloatValue() == 0.0) {
-                return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
-            }
-            return RuntimeMeta.createSuccess(ValueMeta.createFloat(null, left.getFloatValue() / right.getFloatValue()));
-        }
-        throw new RuntimeException("Div is not valid");
+        return boxExpr(binExpr);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -279,171 +166,232 @@ public final class RealRuntime implements Runtime {
     }
 
     public RuntimeMeta runCompExpr(CompExpr compExpr) {
-        RuntimeMeta left = runExpr(compExpr.expr1);
-        if (left == null) {
-            throw new RuntimeException("CompExpr is not valid");
-        }
-        if (!left.isSuccessful()) {
-            return left;
-        }
-        RuntimeMeta right = runExpr(compExpr.expr2);
-        if (right == null) {
-            throw new RuntimeException("CompExpr is not valid");
-        }
-        if (!right.isSuccessful()) {
-            return right;
-        }
-
-        if (compExpr.op == CompExpr.EQ) {
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, ValueMeta.equals(left.getValue(), right.getValue())));
-        }
-        if (compExpr.op == CompExpr.NE) {
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, ValueMeta.notEquals(left.getValue(), right.getValue())));
-        }
-        if (compExpr.op == CompExpr.LT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, ValueMeta.lessThan(left.getValue(), right.getValue())));
-        }
-        if (compExpr.op == CompExpr.GT) {
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, ValueMeta.greaterThan(left.getValue(), right.getValue())));
-        }
-        if (compExpr.op == CompExpr.LE) {
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, ValueMeta.lessThanOrEqual(left.getValue(), right.getValue())));
-        }
-        if (compExpr.op == CompExpr.GE) {
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, ValueMeta.greaterThanOrEqual(left.getValue(), right.getValue())));
-        }
-
-        throw new RuntimeException("CompExpr is not valid");
+        return boxCondExpr(compExpr);
     }
 
     public RuntimeMeta runLogicalExpr(LogicalExpr logicalExpr) {
-        if (logicalExpr.op == LogicalExpr.NOT) {
-            RuntimeMeta resStatus = runCondExpr(logicalExpr.expr1);
-            if (resStatus == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!resStatus.isSuccessful()) {
-                return resStatus;
-            }
+        return boxCondExpr(logicalExpr);
+    }
 
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, !resStatus.getValue().getBoolValue().booleanValue()));
-        }
+    ////////////////////////////////////////////////////////////////////////////
+    // Primitive evaluation
+    //
+    // Expressions are evaluated to unboxed long/double/boolean results, so
+    // arithmetic and comparisons allocate nothing. A failing subexpression
+    // leaves its RuntimeMeta in failure and the returned value is meaningless;
+    // callers check failure before using a result. Statements answer with the
+    // shared RuntimeMeta.SUCCESS and errors are preallocated, so running a
+    // program only allocates for declarations, blocks and the boxed run*Expr
+    // entry points.
+
+    private RuntimeMeta boxExpr(Expr expr) {
+        if (isFloat(expr)) {
+            double value = evalFloat(expr);
+            return failure != null ? takeFailure() : RuntimeMeta.createSuccess(ValueMeta.createFloat(null, value));
+        }
+        long value = evalInt(expr);
+        return failure != null ? takeFailure() : RuntimeMeta.createSuccess(ValueMeta.createInt(null, value));
+    }
 
-        /** 
-         * Short-circuit evaluation
-         * 
-         * If the first expression is false, the second expression is not evaluated.
-         */
-        if (logicalExpr.op == LogicalExpr.AND) {
-            RuntimeMeta left = runCondExpr(logicalExpr.expr1);
-            if (left == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!left.isSuccessful()) {
-                return left;
-            }
-            if (!left.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, false));
-            }
+    private RuntimeMeta boxCondExpr(CondExpr condExpr) {
+        boolean value = evalCond(condExpr);
+        return failure != null ? takeFailure() : RuntimeMeta.createSuccess(ValueMeta.createBool(null, value));
+    }
 
-            RuntimeMeta right = runCondExpr(logicalExpr.expr2);
-            if (right == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!right.isSuccessful()) {
-                return right;
-            }
+    private RuntimeMeta takeFailure() {
+        RuntimeMeta resStatus = failure;
+        failure = null;
+        return resStatus;
+    }
 
-            if (!right.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, false));
-            }
+    // The static type of expr, as TypeCheck recorded it.
+    private boolean isFloat(Expr expr) {
+        return exprTypes[expr.index] == ValueMeta.ValueType.FLOAT;
+    }
 
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, true));
+    private ValueMeta identValue(IdentExpr identExpr) {
+        ValueMeta val = fHelper.findValue(identExpr);
+        if (val == null) {
+            // return RuntimeMeta.createError(AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR);
+            throw new RuntimeException("Variable " + identExpr.ident + " not declared");
+        }
+        return val;
+    }
 
-            /**
-            RuntimeMeta left = runCondExpr(logicalExpr.expr1);
-            if (left == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!left.isSuccessful()) {
-                return left;
-            }
-            RuntimeMeta right = runCondExpr(logicalExpr.expr2);
-            if (right == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!right.isSuccessful()) {
-                return right;
+    private long evalInt(Expr expr) {
+        if (expr instanceof IntConstExpr) {
+            return ((IntConstExpr) expr).ival;
+        }
+        if (expr instanceof IdentExpr) {
+            return identValue((IdentExpr) expr).getIntValue();
+        }
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            long left = evalInt(binExpr.expr1);
+            if (failure != null) {
+                return 0;
+            }
+            long right = evalInt(binExpr.expr2);
+            if (failure != null) {
+                return 0;
+            }
+            switch (binExpr.op) {
+                case BinaryExpr.PLUS:
+                    return left + right;
+                case BinaryExpr.MINUS:
+                    return left - right;
+                case BinaryExpr.TIMES:
+                    return left * right;
+                case BinaryExpr.DIV:
+                    if (binExpr.nonZeroDivisor) {
+                        return divideNonZero(left, right);
+                    }
+                    if (right == 0) {
+                        failure = RuntimeMeta.createError(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+                        return 0;
+                    }
+                    return left / right;
             }
-
-            if (!left.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, false));
+            throw new RuntimeException("BinaryExpr is not valid");
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            return -evalInt(((UnaryMinusExpr) expr).expr);
+        }
+        if (expr instanceof ReadIntExpr) {
+            RuntimeMeta resStatus = runReadIntExpr((ReadIntExpr) expr);
+            if (!resStatus.isSuccessful()) {
+                failure = resStatus;
+                return 0;
             }
+            return resStatus.getValue().getIntValue();
+        }
 
-            if (!right.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, false));
-            }
+        throw new RuntimeException("Expression is not valid");
+    }
 
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, true));
-            */
+    // The sign domain does not model overflow, so a proven divisor is divided
+    // by without a test and the JVM's own zero check is left as the fallback.
+    private long divideNonZero(long left, long right) {
+        try {
+            return left / right;
+        } catch (ArithmeticException ex) {
+            failure = RuntimeMeta.createError(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+            return 0;
         }
+    }
 
-        if (logicalExpr.op == LogicalExpr.OR) {
-            RuntimeMeta left = runCondExpr(logicalExpr.expr1);
-            if (left == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!left.isSuccessful()) {
-                return left;
+    private double evalFloat(Expr expr) {
+        if (expr instanceof FloatConstExpr) {
+            return ((FloatConstExpr) expr).fval;
+        }
+        if (expr instanceof IdentExpr) {
+            return identValue((IdentExpr) expr).getFloatValue();
+        }
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            double left = evalFloat(binExpr.expr1);
+            if (failure != null) {
+                return 0.0;
+            }
+            double right = evalFloat(binExpr.expr2);
+            if (failure != null) {
+                return 0.0;
+            }
+            switch (binExpr.op) {
+                case BinaryExpr.PLUS:
+                    return left + right;
+                case BinaryExpr.MINUS:
+                    return left - right;
+                case BinaryExpr.TIMES:
+                    return left * right;
+                case BinaryExpr.DIV:
+                    if (right == 0.0) {
+                        failure = RuntimeMeta.createError(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+                        return 0.0;
+                    }
+                    return left / right;
             }
-
-            if (left.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, true));
+            throw new RuntimeException("BinaryExpr is not valid");
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            return -evalFloat(((UnaryMinusExpr) expr).expr);
+        }
+        if (expr instanceof ReadFloatExpr) {
+            RuntimeMeta resStatus = runReadFloatExpr((ReadFloatExpr) expr);
+            if (resStatus == null) {
+                throw new RuntimeException("Expression is not valid");
             }
+            return resStatus.getValue().getFloatValue();
+        }
 
-            RuntimeMeta right = runCondExpr(logicalExpr.expr2);
-            if (right == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!right.isSuccessful()) {
-                return right;
-            }
+        throw new RuntimeException("Expression is not valid");
+    }
 
-            if (right.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, true));
+    private boolean evalCond(CondExpr condExpr) {
+        if (condExpr instanceof CompExpr) {
+            CompExpr compExpr = (CompExpr) condExpr;
+            if (isFloat(compExpr.expr1)) {
+                double left = evalFloat(compExpr.expr1);
+                if (failure != null) {
+                    return false;
+                }
+                double right = evalFloat(compExpr.expr2);
+                if (failure != null) {
+                    return false;
+                }
+                switch (compExpr.op) {
+                    case CompExpr.EQ: return left == right;
+                    case CompExpr.NE: return left != right;
+                    case CompExpr.LT: return left < right;
+                    case CompExpr.GT: return left > right;
+                    case CompExpr.LE: return left <= right;
+                    case CompExpr.GE: return left >= right;
+                }
+                throw new RuntimeException("CompExpr is not valid");
+            }
+            long left = evalInt(compExpr.expr1);
+            if (failure != null) {
+                return false;
+            }
+            long right = evalInt(compExpr.expr2);
+            if (failure != null) {
+                return false;
+            }
+            switch (compExpr.op) {
+                case CompExpr.EQ: return left == right;
+                case CompExpr.NE: return left != right;
+                case CompExpr.LT: return left < right;
+                case CompExpr.GT: return left > right;
+                case CompExpr.LE: return left <= right;
+                case CompExpr.GE: return left >= right;
             }
+            throw new RuntimeException("CompExpr is not valid");
+        }
 
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, false));
-
-            /**
-            RuntimeMeta left = runCondExpr(logicalExpr.expr1);
-            if (left == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
-            }
-            if (!left.isSuccessful()) {
-                return left;
-            }
-            RuntimeMeta right = runCondExpr(logicalExpr.expr2);
-            if (right == null) {
-                throw new RuntimeException("LogicalExpr is not valid");
+        if (condExpr instanceof LogicalExpr) {
+            LogicalExpr logicalExpr = (LogicalExpr) condExpr;
+            boolean left = evalCond(logicalExpr.expr1);
+            if (failure != null) {
+                return false;
             }
-            if (!right.isSuccessful()) {
-                return right;
+            if (logicalExpr.op == LogicalExpr.NOT) {
+                return !left;
             }
-
-            if (left.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, true));
+            /**
+             * Short-circuit evaluation
+             *
+             * The second expression only runs if the first did not decide.
+             */
+            if (logicalExpr.op == LogicalExpr.AND) {
+                return left && evalCond(logicalExpr.expr2);
             }
-
-            if (right.getValue().getBoolValue().booleanValue()) {
-                return RuntimeMeta.createSuccess(ValueMeta.createBool(null, true));
+            if (logicalExpr.op == LogicalExpr.OR) {
+                return left || evalCond(logicalExpr.expr2);
             }
-
-            return RuntimeMeta.createSuccess(ValueMeta.createBool(null, false));
-            */
+            throw new RuntimeException("LogicalExpr is not valid");
         }
 
-        throw new RuntimeException("LogicalExpr is not valid");
+        throw new RuntimeException("CondExpr is not valid");
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -470,9 +418,9 @@ public final class RealRuntime implements Runtime {
     }
 
     public RuntimeMeta runBlockStmt(BlockStmt blockStmt) {
-        stHelper.newScope();
+        fHelper.newScope(blockStmt.locals);
         RuntimeMeta resStatus = runUnitList(blockStmt.block);
-        boolean exitOk = stHelper.exitScope();
+        boolean exitOk = fHelper.exitScope();
         if (!exitOk) {
             throw new RuntimeException("BlockStmt is not valid");
         }
@@ -480,42 +428,31 @@ public final class RealRuntime implements Runtime {
     }
 
     public RuntimeMeta runIfStmt(IfStmt ifStmt) {
-        RuntimeMeta resStatus = runCondExpr(ifStmt.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("IfStmt is not valid");
-        }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
+        boolean cond = evalCond(ifStmt.expr);
+        if (failure != null) {
+            return takeFailure();
         }
 
-        if (resStatus.getValue().getBoolValue().booleanValue()) {
-            return runStmt(ifStmt.thenstmt);
+        if (cond) {
+            return nested(ifStmt.thenstmt);
         }
-        if (ifStmt.elsestmt != null && !resStatus.getValue().getBoolValue().booleanValue()) {
-            return runStmt(ifStmt.elsestmt);
+        if (ifStmt.elsestmt != null) {
+            return nested(ifStmt.elsestmt);
         }
-        return RuntimeMeta.createSuccess(null);
+        return RuntimeMeta.SUCCESS;
     }
 
     public RuntimeMeta runWhileStmt(WhileStmt whileStmt) {
-        RuntimeMeta resStatus = runCondExpr(whileStmt.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("WhileStmt is not valid");
-        }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
-        }
-
-        while (resStatus.getValue().getBoolValue().booleanValue()) {
-            resStatus = runStmt(whileStmt.body);
-            if (resStatus == null) {
-                throw new RuntimeException("WhileStmt is not valid");
+        while (true) {
+            boolean cond = evalCond(whileStmt.expr);
+            if (failure != null) {
+                return takeFailure();
             }
-            if (!resStatus.isSuccessful()) {
-                return resStatus;
+            if (!cond) {
+                return RuntimeMeta.SUCCESS;
             }
 
-            resStatus = runCondExpr(whileStmt.expr);
+            RuntimeMeta resStatus = nested(whileStmt.body);
             if (resStatus == null) {
                 throw new RuntimeException("WhileStmt is not valid");
             }
@@ -523,35 +460,51 @@ public final class RealRuntime implements Runtime {
                 return resStatus;
             }
         }
-
-        return RuntimeMeta.createSuccess(null);
     }
 
     public RuntimeMeta runAssignStmt(AssignStmt assignStmt) {
-        RuntimeMeta resStatus = runExpr(assignStmt.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("AssignStmt is not valid");
+        return store(assignStmt.decl, assignStmt.expr);
+    }
+
+    public RuntimeMeta runPrintStmt(PrintStmt printStmt) {
+        if (isFloat(printStmt.expr)) {
+            double value = evalFloat(printStmt.expr);
+            if (failure != null) {
+                return takeFailure();
+            }
+            out.printFloat(value);
+            return RuntimeMeta.SUCCESS;
         }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
+
+        long value = evalInt(printStmt.expr);
+        if (failure != null) {
+            return takeFailure();
         }
+        out.printInt(value);
+        return RuntimeMeta.SUCCESS;
+    }
 
-        ValueMeta value = resStatus.getValue().copyWithIdent(assignStmt.ident);
-        stHelper.envalue(assignStmt.ident, value);
-        return RuntimeMeta.createSuccess(null);
+    // direct calls unless decorated, so they inline
+    private RuntimeMeta nested(Stmt stmt) {
+        return outer == null ? runStmt(stmt) : outer.runStmt(stmt);
     }
 
-    public RuntimeMeta runPrintStmt(PrintStmt printStmt) {
-        RuntimeMeta resStatus = runExpr(printStmt.expr);
-        if (resStatus == null) {
-            throw new RuntimeException("PrintStmt is not valid");
-        }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
+    private RuntimeMeta store(VarDecl varDecl, Expr expr) {
+        if (varDecl instanceof FloatVarDecl) {
+            double value = evalFloat(expr);
+            if (failure != null) {
+                return takeFailure();
+            }
+            fHelper.envalueFloat(varDecl, value);
+            return RuntimeMeta.SUCCESS;
         }
 
-        resStatus.getValue().print();
-        return RuntimeMeta.createSuccess(null);
+        long value = evalInt(expr);
+        if (failure != null) {
+            return takeFailure();
+        }
+        fHelper.envalueInt(varDecl, value);
+        return RuntimeMeta.SUCCESS;
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -562,18 +515,15 @@ public final class RealRuntime implements Runtime {
     }
 
     public RuntimeMeta runUnitList(UnitList unitList) {
-        if (unitList == null) {
-            return RuntimeMeta.createSuccess(null);
-        }
-
-        RuntimeMeta resStatus = runUnit(unitList.unit);
-        if (resStatus == null) {
-            throw new RuntimeException("UnitList is not valid");
-        }
-        if (!resStatus.isSuccessful()) {
-            return resStatus;
+        for (Unit unit : unitList.units) {
+            RuntimeMeta resStatus = outer == null ? runUnit(unit) : outer.runUnit(unit);
+            if (resStatus == null) {
+                throw new RuntimeException("UnitList is not valid");
+            }
+            if (!resStatus.isSuccessful()) {
+                return resStatus;
+            }
         }
-
-        return runUnitList(unitList.unitList);
+        return RuntimeMeta.SUCCESS;
     }
 }
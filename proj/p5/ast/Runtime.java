@@ -24,4 +24,8 @@ public interface Runtime {
     public RuntimeMeta runPrintStmt(PrintStmt printStmt);
     public RuntimeMeta runUnit(Unit unit);
     public RuntimeMeta runUnitList(UnitList unitList);
+
+    // Nested units (and AbstRuntime's conditions) are run through outer
+    // from now on, a Runtime decorating this one like ProfilingRuntime.
+    public default void setOuter(Runtime outer) {}
 };
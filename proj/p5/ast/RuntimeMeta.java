@@ -4,6 +4,16 @@ public class RuntimeMeta {
     private ValueMeta value;
     private AstErrorHandler.ErrorCode errorCode;
 
+    // A result without a value never changes, so statements share one success
+    // and every error code has a single preallocated instance.
+    public static final RuntimeMeta SUCCESS = new RuntimeMeta((ValueMeta) null);
+    private static final RuntimeMeta[] ERRORS = new RuntimeMeta[AstErrorHandler.ErrorCode.values().length];
+    static {
+        for (AstErrorHandler.ErrorCode code : AstErrorHandler.ErrorCode.values()) {
+            ERRORS[code.ordinal()] = new RuntimeMeta(code);
+        }
+    }
+
     ////////////////////////////////////////////////////////////////////////////
 
     private RuntimeMeta(ValueMeta value) {
@@ -19,11 +29,11 @@ public class RuntimeMeta {
     ////////////////////////////////////////////////////////////////////////////
 
     public static RuntimeMeta createSuccess(ValueMeta value) {
-        return new RuntimeMeta(value);
+        return value == null ? SUCCESS : new RuntimeMeta(value);
     }
     
     public static RuntimeMeta createError(AstErrorHandler.ErrorCode errorCode) {
-        return new RuntimeMeta(errorCode);
+        return ERRORS[errorCode.ordinal()];
     }
 
     ////////////////////////////////////////////////////////////////////////////
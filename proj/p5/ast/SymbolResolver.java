@@ -0,0 +1,181 @@
+package ast;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Resolves every identifier to the declaration it refers to and assigns each
+ * declaration a (depth, slot) index into the FrameHelper display.
+ *
+ * Run once, after TypeCheck succeeded. The global scope is depth 0 and every
+ * BlockStmt opens a new depth; slots are numbered in declaration order.
+ * Declarations also get a program-wide index for flat, per-program states.
+ */
+public final class SymbolResolver {
+    private Stack<Map<String,VarDecl>> scopes = new Stack<Map<String,VarDecl>>();
+    private Stack<ArrayList<VarDecl>> locals = new Stack<ArrayList<VarDecl>>();
+    private int maxDepth = 0;
+    private ArrayList<VarDecl> vars = new ArrayList<VarDecl>();
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public void resolveProgram(Program program) {
+        newScope();
+        resolveUnitList(program.unitList);
+        program.locals = exitScope();
+        program.maxDepth = maxDepth;
+        program.vars = vars.toArray(new VarDecl[vars.size()]);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Scope
+
+    private void newScope() {
+        scopes.push(new HashMap<String,VarDecl>());
+        locals.push(new ArrayList<VarDecl>());
+        maxDepth = Math.max(maxDepth, scopes.size() - 1);
+    }
+
+    private VarDecl[] exitScope() {
+        scopes.pop();
+        ArrayList<VarDecl> decls = locals.pop();
+        return decls.toArray(new VarDecl[decls.size()]);
+    }
+
+    private void declare(VarDecl varDecl) {
+        ArrayList<VarDecl> chain = new ArrayList<VarDecl>();
+        chain.add(varDecl);
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            VarDecl outer = scopes.get(i).get(varDecl.ident);
+            if (outer == null) {
+                continue;
+            }
+            outer.shadowed = true;
+            chain.add(outer);
+        }
+
+        varDecl.depth = scopes.size() - 1;
+        varDecl.slot = locals.peek().size();
+        varDecl.index = vars.size();
+        vars.add(varDecl);
+        varDecl.chain = chain.toArray(new VarDecl[chain.size()]);
+        scopes.peek().put(varDecl.ident, varDecl);
+        locals.peek().add(varDecl);
+    }
+
+    private VarDecl lookup(String ident) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            VarDecl varDecl = scopes.get(i).get(ident);
+            if (varDecl != null) {
+                return varDecl;
+            }
+        }
+        throw new RuntimeException("Variable " + ident + " not declared");
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Decl
+
+    private void resolveDecl(Decl decl) {
+        // the initializer is evaluated before the new variable holds a value,
+        // so it still sees the outer declarations of the same name
+        if (decl.expr != null) {
+            resolveExpr(decl.expr);
+        }
+        declare(decl.varDecl);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Expr
+
+    private void resolveExpr(Expr expr) {
+        if (expr instanceof IdentExpr) {
+            IdentExpr identExpr = (IdentExpr) expr;
+            identExpr.decl = lookup(identExpr.ident);
+            return;
+        }
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            resolveExpr(binExpr.expr1);
+            resolveExpr(binExpr.expr2);
+            return;
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            resolveExpr(((UnaryMinusExpr) expr).expr);
+            return;
+        }
+    }
+
+    private void resolveCondExpr(CondExpr condExpr) {
+        if (condExpr instanceof CompExpr) {
+            CompExpr compExpr = (CompExpr) condExpr;
+            resolveExpr(compExpr.expr1);
+            resolveExpr(compExpr.expr2);
+            return;
+        }
+        if (condExpr instanceof LogicalExpr) {
+            LogicalExpr logicalExpr = (LogicalExpr) condExpr;
+            resolveCondExpr(logicalExpr.expr1);
+            if (logicalExpr.expr2 != null) {
+                resolveCondExpr(logicalExpr.expr2);
+            }
+            return;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Stmt
+
+    private void resolveStmt(Stmt stmt) {
+        if (stmt instanceof BlockStmt) {
+            BlockStmt blockStmt = (BlockStmt) stmt;
+            newScope();
+            resolveUnitList(blockStmt.block);
+            blockStmt.locals = exitScope();
+            return;
+        }
+        if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            resolveCondExpr(ifStmt.expr);
+            resolveStmt(ifStmt.thenstmt);
+            if (ifStmt.elsestmt != null) {
+                resolveStmt(ifStmt.elsestmt);
+            }
+            return;
+        }
+        if (stmt instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) stmt;
+            resolveCondExpr(whileStmt.expr);
+            resolveStmt(whileStmt.body);
+            return;
+        }
+        if (stmt instanceof AssignStmt) {
+            AssignStmt assignStmt = (AssignStmt) stmt;
+            resolveExpr(assignStmt.expr);
+            assignStmt.decl = lookup(assignStmt.ident);
+            return;
+        }
+        if (stmt instanceof PrintStmt) {
+            resolveExpr(((PrintStmt) stmt).expr);
+            return;
+        }
+
+        throw new RuntimeException("Unknown Stmt type");
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Unit
+
+    private void resolveUnitList(UnitList ul) {
+        for (Unit unit : ul.units) {
+            if (unit instanceof Decl) {
+                resolveDecl((Decl) unit);
+            } else {
+                resolveStmt((Stmt) unit);
+            }
+        }
+    }
+}
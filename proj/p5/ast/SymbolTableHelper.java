@@ -42,9 +42,20 @@ public class SymbolTableHelper {
 
     public boolean newScope() {
         symbolTables.push(new HashMap<String,ValueMeta>());
+        if (Events.recording()) {
+            scopePushed();
+        }
         return true;
     }
 
+    private void scopePushed() {
+        Events.ScopePush event = new Events.ScopePush();
+        if (event.shouldCommit()) {
+            event.depth = symbolTables.size();
+            event.commit();
+        }
+    }
+
     public boolean exitScope() {
         if (symbolTables.size() <= 1) {
             return false;
@@ -99,7 +110,7 @@ public class SymbolTableHelper {
     }
 
     ////////////////////////////////////////////////////////////////////////////
-    // Decl type
+    // VarDecl type
 
     public ValueMeta.ValueType getVarDeclType(VarDecl varDecl) {
         if (varDecl instanceof IntVarDecl) {
@@ -111,106 +122,6 @@ public class SymbolTableHelper {
         return ValueMeta.ValueType.UNDEFINED;
     }
 
-    public ValueMeta.ValueType getDeclType(Decl decl) {
-        if (decl.expr == null) {
-            return getVarDeclType(decl.varDecl);
-        }
-        
-        ValueMeta.ValueType varDeclType = getVarDeclType(decl.varDecl);
-        ValueMeta.ValueType exprType = getExprType(decl.expr);
-
-        if (varDeclType == ValueMeta.ValueType.UNDEFINED || exprType == ValueMeta.ValueType.UNDEFINED) {
-            return ValueMeta.ValueType.UNDEFINED;
-        }
-
-        if (varDeclType == exprType) {
-            return varDeclType;
-        }
-
-        return ValueMeta.ValueType.UNDEFINED;
-    }
-
-    ////////////////////////////////////////////////////////////////////////////
-    // Expr type
-
-    public ValueMeta.ValueType getLeftRightExprType(Expr expr1, Expr expr2) {
-        ValueMeta.ValueType left = getExprType(expr1);
-        ValueMeta.ValueType right = getExprType(expr2);
-
-        if (left == ValueMeta.ValueType.UNDEFINED || right == ValueMeta.ValueType.UNDEFINED) {
-            return ValueMeta.ValueType.UNDEFINED;
-        }
-
-        if (left == right) {
-            return left;
-        }
-
-        return ValueMeta.ValueType.UNDEFINED;
-    }
-
-    public ValueMeta.ValueType getExprType(Expr expr) {
-        if (expr instanceof IntConstExpr) {
-            return ValueMeta.ValueType.INT;
-        }
-        if (expr instanceof FloatConstExpr) {
-            return ValueMeta.ValueType.FLOAT;
-        }
-        if (expr instanceof IdentExpr) {
-            IdentExpr identExpr = (IdentExpr) expr;
-            ValueMeta meta = findValue(identExpr.ident); // TODO:
-            if (meta == null) {
-                return ValueMeta.ValueType.UNDEFINED;
-            }
-            return meta.getType();
-        }
-        if (expr instanceof BinaryExpr) {
-            BinaryExpr binExpr = (BinaryExpr) expr;
-            return getLeftRightExprType(binExpr.expr1, binExpr.expr2);
-        }
-        if (expr instanceof UnaryMinusExpr) {
-            UnaryMinusExpr unaryMinusExpr = (UnaryMinusExpr) expr;
-            ValueMeta.ValueType type = getExprType(unaryMinusExpr.expr);
-            if (type == ValueMeta.ValueType.INT || type == ValueMeta.ValueType.FLOAT) {
-                return type;
-            }
-        }
-        if (expr instanceof ReadIntExpr) {
-            return ValueMeta.ValueType.INT;
-        }
-        if (expr instanceof ReadFloatExpr) {
-            return ValueMeta.ValueType.FLOAT;
-        }
-
-        return ValueMeta.ValueType.UNDEFINED;
-    }
-
-    public ValueMeta.ValueType getLeftRightCondExprType(CondExpr expr1, CondExpr expr2) {
-        ValueMeta.ValueType left = getCondExprType(expr1);
-        ValueMeta.ValueType right = getCondExprType(expr2);
-
-        if (left == ValueMeta.ValueType.UNDEFINED || right == ValueMeta.ValueType.UNDEFINED) {
-            return ValueMeta.ValueType.UNDEFINED;
-        }
-
-        if (left == right) {
-            return left;
-        }
-
-        return ValueMeta.ValueType.UNDEFINED;
-    }
-
-    public ValueMeta.ValueType getCondExprType(CondExpr condExpr) {
-        if (condExpr instanceof CompExpr) {
-            CompExpr compExpr = (CompExpr) condExpr;
-            return getLeftRightExprType(compExpr.expr1, compExpr.expr2);
-        }
-        if (condExpr instanceof LogicalExpr) {
-            return ValueMeta.ValueType.BOOL;
-        }
-
-        return ValueMeta.ValueType.UNDEFINED;
-    }
-
     ////////////////////////////////////////////////////////////////////////////
     // Envalue
 
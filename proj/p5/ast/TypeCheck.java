@@ -11,6 +11,8 @@ import java.util.Stack;
 
 public final class TypeCheck {
     private SymbolTableHelper symbolTableHelper;
+    // type of every checked Expr, by Expr.index
+    private ArrayList<ValueMeta.ValueType> exprTypes = new ArrayList<ValueMeta.ValueType>();
 
     ////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -20,6 +22,21 @@ public final class TypeCheck {
         symbolTableHelper.newScope(); // global scope
     }
 
+    public ValueMeta.ValueType[] exprTypes() {
+        return exprTypes.toArray(new ValueMeta.ValueType[exprTypes.size()]);
+    }
+
+    // Each Expr is typed once, after its operands, and looked up from then on.
+    private AstErrorHandler.ErrorCode typed(Expr expr, ValueMeta.ValueType type) {
+        expr.index = exprTypes.size();
+        exprTypes.add(type);
+        return AstErrorHandler.ErrorCode.SUCCESS;
+    }
+
+    private ValueMeta.ValueType typeOf(Expr expr) {
+        return exprTypes.get(expr.index);
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // Decl
 
@@ -39,23 +56,15 @@ public final class TypeCheck {
         
 
         // Check
-        ValueMeta.ValueType declType = symbolTableHelper.getDeclType(decl);
-        if (declType == ValueMeta.ValueType.UNDEFINED) {
+        ValueMeta.ValueType declType = symbolTableHelper.getVarDeclType(decl.varDecl);
+        if (declType == ValueMeta.ValueType.UNDEFINED || declType != typeOf(decl.expr)) {
             return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
         }
 
         // Update
-        if (declType == ValueMeta.ValueType.INT || declType == ValueMeta.ValueType.FLOAT) {
-            ValueMeta.ValueType exprType = symbolTableHelper.getExprType(decl.expr);
-            if (declType != exprType) {
-                return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
-            }
-            // the ident is declared in the current scope so it's safe to replace
-            symbolTableHelper.concreteIdent(decl.varDecl.ident, declType);
-            return AstErrorHandler.ErrorCode.SUCCESS;
-        }
-
-        return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
+        // the ident is declared in the current scope so it's safe to replace
+        symbolTableHelper.concreteIdent(decl.varDecl.ident, declType);
+        return AstErrorHandler.ErrorCode.SUCCESS;
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -117,24 +126,27 @@ public final class TypeCheck {
     }
 
     public AstErrorHandler.ErrorCode checkIntConstExpr(IntConstExpr intConstExpr) {
-        return AstErrorHandler.ErrorCode.SUCCESS;
+        return typed(intConstExpr, ValueMeta.ValueType.INT);
     }
 
     public AstErrorHandler.ErrorCode checkFloatConstExpr(FloatConstExpr floatConstExpr) {
-        return AstErrorHandler.ErrorCode.SUCCESS;
+        return typed(floatConstExpr, ValueMeta.ValueType.FLOAT);
     }
 
     public AstErrorHandler.ErrorCode checkIdentExpr(IdentExpr identExpr) {
-        // ValueMeta meta = findValue(identExpr.ident);
-        // if (meta == null) {
-        if (!symbolTableHelper.isConcreted(identExpr.ident)) {
+        ValueMeta meta = symbolTableHelper.findValue(identExpr.ident);
+        if (meta == null) {
             return AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR;
         }
-        return AstErrorHandler.ErrorCode.SUCCESS;
+        return typed(identExpr, meta.getType());
     }
 
     public AstErrorHandler.ErrorCode checkUnaryMinusExpr(UnaryMinusExpr unaryMinusExpr) {
-        return checkExpr(unaryMinusExpr.expr);
+        AstErrorHandler.ErrorCode code = checkExpr(unaryMinusExpr.expr);
+        if (!AstErrorHandler.isSuccessful(code)) {
+            return code;
+        }
+        return typed(unaryMinusExpr, typeOf(unaryMinusExpr.expr));
     }
 
     public AstErrorHandler.ErrorCode checkBinExpr(BinaryExpr binExpr) {
@@ -150,15 +162,15 @@ public final class TypeCheck {
             return code;
         }
 
-        ValueMeta.ValueType left = symbolTableHelper.getExprType(binExpr.expr1);
-        ValueMeta.ValueType right = symbolTableHelper.getExprType(binExpr.expr2);
+        ValueMeta.ValueType left = typeOf(binExpr.expr1);
+        ValueMeta.ValueType right = typeOf(binExpr.expr2);
 
         if (left == ValueMeta.ValueType.UNDEFINED || right == ValueMeta.ValueType.UNDEFINED) {
             return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
         }
         
         if (left == right) {
-            return AstErrorHandler.ErrorCode.SUCCESS;
+            return typed(binExpr, left);
         }
 
         return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
@@ -188,8 +200,8 @@ public final class TypeCheck {
             return code;
         }
 
-        ValueMeta.ValueType left = symbolTableHelper.getExprType(compExpr.expr1);
-        ValueMeta.ValueType right = symbolTableHelper.getExprType(compExpr.expr2);
+        ValueMeta.ValueType left = typeOf(compExpr.expr1);
+        ValueMeta.ValueType right = typeOf(compExpr.expr2);
 
         if (left == ValueMeta.ValueType.UNDEFINED || right == ValueMeta.ValueType.UNDEFINED) {
             return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
@@ -230,11 +242,11 @@ public final class TypeCheck {
     }
 
     public AstErrorHandler.ErrorCode checkReadIntExpr(ReadIntExpr readIntExpr) {
-        return AstErrorHandler.ErrorCode.SUCCESS;
+        return typed(readIntExpr, ValueMeta.ValueType.INT);
     }
 
     public AstErrorHandler.ErrorCode checkReadFloatExpr(ReadFloatExpr readFloatExpr) {
-        return AstErrorHandler.ErrorCode.SUCCESS;
+        return typed(readFloatExpr, ValueMeta.ValueType.FLOAT);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -316,8 +328,7 @@ public final class TypeCheck {
         }
 
         ValueMeta.ValueType identType = symbolTableHelper.getType(assignStmt.ident);
-        ValueMeta.ValueType exprType = symbolTableHelper.getExprType(assignStmt.expr);
-        if (identType != exprType) {
+        if (identType != typeOf(assignStmt.expr)) {
             return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
         }
 
@@ -335,17 +346,6 @@ public final class TypeCheck {
             return code;
         }
 
-        ValueMeta.ValueType type = symbolTableHelper.getExprType(printStmt.expr);
-        /**
-        if (type == ValueMeta.ValueType.INT) {
-            System.out.println(getExprValue(printStmt.expr).getIntValue());
-        } else if (type == ValueMeta.ValueType.FLOAT) {
-            System.out.println(getExprValue(printStmt.expr).getFloatValue());
-        } else {
-            return AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR;
-        }
-        */
-
         return AstErrorHandler.ErrorCode.SUCCESS;
     }
 
@@ -357,16 +357,12 @@ public final class TypeCheck {
     }
 
     public AstErrorHandler.ErrorCode checkUnitList(UnitList ul) {
-        if (ul == null) {
-            return AstErrorHandler.ErrorCode.SUCCESS;
-        }
-
-        // if (!checkUnit(ul.unit)) {
-        AstErrorHandler.ErrorCode code = checkUnit(ul.unit);
-        if (!AstErrorHandler.isSuccessful(code)) {
-            return code;
+        for (Unit unit : ul.units) {
+            AstErrorHandler.ErrorCode code = checkUnit(unit);
+            if (!AstErrorHandler.isSuccessful(code)) {
+                return code;
+            }
         }
-
-        return checkUnitList(ul.unitList);
+        return AstErrorHandler.ErrorCode.SUCCESS;
     }
 }
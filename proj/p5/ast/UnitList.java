@@ -2,26 +2,43 @@ package ast;
 import java.io.PrintStream;
 
 public class UnitList extends ASTNode {
-    public final Unit unit;
-    public final UnitList unitList; 
+    public final Unit[] units;
 
-    public UnitList(Unit u, UnitList ul, Location loc) {
+    public UnitList(Unit[] units, Location loc) {
         super(loc);
-        unit = u;
-        unitList = ul;
+        this.units = units;
     }
 
-    public UnitList(Unit u, Location loc) { 
-        super(loc);
-        unit = u;
-        unitList = null;
+    // The grammar is right-recursive, so the parser reduces the last unit of
+    // a list first; Builder collects them in that order without nesting.
+    public static final class Builder {
+        private Unit[] reversed = new Unit[8];
+        private int size = 0;
+
+        public Builder prepend(Unit u) {
+            if (size == reversed.length) {
+                Unit[] grown = new Unit[size * 2];
+                System.arraycopy(reversed, 0, grown, 0, size);
+                reversed = grown;
+            }
+            reversed[size++] = u;
+            return this;
+        }
+
+        public UnitList build(Location loc) {
+            Unit[] units = new Unit[size];
+            for (int i = 0; i < size; i++) {
+                units[i] = reversed[size - 1 - i];
+            }
+            return new UnitList(units, loc);
+        }
     }
 
     public void print(PrintStream ps, String indent) {
-        unit.print(ps,indent);
-        ps.println();
-        if (unitList != null)
-            unitList.print(ps,indent);
+        for (Unit unit : units) {
+            unit.print(ps,indent);
+            ps.println();
+        }
     }
 
     public void print(PrintStream ps) { 
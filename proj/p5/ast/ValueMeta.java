@@ -1,5 +1,4 @@
 package ast;
-import java.util.HashMap;
 
 public final class ValueMeta {
     public enum ValueType {
@@ -12,34 +11,47 @@ public final class ValueMeta {
         ABST_FLOAT,
     }
 
+    // kind and mask encode the concrete members an abstract value stands
+    // for; AbstLattice derives every operator table from them
     public enum AbstValue {
-        ILLEGAL,
-        TRUE_BOOL,
-        FALSE_BOOL,
-        ANY_BOOL,
-        POS_INT,
-        NEG_INT,
-        ZERO_INT,
-        ANY_INT,
-        POS_FLOAT,
-        NEG_FLOAT,
-        ZERO_FLOAT,
-        ANY_FLOAT,
+        ILLEGAL(AbstLattice.NONE, 0),
+        TRUE_BOOL(AbstLattice.BOOL, AbstLattice.TRUE),
+        FALSE_BOOL(AbstLattice.BOOL, AbstLattice.FALSE),
+        ANY_BOOL(AbstLattice.BOOL, AbstLattice.TRUE | AbstLattice.FALSE),
+        POS_INT(AbstLattice.INT, AbstLattice.POS),
+        NEG_INT(AbstLattice.INT, AbstLattice.NEG),
+        ZERO_INT(AbstLattice.INT, AbstLattice.ZERO),
+        ANY_INT(AbstLattice.INT, AbstLattice.NEG | AbstLattice.ZERO | AbstLattice.POS),
+        POS_FLOAT(AbstLattice.FLOAT, AbstLattice.POS),
+        NEG_FLOAT(AbstLattice.FLOAT, AbstLattice.NEG),
+        ZERO_FLOAT(AbstLattice.FLOAT, AbstLattice.ZERO),
+        ANY_FLOAT(AbstLattice.FLOAT, AbstLattice.NEG | AbstLattice.ZERO | AbstLattice.POS);
+
+        final int kind;
+        final int mask;
+
+        AbstValue(int kind, int mask) {
+            this.kind = kind;
+            this.mask = mask;
+        }
     }
 
     ////////////////////////////////////////////////////////////////////////////
 
     private String ident;
     private ValueType type;
-    private Long intValue;
-    private Double floatValue;
-    private Boolean boolValue;
+    // concrete values are kept unboxed; valued tells whether one is held
+    private boolean valued;
+    private long intValue;
+    private double floatValue;
+    private boolean boolValue;
 
     private AbstValue abstValue;
 
-    private ValueMeta(String ident, ValueType type, Long intValue, Double floatValue, Boolean boolValue, AbstValue abstValue) {
+    private ValueMeta(String ident, ValueType type, boolean valued, long intValue, double floatValue, boolean boolValue, AbstValue abstValue) {
         this.ident = ident;
         this.type = type;
+        this.valued = valued;
         this.intValue = intValue;
         this.floatValue = floatValue;
         this.boolValue = boolValue;
@@ -50,53 +62,53 @@ public final class ValueMeta {
     ////////////////////////////////////////////////////////////////////////////
 
     public static ValueMeta createNull(String ident, ValueType type) {
-        return new ValueMeta(ident, type, null, null, null, null);
+        return new ValueMeta(ident, type, false, 0, 0.0, false, null);
     }
 
     public static ValueMeta createZero(String ident, ValueType type) {
         // dummy value
         if (type == ValueType.INT) {
-            return new ValueMeta(ident, type, Long.valueOf(0), null, null, null);
+            return new ValueMeta(ident, type, true, 0, 0.0, false, null);
         }
         if (type == ValueType.FLOAT) {
-            return new ValueMeta(ident, type, null, Double.valueOf(0.0), null, null);
+            return new ValueMeta(ident, type, true, 0, 0.0, false, null);
         }
         if (type == ValueType.BOOL) {
-            return new ValueMeta(ident, type, null, null, Boolean.FALSE, null);
+            return new ValueMeta(ident, type, true, 0, 0.0, false, null);
         }
         if (type == ValueType.ABST_INT) {
-            return new ValueMeta(ident, type, null, null, null, AbstValue.ZERO_INT);
+            return new ValueMeta(ident, type, false, 0, 0.0, false, AbstValue.ZERO_INT);
         }
         if (type == ValueType.ABST_FLOAT) {
-            return new ValueMeta(ident, type, null, null, null, AbstValue.ZERO_FLOAT);
+            return new ValueMeta(ident, type, false, 0, 0.0, false, AbstValue.ZERO_FLOAT);
         }
 
         throw new RuntimeException("ValueMeta: createZero() called on UNDEFINED type");
     }
 
-    public static ValueMeta createInt(String ident, Long intValue) {
-        ValueMeta value = new ValueMeta(ident, ValueType.INT, intValue, null, null, null);
+    public static ValueMeta createInt(String ident, long intValue) {
+        ValueMeta value = new ValueMeta(ident, ValueType.INT, true, intValue, 0.0, false, null);
         return value;
     }
 
-    public static ValueMeta createFloat(String ident, Double floatValue) {
-        ValueMeta value = new ValueMeta(ident, ValueType.FLOAT, null, floatValue, null, null);
+    public static ValueMeta createFloat(String ident, double floatValue) {
+        ValueMeta value = new ValueMeta(ident, ValueType.FLOAT, true, 0, floatValue, false, null);
         return value;
     }
 
-    public static ValueMeta createBool(String ident, Boolean boolValue) {
-        ValueMeta value = new ValueMeta(ident, ValueType.BOOL, null, null, boolValue, null);
+    public static ValueMeta createBool(String ident, boolean boolValue) {
+        ValueMeta value = new ValueMeta(ident, ValueType.BOOL, true, 0, 0.0, boolValue, null);
         return value;
     }
 
     ////////////////////////////////////////////////////////////////////////////
 
     public static ValueMeta createAbstInt(String ident, AbstValue abstValue) {
-        ValueMeta value = new ValueMeta(ident, ValueType.ABST_INT, null, null, null, abstValue);
+        ValueMeta value = new ValueMeta(ident, ValueType.ABST_INT, false, 0, 0.0, false, abstValue);
         return value;
     }
 
-    public static ValueMeta createAbstInt(String ident, Long intValue) {
+    public static ValueMeta createAbstInt(String ident, long intValue) {
         if (intValue > 0) {
             return createAbstInt(ident, AbstValue.POS_INT);
         }
@@ -107,11 +119,11 @@ public final class ValueMeta {
     }
 
     public static ValueMeta createAbstFloat(String ident, AbstValue abstValue) {
-        ValueMeta value = new ValueMeta(ident, ValueType.ABST_FLOAT, null, null, null, abstValue);
+        ValueMeta value = new ValueMeta(ident, ValueType.ABST_FLOAT, false, 0, 0.0, false, abstValue);
         return value;
     }
 
-    public static ValueMeta createAbstFloat(String ident, Double floatValue) {
+    public static ValueMeta createAbstFloat(String ident, double floatValue) {
         if (floatValue > 0.0) {
             return createAbstFloat(ident, AbstValue.POS_FLOAT);
         }
@@ -122,11 +134,11 @@ public final class ValueMeta {
     }
 
     public static ValueMeta createAbstBool(String ident, AbstValue abstValue) {
-        ValueMeta value = new ValueMeta(ident, ValueType.ABST_BOOL, null, null, null, abstValue);
+        ValueMeta value = new ValueMeta(ident, ValueType.ABST_BOOL, false, 0, 0.0, false, abstValue);
         return value;
     }
 
-    public static ValueMeta createAbstBool(String ident, Boolean boolValue) {
+    public static ValueMeta createAbstBool(String ident, boolean boolValue) {
         if (boolValue) {
             return createAbstBool(ident, AbstValue.TRUE_BOOL);
         }
@@ -145,21 +157,21 @@ public final class ValueMeta {
 
     ////////////////////////////////////////////////////////////////////////////
 
-    public Long getIntValue() {
+    public long getIntValue() {
         if (type != ValueType.INT) {
             throw new RuntimeException("ValueMeta: getIntValue() called on non-INT type");
         }
         return intValue;
     }
 
-    public Double getFloatValue() {
+    public double getFloatValue() {
         if (type != ValueType.FLOAT) {
             throw new RuntimeException("ValueMeta: getFloatValue() called on non-FLOAT type");
         }
         return floatValue;
     }
 
-    public Boolean getBoolValue() {
+    public boolean getBoolValue() {
         if (type != ValueType.BOOL) {
             throw new RuntimeException("ValueMeta: getBoolValue() called on non-BOOL type");
         }
@@ -188,7 +200,7 @@ public final class ValueMeta {
     }
 
     public boolean hasValue() {
-        return intValue != null || floatValue != null || boolValue != null || abstValue != null;
+        return valued || abstValue != null;
     }
 
     public boolean isIllegal() {
@@ -239,32 +251,32 @@ public final class ValueMeta {
         return ident + " (undefined)";
     }
 
-    public void print() {
-        if (type == ValueType.INT && intValue != null) {
-            System.out.println(intValue);
+    public void print(OutputSink out) {
+        if (type == ValueType.INT && valued) {
+            out.printInt(intValue);
             return;
         }
-        if (type == ValueType.FLOAT && floatValue != null) {
-            System.out.println(floatValue);
+        if (type == ValueType.FLOAT && valued) {
+            out.printFloat(floatValue);
             return;
         }
-        if (type == ValueType.BOOL && boolValue != null) {
-            System.out.println(boolValue);
+        if (type == ValueType.BOOL && valued) {
+            out.println(boolValue ? "true" : "false");
             return;
         }
         if (type == ValueType.ABST_INT && abstValue != null) {
             switch (abstValue) {
                 case POS_INT:
-                    System.out.println("PosInt");
+                    out.println("PosInt");
                     break;
                 case NEG_INT:
-                    System.out.println("NegInt");
+                    out.println("NegInt");
                     break;
                 case ZERO_INT:
-                    System.out.println("ZeroInt");
+                    out.println("ZeroInt");
                     break;
                 case ANY_INT:
-                    System.out.println("AnyInt");
+                    out.println("AnyInt");
                     break;
                 default:
                     throw new RuntimeException("ValueMeta: print() called on invalid ABST_INT");
@@ -274,16 +286,16 @@ public final class ValueMeta {
         if (type == ValueType.ABST_FLOAT && abstValue != null) {
             switch (abstValue) {
                 case POS_FLOAT:
-                    System.out.println("PosFloat");
+                    out.println("PosFloat");
                     break;
                 case NEG_FLOAT:
-                    System.out.println("NegFloat");
+                    out.println("NegFloat");
                     break;
                 case ZERO_FLOAT:
-                    System.out.println("ZeroFloat");
+                    out.println("ZeroFloat");
                     break;
                 case ANY_FLOAT:
-                    System.out.println("AnyFloat");
+                    out.println("AnyFloat");
                     break;
                 default:
                     throw new RuntimeException("ValueMeta: print() called on invalid ABST_FLOAT");
@@ -293,13 +305,13 @@ public final class ValueMeta {
         if (type == ValueType.ABST_BOOL && abstValue != null) {
             switch (abstValue) {
                 case TRUE_BOOL:
-                    System.out.println("TrueBool");
+                    out.println("TrueBool");
                     break;
                 case FALSE_BOOL:
-                    System.out.println("FalseBool");
+                    out.println("FalseBool");
                     break;
                 case ANY_BOOL:
-                    System.out.println("AnyBool");
+                    out.println("AnyBool");
                     break;
                 default:
                     throw new RuntimeException("ValueMeta: print() called on invalid ABST_BOOL");
@@ -313,11 +325,24 @@ public final class ValueMeta {
     ////////////////////////////////////////////////////////////////////////////
 
     public ValueMeta copy() {
-        return new ValueMeta(this.ident, this.type, this.intValue, this.floatValue, this.boolValue, this.abstValue);
+        return new ValueMeta(this.ident, this.type, this.valued, this.intValue, this.floatValue, this.boolValue, this.abstValue);
     }
 
     public ValueMeta copyWithIdent(String ident) {
-        return new ValueMeta(ident, this.type, this.intValue, this.floatValue, this.boolValue, this.abstValue);
+        return new ValueMeta(ident, this.type, this.valued, this.intValue, this.floatValue, this.boolValue, this.abstValue);
+    }
+
+    // In-place stores for the concrete runtime, whose frame slots each own
+    // their ValueMeta. Abstract values stay immutable: AbstRuntime shares them
+    // between the states of its blocks.
+    void setIntValue(long intValue) {
+        this.valued = true;
+        this.intValue = intValue;
+    }
+
+    void setFloatValue(double floatValue) {
+        this.valued = true;
+        this.floatValue = floatValue;
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -353,75 +378,6 @@ public final class ValueMeta {
         throw new RuntimeException("ValueMeta: equals() called on UNDEFINED type");
     }
 
-    public static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> eqTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_BOOL
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
     public static ValueMeta vEquals(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: vEquals() called on null");
@@ -442,8 +398,9 @@ public final class ValueMeta {
             left.getType() == ValueType.ABST_INT ||
             left.getType() == ValueType.ABST_FLOAT
         ) {
-            if (eqTable.containsKey(left.abstValue) && eqTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, eqTable.get(left.abstValue).get(right.abstValue));
+            AbstValue abst = AbstLattice.eq(left.abstValue, right.abstValue);
+            if (abst != null) {
+                return ValueMeta.createAbstBool(null, abst);
             }
         }
         
@@ -454,75 +411,6 @@ public final class ValueMeta {
         return !equals(left, right);
     }
 
-    public static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> neTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_BOOL
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
     public static ValueMeta vNotEquals(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: vNotEquals() called on null");
@@ -543,8 +431,9 @@ public final class ValueMeta {
             left.getType() == ValueType.ABST_INT ||
             left.getType() == ValueType.ABST_FLOAT
         ) {
-            if (neTable.containsKey(left.abstValue) && neTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, neTable.get(left.abstValue).get(right.abstValue));
+            AbstValue abst = AbstLattice.ne(left.abstValue, right.abstValue);
+            if (abst != null) {
+                return ValueMeta.createAbstBool(null, abst);
             }
         }
         
@@ -570,75 +459,6 @@ public final class ValueMeta {
         throw new RuntimeException("ValueMeta: lessThan() called on non-INT/FLOAT type");
     }
 
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> ltTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_BOOL
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
     public static ValueMeta vLessThan(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: vLessThan() called on null");
@@ -659,8 +479,9 @@ public final class ValueMeta {
             left.getType() == ValueType.ABST_INT ||
             left.getType() == ValueType.ABST_FLOAT
         ) {
-            if (ltTable.containsKey(left.abstValue) && ltTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, ltTable.get(left.abstValue).get(right.abstValue));
+            AbstValue abst = AbstLattice.lt(left.abstValue, right.abstValue);
+            if (abst != null) {
+                return ValueMeta.createAbstBool(null, abst);
             }
         }
         
@@ -686,75 +507,6 @@ public final class ValueMeta {
         throw new RuntimeException("ValueMeta: greaterThan() called on non-INT/FLOAT type");
     }
 
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> gtTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_BOOL
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
     public static ValueMeta vGreaterThan(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: vGreaterThan() called on null");
@@ -775,8 +527,9 @@ public final class ValueMeta {
             left.getType() == ValueType.ABST_INT ||
             left.getType() == ValueType.ABST_FLOAT
         ) {
-            if (gtTable.containsKey(left.abstValue) && gtTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, gtTable.get(left.abstValue).get(right.abstValue));
+            AbstValue abst = AbstLattice.gt(left.abstValue, right.abstValue);
+            if (abst != null) {
+                return ValueMeta.createAbstBool(null, abst);
             }
         }
         
@@ -787,75 +540,6 @@ public final class ValueMeta {
         return lessThan(left, right) || equals(left, right);
     }
 
-    public static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> leTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_BOOL
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.TRUE_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
     public static ValueMeta vLessThanOrEqual(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: vLessThanOrEqual() called on null");
@@ -876,8 +560,9 @@ public final class ValueMeta {
             left.getType() == ValueType.ABST_INT ||
             left.getType() == ValueType.ABST_FLOAT
         ) {
-            if (leTable.containsKey(left.abstValue) && leTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, leTable.get(left.abstValue).get(right.abstValue));
+            AbstValue abst = AbstLattice.le(left.abstValue, right.abstValue);
+            if (abst != null) {
+                return ValueMeta.createAbstBool(null, abst);
             }
         }
         
@@ -888,75 +573,6 @@ public final class ValueMeta {
         return greaterThan(left, right) || equals(left, right);
     }
 
-    public static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> geTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_INT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.FALSE_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_BOOL);
-        }});
-        // ABST_BOOL
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.TRUE_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
     public static ValueMeta vGreaterThanOrEqual(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: vGreaterThanOrEqual() called on null");
@@ -977,8 +593,9 @@ public final class ValueMeta {
             left.getType() == ValueType.ABST_INT ||
             left.getType() == ValueType.ABST_FLOAT
         ) {
-            if (geTable.containsKey(left.abstValue) && geTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, geTable.get(left.abstValue).get(right.abstValue));
+            AbstValue abst = AbstLattice.ge(left.abstValue, right.abstValue);
+            if (abst != null) {
+                return ValueMeta.createAbstBool(null, abst);
             }
         }
         
@@ -987,12 +604,6 @@ public final class ValueMeta {
 
     ////////////////////////////////////////////////////////////////////////////
     
-    private static HashMap<AbstValue, AbstValue> notTable = new HashMap<AbstValue, AbstValue>() {{
-        put(AbstValue.TRUE_BOOL, AbstValue.FALSE_BOOL);
-        put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-        put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-    }};
-
     public static ValueMeta not(ValueMeta value) {
         if (value == null) {
             throw new RuntimeException("ValueMeta: not() called on null");
@@ -1003,151 +614,18 @@ public final class ValueMeta {
         }
 
         if (value.getType() == ValueType.ABST_BOOL) {
-            if (notTable.containsKey(value.abstValue)) {
-                return ValueMeta.createAbstBool(null, notTable.get(value.abstValue));
+            AbstValue abst = AbstLattice.not(value.abstValue);
+            if (abst != null) {
+                return ValueMeta.createAbstBool(null, abst);
             }
         }
         
         throw new RuntimeException("ValueMeta: not() called on UNDEFINED type");
     }
 
-    /**
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> andTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.FALSE_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
-    public static ValueMeta and(ValueMeta left, ValueMeta right) {
-        if (left == null || right == null) {
-            throw new RuntimeException("ValueMeta: and() called on null");
-        }
-
-        if (left.getType() != right.getType()) {
-            throw new RuntimeException("ValueMeta: and() called on different types");
-        }
-
-        if (left.getType() == ValueType.BOOL) {
-            return ValueMeta.createBool(null, left.getBoolValue() && right.getBoolValue());
-        }
-
-        if (left.getType() == ValueType.ABST_BOOL) {
-            if (andTable.containsKey(left.abstValue) && andTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, andTable.get(left.abstValue).get(right.abstValue));
-            }
-        }
-        
-        throw new RuntimeException("ValueMeta: and() called on UNDEFINED type");
-    }
-
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> orTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        put(AbstValue.TRUE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.TRUE_BOOL);
-        }});
-        put(AbstValue.FALSE_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.FALSE_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-        put(AbstValue.ANY_BOOL, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.TRUE_BOOL, AbstValue.TRUE_BOOL);
-            put(AbstValue.FALSE_BOOL, AbstValue.ANY_BOOL);
-            put(AbstValue.ANY_BOOL, AbstValue.ANY_BOOL);
-        }});
-    }};
-
-    public static ValueMeta or(ValueMeta left, ValueMeta right) {
-        if (left == null || right == null) {
-            throw new RuntimeException("ValueMeta: or() called on null");
-        }
-
-        if (left.getType() != right.getType()) {
-            throw new RuntimeException("ValueMeta: or() called on different types");
-        }
-
-        if (left.getType() == ValueType.BOOL) {
-            return ValueMeta.createBool(null, left.getBoolValue() || right.getBoolValue());
-        }
-
-        if (left.getType() == ValueType.ABST_BOOL) {
-            if (orTable.containsKey(left.abstValue) && orTable.get(left.abstValue).containsKey(right.abstValue)) {
-                return ValueMeta.createAbstBool(null, orTable.get(left.abstValue).get(right.abstValue));
-            }
-        }
-        
-        throw new RuntimeException("ValueMeta: or() called on UNDEFINED type");
-    }
-    */
 
     ////////////////////////////////////////////////////////////////////////////
 
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> addTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.POS_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.POS_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.NEG_INT);
-            put(AbstValue.ZERO_INT, AbstValue.NEG_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.POS_INT);
-            put(AbstValue.NEG_INT, AbstValue.NEG_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-    }};
-
     public static ValueMeta add(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: add() called on null");
@@ -1163,11 +641,12 @@ public final class ValueMeta {
         if (left.getType() == ValueType.FLOAT) {
             return ValueMeta.createFloat(null, left.getFloatValue() + right.getFloatValue());
         }
-        if (left.getType() == ValueType.ABST_INT && addTable.containsKey(left.abstValue) && addTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstInt(null, addTable.get(left.abstValue).get(right.abstValue));
+        AbstValue abst = AbstLattice.add(left.abstValue, right.abstValue);
+        if (left.getType() == ValueType.ABST_INT && abst != null) {
+            return ValueMeta.createAbstInt(null, abst);
         }
-        if (left.getType() == ValueType.ABST_FLOAT && addTable.containsKey(left.abstValue) && addTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstFloat(null, addTable.get(left.abstValue).get(right.abstValue));
+        if (left.getType() == ValueType.ABST_FLOAT && abst != null) {
+            return ValueMeta.createAbstFloat(null, abst);
         }
 
         throw new RuntimeException("ValueMeta: add() called on UNDEFINED type");
@@ -1175,59 +654,6 @@ public final class ValueMeta {
 
     ////////////////////////////////////////////////////////////////////////////
 
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> subTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.POS_INT);
-            put(AbstValue.ZERO_INT, AbstValue.POS_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.NEG_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.NEG_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.NEG_INT);
-            put(AbstValue.NEG_INT, AbstValue.POS_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-    }};
-
     public static ValueMeta sub(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: sub() called on null");
@@ -1243,11 +669,12 @@ public final class ValueMeta {
         if (left.getType() == ValueType.FLOAT) {
             return ValueMeta.createFloat(null, left.getFloatValue() - right.getFloatValue());
         }
-        if (left.getType() == ValueType.ABST_INT && subTable.containsKey(left.abstValue) && subTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstInt(null, subTable.get(left.abstValue).get(right.abstValue));
+        AbstValue abst = AbstLattice.sub(left.abstValue, right.abstValue);
+        if (left.getType() == ValueType.ABST_INT && abst != null) {
+            return ValueMeta.createAbstInt(null, abst);
         }
-        if (left.getType() == ValueType.ABST_FLOAT && subTable.containsKey(left.abstValue) && subTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstFloat(null, subTable.get(left.abstValue).get(right.abstValue));
+        if (left.getType() == ValueType.ABST_FLOAT && abst != null) {
+            return ValueMeta.createAbstFloat(null, abst);
         }
 
         throw new RuntimeException("ValueMeta: sub() called on UNDEFINED type");
@@ -1255,59 +682,6 @@ public final class ValueMeta {
 
     ////////////////////////////////////////////////////////////////////////////
 
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> mulTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.POS_INT);
-            put(AbstValue.NEG_INT, AbstValue.NEG_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.NEG_INT);
-            put(AbstValue.NEG_INT, AbstValue.POS_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ZERO_INT);
-            put(AbstValue.NEG_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ANY_INT, AbstValue.ZERO_INT);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ZERO_FLOAT);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-    }};
-
     public static ValueMeta mul(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: mul() called on null");
@@ -1323,11 +697,12 @@ public final class ValueMeta {
         if (left.getType() == ValueType.FLOAT) {
             return ValueMeta.createFloat(null, left.getFloatValue() * right.getFloatValue());
         }
-        if (left.getType() == ValueType.ABST_INT && mulTable.containsKey(left.abstValue) && mulTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstInt(null, mulTable.get(left.abstValue).get(right.abstValue));
+        AbstValue abst = AbstLattice.mul(left.abstValue, right.abstValue);
+        if (left.getType() == ValueType.ABST_INT && abst != null) {
+            return ValueMeta.createAbstInt(null, abst);
         }
-        if (left.getType() == ValueType.ABST_FLOAT && mulTable.containsKey(left.abstValue) && mulTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstFloat(null, mulTable.get(left.abstValue).get(right.abstValue));
+        if (left.getType() == ValueType.ABST_FLOAT && abst != null) {
+            return ValueMeta.createAbstFloat(null, abst);
         }
 
         throw new RuntimeException("ValueMeta: mul() called on UNDEFINED type");
@@ -1335,59 +710,6 @@ public final class ValueMeta {
 
     ////////////////////////////////////////////////////////////////////////////
 
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> divTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_INT, AbstValue.ILLEGAL);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_INT, AbstValue.ILLEGAL);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ZERO_INT);
-            put(AbstValue.NEG_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_INT, AbstValue.ILLEGAL);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_INT, AbstValue.ILLEGAL);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ILLEGAL);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ILLEGAL);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ILLEGAL);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ILLEGAL);
-            put(AbstValue.ANY_FLOAT, AbstValue.ILLEGAL);
-        }});
-    }};
-
     public static ValueMeta div(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: div() called on null");
@@ -1413,11 +735,12 @@ public final class ValueMeta {
             }
             return ValueMeta.createFloat(null, left.getFloatValue() / right.getFloatValue());
         }
-        if (left.getType() == ValueType.ABST_INT && divTable.containsKey(left.abstValue) && divTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstInt(null, divTable.get(left.abstValue).get(right.abstValue));
+        AbstValue abst = AbstLattice.div(left.abstValue, right.abstValue);
+        if (left.getType() == ValueType.ABST_INT && abst != null) {
+            return ValueMeta.createAbstInt(null, abst);
         }
-        if (left.getType() == ValueType.ABST_FLOAT && divTable.containsKey(left.abstValue) && divTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstFloat(null, divTable.get(left.abstValue).get(right.abstValue));
+        if (left.getType() == ValueType.ABST_FLOAT && abst != null) {
+            return ValueMeta.createAbstFloat(null, abst);
         }
 
         throw new RuntimeException("ValueMeta: div() called on UNDEFINED type");
@@ -1425,17 +748,6 @@ public final class ValueMeta {
 
     ////////////////////////////////////////////////////////////////////////////
 
-    private static HashMap<AbstValue, AbstValue> negTable = new HashMap<AbstValue, AbstValue>() {{
-        put(AbstValue.POS_INT, AbstValue.NEG_INT);
-        put(AbstValue.NEG_INT, AbstValue.POS_INT);
-        put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-        put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        put(AbstValue.POS_FLOAT, AbstValue.NEG_FLOAT);
-        put(AbstValue.NEG_FLOAT, AbstValue.POS_FLOAT);
-        put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-        put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-    }};
-
     public static ValueMeta neg(ValueMeta value) {
         if (value == null) {
             throw new RuntimeException("ValueMeta: neg() called on null");
@@ -1447,11 +759,12 @@ public final class ValueMeta {
         if (value.getType() == ValueType.FLOAT) {
             return ValueMeta.createFloat(null, -value.getFloatValue());
         }
-        if (value.getType() == ValueType.ABST_INT && negTable.containsKey(value.abstValue)) {
-            return ValueMeta.createAbstInt(null, negTable.get(value.abstValue));
+        AbstValue abst = AbstLattice.neg(value.abstValue);
+        if (value.getType() == ValueType.ABST_INT && abst != null) {
+            return ValueMeta.createAbstInt(null, abst);
         }
-        if (value.getType() == ValueType.ABST_FLOAT && negTable.containsKey(value.abstValue)) {
-            return ValueMeta.createAbstFloat(null, negTable.get(value.abstValue));
+        if (value.getType() == ValueType.ABST_FLOAT && abst != null) {
+            return ValueMeta.createAbstFloat(null, abst);
         }
 
         throw new RuntimeException("ValueMeta: neg() called on UNDEFINED type");
@@ -1459,59 +772,6 @@ public final class ValueMeta {
 
     ////////////////////////////////////////////////////////////////////////////
 
-    private static HashMap<AbstValue, HashMap<AbstValue, AbstValue>> mergeTable = new HashMap<AbstValue, HashMap<AbstValue, AbstValue>>() {{
-        // ABST_INT
-        put(AbstValue.POS_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.POS_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.NEG_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.NEG_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.ZERO_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ZERO_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        put(AbstValue.ANY_INT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_INT, AbstValue.ANY_INT);
-            put(AbstValue.NEG_INT, AbstValue.ANY_INT);
-            put(AbstValue.ZERO_INT, AbstValue.ANY_INT);
-            put(AbstValue.ANY_INT, AbstValue.ANY_INT);
-        }});
-        // ABST_FLOAT
-        put(AbstValue.POS_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.POS_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.NEG_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.NEG_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.ZERO_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ZERO_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-        put(AbstValue.ANY_FLOAT, new HashMap<AbstValue, AbstValue>() {{
-            put(AbstValue.POS_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.NEG_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ZERO_FLOAT, AbstValue.ANY_FLOAT);
-            put(AbstValue.ANY_FLOAT, AbstValue.ANY_FLOAT);
-        }});
-    }};
-
     public static ValueMeta merge(ValueMeta left, ValueMeta right) {
         if (left == null || right == null) {
             throw new RuntimeException("ValueMeta: merge() called on null");
@@ -1527,11 +787,12 @@ public final class ValueMeta {
         if (left.getType() == ValueType.FLOAT) {
             return ValueMeta.createFloat(left.getIdent(), right.getFloatValue());
         }
-        if (left.getType() == ValueType.ABST_INT && mergeTable.containsKey(left.abstValue) && mergeTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstInt(left.getIdent(), mergeTable.get(left.abstValue).get(right.abstValue));
+        AbstValue abst = AbstLattice.merge(left.abstValue, right.abstValue);
+        if (left.getType() == ValueType.ABST_INT && abst != null) {
+            return ValueMeta.createAbstInt(left.getIdent(), abst);
         }
-        if (left.getType() == ValueType.ABST_FLOAT && mergeTable.containsKey(left.abstValue) && mergeTable.get(left.abstValue).containsKey(right.abstValue)) {
-            return ValueMeta.createAbstFloat(left.getIdent(), mergeTable.get(left.abstValue).get(right.abstValue));
+        if (left.getType() == ValueType.ABST_FLOAT && abst != null) {
+            return ValueMeta.createAbstFloat(left.getIdent(), abst);
         }
 
         throw new RuntimeException("ValueMeta: merge() called on UNDEFINED type");
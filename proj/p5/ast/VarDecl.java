@@ -4,6 +4,13 @@ import java.io.PrintStream;
 public abstract class VarDecl extends ASTNode {
     public final String ident;
 
+    // assigned by SymbolResolver
+    public int depth = -1;
+    public int slot = -1;
+    public int index = -1; // program-wide
+    public VarDecl[] chain; // this declaration followed by the outer ones it hides
+    public boolean shadowed; // hidden by a declaration in some nested block
+
     public VarDecl(String i, Location loc) {
         super(loc);
         ident = i;
@@ -0,0 +1,373 @@
+package bench;
+
+import ast.AbstRuntime;
+import ast.AstErrorHandler;
+import ast.InputReader;
+import ast.OutputSink;
+import ast.PassManager;
+import ast.Program;
+import ast.RealRuntime;
+import ast.RuntimeMeta;
+import ast.SymbolResolver;
+import ast.SymbolTableHelper;
+import ast.TypeCheck;
+import ast.ValueMeta;
+import interpreter.Interpreter;
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java_cup.runtime.ComplexSymbolFactory;
+import parser.Lexer;
+import parser.ParserWrapper;
+import parser.sym;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Times the stages of the interpreter on programs from ProgramGenerator.
+ *
+ * Each benchmark (lexer, parse, typecheck, real, abstract) sets up the
+ * stages before its own once and then repeats its stage: tokenizing the
+ * source, parsing it, type checking the tree, running the resolved program
+ * on RealRuntime, or analysing it with AbstRuntime. A benchmark runs
+ * warmup iterations and then measured ones of a fixed duration, and
+ * reports the time per operation with its spread over the iterations and,
+ * like JMH's gc profiler, the bytes allocated per operation, the
+ * allocation rate and the collections that happened meanwhile.
+ *
+ *   benchHw5.sh [--size N,N...] [--depth D] [--nesting L] [--warmup N]
+ *               [--iterations N] [--time MS] [benchmark...]
+ *   benchHw5.sh --generate [--size N] [--depth D] [--nesting L]
+ *   benchHw5.sh --check [--input FILE] program...
+ *
+ * --generate prints the program a benchmark would run. --check runs the
+ * abstract and real pipelines of the benchmarks over the given programs
+ * (s1..s13) and over a generated one, and compares what they print and
+ * whether they succeed with Interpreter.run, so the benchmarks are known to
+ * time what the interpreter does. Both sides read the same input, FILE or
+ * else INPUT; a program the Interpreter cannot feed with it (return code
+ * EXIT_FAILED_STDIN_READ) fails the check, since everything after its first
+ * read would go unchecked.
+ */
+public final class Bench {
+    private static final String[] BENCHMARKS = { "lexer", "parse", "typecheck", "real", "abstract" };
+    private static final long SEED = 6341;
+    // enough ints for the programs of s1..s13 that only read ints, none of
+    // them 0; the first is negative, so s13 initializes x. The others read
+    // floats and need --input
+    private static final String INPUT = "-2 7 3 5 1 4 2 6\n";
+
+    // same as the Interpreter, for the recursive stages on deep programs
+    private static final long STACK_SIZE = 1L << 26;
+
+    private static final OutputSink DISCARD = new OutputSink(OutputStream.nullOutputStream());
+
+    private int[] sizes = { 100 };
+    private int depth = 16;
+    private int nesting = 3;
+    private int warmup = 3;
+    private int iterations = 5;
+    private long iterationNanos = 1000L * 1000 * 1000;
+    private byte[] input = INPUT.getBytes();
+
+    // results of every operation end up here, so none of them is dead code
+    private long consumed = 0;
+
+    // One repetition of a benchmark's stage.
+    private interface Op {
+        long run() throws Exception;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public static void main(String[] args) throws Exception {
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                new Bench().main(Arrays.asList(args));
+            } catch (Throwable ex) {
+                failure[0] = ex;
+            }
+        }, "bench", STACK_SIZE);
+        thread.start();
+        thread.join();
+        if (failure[0] instanceof Exception) {
+            throw (Exception) failure[0];
+        }
+        if (failure[0] != null) {
+            throw (Error) failure[0];
+        }
+    }
+
+    private void main(List<String> args) throws Exception {
+        List<String> names = new ArrayList<String>();
+        List<String> programs = new ArrayList<String>();
+        boolean generate = false;
+        boolean check = false;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--size":
+                    String[] values = args.get(++i).split(",");
+                    sizes = new int[values.length];
+                    for (int v = 0; v < values.length; v++) {
+                        sizes[v] = Integer.parseInt(values[v]);
+                    }
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args.get(++i));
+                    break;
+                case "--nesting":
+                    nesting = Integer.parseInt(args.get(++i));
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args.get(++i));
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args.get(++i));
+                    break;
+                case "--time":
+                    iterationNanos = Long.parseLong(args.get(++i)) * 1000 * 1000;
+                    break;
+                case "--generate":
+                    generate = true;
+                    break;
+                case "--check":
+                    check = true;
+                    break;
+                case "--input":
+                    input = java.nio.file.Files.readAllBytes(new File(args.get(++i)).toPath());
+                    break;
+                default:
+                    if (check) {
+                        programs.add(arg);
+                    } else if (Arrays.asList(BENCHMARKS).contains(arg)) {
+                        names.add(arg);
+                    } else {
+                        throw new RuntimeException(arg + " is not valid");
+                    }
+            }
+        }
+
+        if (generate) {
+            System.out.print(ProgramGenerator.generate(sizes[0], depth, nesting, SEED));
+            return;
+        }
+        if (check) {
+            System.exit(check(programs) ? 0 : 1);
+        }
+
+        if (names.isEmpty()) {
+            names = Arrays.asList(BENCHMARKS);
+        }
+        System.out.printf("%-10s %7s %12s %10s %12s %12s %8s %8s%n",
+            "Benchmark", "size", "ms/op", "error", "alloc MB/s", "B/op", "gc", "gc ms");
+        for (String name : names) {
+            for (int size : sizes) {
+                String source = ProgramGenerator.generate(size, depth, nesting, SEED);
+                measure(name, size, op(name, source));
+            }
+        }
+        System.out.println("(consumed " + consumed + ")");
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Benchmarks
+
+    private static Op op(String name, String source) throws Exception {
+        switch (name) {
+            case "lexer":
+                return () -> lex(source);
+            case "parse":
+                return () -> parse(source).unitList.units.length;
+            case "typecheck": {
+                Program program = parse(source);
+                return () -> check(program).ordinal();
+            }
+            case "real": {
+                Program program = concrete(source);
+                return () -> {
+                    InputReader input = new InputReader(new ByteArrayInputStream(new byte[0]));
+                    return program.run(new RealRuntime(program, input, DISCARD)).getErrorCode().ordinal();
+                };
+            }
+            case "abstract": {
+                Program program = analysed(source);
+                return () -> program.run(new AbstRuntime(program, DISCARD)).getErrorCode().ordinal();
+            }
+        }
+        throw new RuntimeException(name + " is not valid");
+    }
+
+    private static long lex(String source) throws IOException {
+        Lexer lexer = new Lexer(new StringReader(source), new ComplexSymbolFactory(), "bench");
+        long tokens = 0;
+        while (lexer.next_token().sym != sym.EOF) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    private static Program parse(String source) throws Exception {
+        return ParserWrapper.parse(new StringReader(source), "bench");
+    }
+
+    private static AstErrorHandler.ErrorCode check(Program program) {
+        return program.checkType(new TypeCheck(new SymbolTableHelper(new Stack<Map<String,ValueMeta>>())));
+    }
+
+    // the program as the Interpreter runs it with --real
+    private static Program concrete(String source) throws Exception {
+        Program program = checked(source);
+        program = PassManager.optimizer().run(program);
+        program.resolve(new SymbolResolver());
+        return program;
+    }
+
+    // the program as the Interpreter analyses it by default
+    private static Program analysed(String source) throws Exception {
+        Program program = checked(source);
+        program.resolve(new SymbolResolver());
+        return program;
+    }
+
+    private static Program checked(String source) throws Exception {
+        Program program = parse(source);
+        AstErrorHandler.ErrorCode code = check(program);
+        if (!AstErrorHandler.isSuccessful(code)) {
+            throw new RuntimeException("Program is not valid: " + code);
+        }
+        return program;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Measurement
+
+    private void measure(String name, int size, Op op) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            iterate(op, new long[1]);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double[] msPerOp = new double[iterations];
+        long ops = 0;
+        long nanos = 0;
+        long allocated = -threads.getCurrentThreadAllocatedBytes();
+        long gcCount = -gcCount();
+        long gcMillis = -gcMillis();
+        for (int i = 0; i < iterations; i++) {
+            long[] iterationOps = new long[1];
+            long elapsed = iterate(op, iterationOps);
+            msPerOp[i] = elapsed / 1e6 / iterationOps[0];
+            ops += iterationOps[0];
+            nanos += elapsed;
+        }
+        allocated += threads.getCurrentThreadAllocatedBytes();
+        gcCount += gcCount();
+        gcMillis += gcMillis();
+
+        double mean = 0;
+        for (double ms : msPerOp) {
+            mean += ms / iterations;
+        }
+        double variance = 0;
+        for (double ms : msPerOp) {
+            variance += (ms - mean) * (ms - mean) / Math.max(1, iterations - 1);
+        }
+        System.out.printf("%-10s %7d %12.3f %10.3f %12.1f %12d %8d %8d%n",
+            name, size, mean, Math.sqrt(variance), allocated / 1e6 / (nanos / 1e9), allocated / ops, gcCount, gcMillis);
+    }
+
+    // Repeats op for an iteration's time, and returns the time it took.
+    private long iterate(Op op, long[] ops) throws Exception {
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            consumed += op.run();
+            ops[0]++;
+        } while ((elapsed = System.nanoTime() - start) < iterationNanos);
+        return elapsed;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += gc.getCollectionTime();
+        }
+        return millis;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Check
+
+    private boolean check(List<String> programs) throws Exception {
+        File generated = File.createTempFile("bench", ".c");
+        generated.deleteOnExit();
+        try (Writer writer = new FileWriter(generated)) {
+            writer.write(ProgramGenerator.generate(sizes[0], depth, nesting, SEED));
+        }
+        List<String> files = new ArrayList<String>(programs);
+        files.add(generated.getPath());
+
+        boolean ok = true;
+        for (String file : files) {
+            for (boolean real : new boolean[] { false, true }) {
+                String mode = real ? "real" : "abstract";
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                String[] args = real ? new String[] { file, "--real" } : new String[] { file };
+                int code;
+                try {
+                    code = Interpreter.run(args, new ByteArrayInputStream(input), expected);
+                } catch (RuntimeException ex) {
+                    // e.g. readfloat given an int
+                    System.out.println("FAIL " + mode + " " + file + " (" + ex.getMessage() + ")");
+                    ok = false;
+                    continue;
+                }
+                // the Interpreter follows the output with the error message
+                String want = expected.toString();
+                if (code != 0) {
+                    want = want.substring(0, want.lastIndexOf('\n', want.length() - 2) + 1);
+                }
+
+                ByteArrayOutputStream printed = new ByteArrayOutputStream();
+                boolean successful = run(file, real, input, printed);
+                boolean same = printed.toString().equals(want) && successful == (code == 0);
+                boolean required = (!file.equals(generated.getPath()) || code == 0)
+                    && code != Interpreter.EXIT_FAILED_STDIN_READ;
+                System.out.println((same && required ? "ok   " : "FAIL ") + mode + " " + file + " (returned " + code + ")");
+                ok &= same && required;
+            }
+        }
+        return ok;
+    }
+
+    // What the benchmarks' pipeline prints for file, and whether it succeeds.
+    private static boolean run(String file, boolean real, byte[] input, OutputStream out) throws Exception {
+        String source = new String(java.nio.file.Files.readAllBytes(new File(file).toPath()));
+        Program program;
+        try {
+            program = real ? concrete(source) : analysed(source);
+        } catch (Exception ex) {
+            return false;
+        }
+        OutputSink sink = new OutputSink(out);
+        RuntimeMeta result;
+        if (real) {
+            result = program.run(new RealRuntime(program, new InputReader(new ByteArrayInputStream(input)), sink));
+        } else {
+            result = program.run(new AbstRuntime(program, sink));
+        }
+        sink.flush();
+        return result.isSuccessful();
+    }
+}
@@ -0,0 +1,126 @@
+package bench;
+
+import java.util.Random;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Synthetic programs for Bench, scaled by a unit count.
+ *
+ * Unit k declares an int and a float from deep expressions over constants
+ * and the variables of the units before it, updates them in while loops
+ * nested inside ifs, and prints them. Loops count to a constant, divisors
+ * are nonzero constants and ifs compare a float with half of itself, which
+ * the abstract runtime can never decide, so every program checks,
+ * terminates and runs without errors (dead code included) in both the
+ * abstract and the concrete runtimes. Programs read no input.
+ */
+final class ProgramGenerator {
+    private static final int LOOP_COUNT = 3;
+
+    private final int depth;
+    private final int nesting;
+    private final Random random;
+    private final StringBuilder out = new StringBuilder();
+    private int counters = 0;
+
+    private ProgramGenerator(int depth, int nesting, long seed) {
+        this.depth = depth;
+        this.nesting = nesting;
+        this.random = new Random(seed);
+    }
+
+    // size units, with expressions depth operators deep and loops nested
+    // nesting levels deep
+    static String generate(int size, int depth, int nesting, long seed) {
+        ProgramGenerator generator = new ProgramGenerator(depth, nesting, seed);
+        for (int k = 0; k < size; k++) {
+            generator.unit(k);
+        }
+        return generator.out.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void unit(int k) {
+        line(0, "int a" + k + " = " + intExpr(depth, k) + ";");
+        line(0, "float b" + k + " = " + floatExpr(depth, k) + ";");
+        nest(k, nesting, 0);
+        line(0, "print a" + k + ";");
+        line(0, "print b" + k + ";");
+    }
+
+    private void nest(int k, int level, int indent) {
+        if (level == 0) {
+            line(indent, "a" + k + " = " + intExpr(depth / 2, k + 1) + ";");
+            line(indent, "b" + k + " = " + floatExpr(depth / 2, k + 1) + ";");
+            return;
+        }
+        String i = "i" + counters++;
+        line(indent, "{");
+        line(indent + 1, "int " + i + " = 0;");
+        line(indent + 1, "while (" + i + " < " + LOOP_COUNT + ") {");
+        line(indent + 2, "if (b" + k + " > b" + k + " * 0.5) {");
+        nest(k, level - 1, indent + 3);
+        line(indent + 2, "} else {");
+        line(indent + 3, "b" + k + " = b" + k + " - 1.0;");
+        line(indent + 2, "}");
+        line(indent + 2, i + " = " + i + " + 1;");
+        line(indent + 1, "}");
+        line(indent, "}");
+    }
+
+    private void line(int indent, String text) {
+        for (int i = 0; i < indent; i++) {
+            out.append("    ");
+        }
+        out.append(text).append('\n');
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // A left-deep chain of d operators whose right operands are mostly
+    // leaves and sometimes shallower subtrees; vars is the number of aK/bK
+    // declared so far.
+    private String intExpr(int d, int vars) {
+        if (d == 0) {
+            return vars > 0 && random.nextBoolean() ? "a" + random.nextInt(vars) : Integer.toString(1 + random.nextInt(9));
+        }
+        String left = intExpr(d - 1, vars);
+        switch (random.nextInt(4)) {
+            case 0:
+                return "(" + left + " + " + intOperand(d, vars) + ")";
+            case 1:
+                return "(" + left + " - " + intOperand(d, vars) + ")";
+            case 2:
+                return "(" + left + " * " + intOperand(d, vars) + ")";
+            default:
+                return "(" + left + " / " + (2 + random.nextInt(8)) + ")";
+        }
+    }
+
+    private String intOperand(int d, int vars) {
+        return random.nextInt(4) == 0 ? intExpr(d / 2, vars) : intExpr(0, vars);
+    }
+
+    private String floatExpr(int d, int vars) {
+        if (d == 0) {
+            return vars > 0 && random.nextBoolean() ? "b" + random.nextInt(vars) : (1 + random.nextInt(9)) + ".5";
+        }
+        String left = floatExpr(d - 1, vars);
+        switch (random.nextInt(4)) {
+            case 0:
+                return "(" + left + " + " + floatOperand(d, vars) + ")";
+            case 1:
+                return "(" + left + " - " + floatOperand(d, vars) + ")";
+            case 2:
+                return "(" + left + " * " + floatOperand(d, vars) + ")";
+            default:
+                return "(" + left + " / " + (2 + random.nextInt(8)) + ".0)";
+        }
+    }
+
+    private String floatOperand(int d, int vars) {
+        return random.nextInt(4) == 0 ? floatExpr(d / 2, vars) : floatExpr(0, vars);
+    }
+}
@@ -0,0 +1,98 @@
+package interpreter;
+
+/**
+ * A compiled program: a flat int-coded instruction array plus the constant
+ * pools and register counts the VirtualMachine needs to run it.
+ *
+ * Every instruction is an opcode followed by its operands. Registers are
+ * typed: int operands index the long bank, float operands the double bank.
+ * The first intVars.length/floatVars.length registers of each bank hold the
+ * program variables (named for error messages), the rest are temporaries.
+ * Variables declared with an initializer are flagged in intInit/floatInit:
+ * they hold a value from their declaration on and are never checked.
+ */
+public final class Bytecode {
+    // ICONST dst, k            i[dst] = intPool[k]
+    public static final int ICONST = 0;
+    public static final int FCONST = 1;
+    // IMOV dst, src            i[dst] = i[src]
+    public static final int IMOV = 2;
+    public static final int FMOV = 3;
+    // ISTORE var, src          i[var] = i[src], mark var as holding a value
+    public static final int ISTORE = 4;
+    public static final int FSTORE = 5;
+    // IDECL var                var is declared but holds no value
+    public static final int IDECL = 6;
+    public static final int FDECL = 7;
+    // ICHK var                 fail unless var holds a value
+    public static final int ICHK = 8;
+    public static final int FCHK = 9;
+    // ISEL dst, n, v1..vn      i[dst] = first of v1..vn holding a value
+    public static final int ISEL = 10;
+    public static final int FSEL = 11;
+    // IADD dst, a, b           i[dst] = i[a] + i[b]
+    public static final int IADD = 12;
+    public static final int ISUB = 13;
+    public static final int IMUL = 14;
+    public static final int IDIV = 15;
+    public static final int FADD = 16;
+    public static final int FSUB = 17;
+    public static final int FMUL = 18;
+    public static final int FDIV = 19;
+    // INEG dst, a              i[dst] = -i[a]
+    public static final int INEG = 20;
+    public static final int FNEG = 21;
+    // IREAD dst, site          i[dst] = value read by the readint at site
+    public static final int IREAD = 22;
+    public static final int FREAD = 23;
+    // IPRINT a                 print i[a]
+    public static final int IPRINT = 24;
+    public static final int FPRINT = 25;
+    // JMP target
+    public static final int JMP = 26;
+    // IJEQ a, b, target        jump if i[a] == i[b]
+    public static final int IJEQ = 27;
+    public static final int IJNE = 28;
+    public static final int IJLT = 29;
+    public static final int IJGE = 30;
+    public static final int IJGT = 31;
+    public static final int IJLE = 32;
+    public static final int FJEQ = 33;
+    public static final int FJNE = 34;
+    public static final int FJLT = 35;
+    public static final int FJGE = 36;
+    public static final int FJGT = 37;
+    public static final int FJLE = 38;
+    // FJNLT a, b, target       jump if !(f[a] < f[b]), distinct from FJGE for NaN
+    public static final int FJNLT = 39;
+    public static final int FJNGE = 40;
+    public static final int FJNGT = 41;
+    public static final int FJNLE = 42;
+    public static final int HALT = 43;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public final int[] code;
+    public final long[] intPool;
+    public final double[] floatPool;
+    public final String[] intVars, floatVars;
+    public final boolean[] intInit, floatInit;
+    public final int intRegs, floatRegs;
+    public final int intReads, floatReads;
+
+    public Bytecode(int[] code, long[] intPool, double[] floatPool,
+                    String[] intVars, String[] floatVars, boolean[] intInit, boolean[] floatInit,
+                    int intRegs, int floatRegs, int intReads, int floatReads) {
+        this.code = code;
+        this.intPool = intPool;
+        this.floatPool = floatPool;
+        this.intVars = intVars;
+        this.floatVars = floatVars;
+        this.intInit = intInit;
+        this.floatInit = floatInit;
+        this.intRegs = intRegs;
+        this.floatRegs = floatRegs;
+        this.intReads = intReads;
+        this.floatReads = floatReads;
+    }
+}
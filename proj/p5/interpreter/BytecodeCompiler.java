@@ -0,0 +1,433 @@
+package interpreter;
+
+import ast.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Flattens a type-checked and resolved Program into Bytecode.
+ *
+ * Variables get a fixed register in the bank of their type, expression
+ * temporaries are allocated stack-wise above them, and conditions compile to
+ * fused compare-and-branch instructions, so no boolean values exist at run
+ * time. A variable declared with an initializer always holds a value after
+ * its declaration and is read directly; any other read checks that the
+ * variable was assigned, falling back to the outer declarations of the same
+ * name just like RealRuntime does.
+ */
+public final class BytecodeCompiler {
+    private static final class Operand {
+        final int reg;
+        final boolean isFloat;
+
+        Operand(int reg, boolean isFloat) {
+            this.reg = reg;
+            this.isFloat = isFloat;
+        }
+    }
+
+    private static final class Label {
+        int pc = -1;
+        ArrayList<Integer> refs = new ArrayList<Integer>();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private int[] code = new int[256];
+    private int size = 0;
+
+    private ArrayList<Long> intPool = new ArrayList<Long>();
+    private ArrayList<Double> floatPool = new ArrayList<Double>();
+    private HashMap<Long,Integer> intPoolIndex = new HashMap<Long,Integer>();
+    private HashMap<Double,Integer> floatPoolIndex = new HashMap<Double,Integer>();
+
+    private IdentityHashMap<VarDecl,Integer> varRegs = new IdentityHashMap<VarDecl,Integer>();
+    private IdentityHashMap<VarDecl,Boolean> alwaysDefined = new IdentityHashMap<VarDecl,Boolean>();
+    private ArrayList<String> intNames = new ArrayList<String>();
+    private ArrayList<String> floatNames = new ArrayList<String>();
+
+    private int itop, ftop;
+    private int imax, fmax;
+    private int intReads, floatReads;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public Bytecode compile(Program program) {
+        declareVars(program.unitList);
+        itop = imax = intNames.size();
+        ftop = fmax = floatNames.size();
+
+        compileUnitList(program.unitList);
+        emit(Bytecode.HALT);
+
+        long[] ipool = new long[intPool.size()];
+        for (int k = 0; k < ipool.length; k++) {
+            ipool[k] = intPool.get(k);
+        }
+        double[] fpool = new double[floatPool.size()];
+        for (int k = 0; k < fpool.length; k++) {
+            fpool[k] = floatPool.get(k);
+        }
+        boolean[] intInit = new boolean[intNames.size()];
+        boolean[] floatInit = new boolean[floatNames.size()];
+        for (VarDecl varDecl : alwaysDefined.keySet()) {
+            if (varDecl instanceof FloatVarDecl) {
+                floatInit[varRegs.get(varDecl)] = true;
+            } else {
+                intInit[varRegs.get(varDecl)] = true;
+            }
+        }
+        int[] trimmed = new int[size];
+        System.arraycopy(code, 0, trimmed, 0, size);
+
+        return new Bytecode(trimmed, ipool, fpool,
+            intNames.toArray(new String[intNames.size()]),
+            floatNames.toArray(new String[floatNames.size()]),
+            intInit, floatInit, imax, fmax, intReads, floatReads);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Registers
+
+    private void declareVars(UnitList ul) {
+        for (Unit unit : ul.units) {
+            declareVars(unit);
+        }
+    }
+
+    private void declareVars(Unit unit) {
+        if (unit instanceof Decl) {
+            Decl decl = (Decl) unit;
+            if (decl.varDecl instanceof IntVarDecl) {
+                varRegs.put(decl.varDecl, intNames.size());
+                intNames.add(decl.varDecl.ident);
+            } else {
+                varRegs.put(decl.varDecl, floatNames.size());
+                floatNames.add(decl.varDecl.ident);
+            }
+            if (decl.expr != null) {
+                alwaysDefined.put(decl.varDecl, Boolean.TRUE);
+            }
+        }
+        if (unit instanceof BlockStmt) {
+            declareVars(((BlockStmt) unit).block);
+        }
+        if (unit instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) unit;
+            declareVars(ifStmt.thenstmt);
+            if (ifStmt.elsestmt != null) {
+                declareVars(ifStmt.elsestmt);
+            }
+        }
+        if (unit instanceof WhileStmt) {
+            declareVars(((WhileStmt) unit).body);
+        }
+    }
+
+    private int newTemp(boolean isFloat) {
+        if (isFloat) {
+            fmax = Math.max(fmax, ftop + 1);
+            return ftop++;
+        }
+        imax = Math.max(imax, itop + 1);
+        return itop++;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Emission
+
+    private void emit(int... words) {
+        if (size + words.length > code.length) {
+            int[] grown = new int[Math.max(code.length * 2, size + words.length)];
+            System.arraycopy(code, 0, grown, 0, size);
+            code = grown;
+        }
+        for (int w : words) {
+            code[size++] = w;
+        }
+    }
+
+    private void emitTarget(Label label) {
+        if (label.pc < 0) {
+            label.refs.add(size);
+        }
+        emit(label.pc);
+    }
+
+    private void bind(Label label) {
+        label.pc = size;
+        for (int ref : label.refs) {
+            code[ref] = size;
+        }
+    }
+
+    private int intConst(Long value) {
+        Integer k = intPoolIndex.get(value);
+        if (k == null) {
+            k = intPool.size();
+            intPool.add(value);
+            intPoolIndex.put(value, k);
+        }
+        return k;
+    }
+
+    private int floatConst(Double value) {
+        Integer k = floatPoolIndex.get(value);
+        if (k == null) {
+            k = floatPool.size();
+            floatPool.add(value);
+            floatPoolIndex.put(value, k);
+        }
+        return k;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Expr
+
+    // Evaluates expr into dst, or into any register when dst is negative.
+    private Operand compileExpr(Expr expr, int dst) {
+        if (expr instanceof IntConstExpr) {
+            int d = dst >= 0 ? dst : newTemp(false);
+            emit(Bytecode.ICONST, d, intConst(((IntConstExpr) expr).ival));
+            return new Operand(d, false);
+        }
+        if (expr instanceof FloatConstExpr) {
+            int d = dst >= 0 ? dst : newTemp(true);
+            emit(Bytecode.FCONST, d, floatConst(((FloatConstExpr) expr).fval));
+            return new Operand(d, true);
+        }
+        if (expr instanceof IdentExpr) {
+            return compileIdentExpr((IdentExpr) expr, dst);
+        }
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binExpr = (BinaryExpr) expr;
+            int imark = itop, fmark = ftop;
+            Operand left = compileExpr(binExpr.expr1, -1);
+            Operand right = compileExpr(binExpr.expr2, -1);
+            itop = imark;
+            ftop = fmark;
+            int d = dst >= 0 ? dst : newTemp(left.isFloat);
+            emit(binaryOp(binExpr.op, left.isFloat), d, left.reg, right.reg);
+            return new Operand(d, left.isFloat);
+        }
+        if (expr instanceof UnaryMinusExpr) {
+            int imark = itop, fmark = ftop;
+            Operand value = compileExpr(((UnaryMinusExpr) expr).expr, -1);
+            itop = imark;
+            ftop = fmark;
+            int d = dst >= 0 ? dst : newTemp(value.isFloat);
+            emit(value.isFloat ? Bytecode.FNEG : Bytecode.INEG, d, value.reg);
+            return new Operand(d, value.isFloat);
+        }
+        if (expr instanceof ReadIntExpr) {
+            int d = dst >= 0 ? dst : newTemp(false);
+            emit(Bytecode.IREAD, d, intReads++);
+            return new Operand(d, false);
+        }
+        if (expr instanceof ReadFloatExpr) {
+            int d = dst >= 0 ? dst : newTemp(true);
+            emit(Bytecode.FREAD, d, floatReads++);
+            return new Operand(d, true);
+        }
+
+        throw new RuntimeException("Expression is not valid");
+    }
+
+    private Operand compileIdentExpr(IdentExpr identExpr, int dst) {
+        VarDecl[] chain = identExpr.decl.chain;
+        boolean isFloat = identExpr.decl instanceof FloatVarDecl;
+
+        // candidates up to (and including) the first one that surely has a value
+        int n = 0;
+        while (n < chain.length && !alwaysDefined.containsKey(chain[n])) {
+            n++;
+        }
+        if (n < chain.length) {
+            n++;
+        }
+
+        if (n == 1) {
+            int reg = varRegs.get(chain[0]);
+            if (!alwaysDefined.containsKey(chain[0])) {
+                emit(isFloat ? Bytecode.FCHK : Bytecode.ICHK, reg);
+            }
+            if (dst >= 0 && dst != reg) {
+                emit(isFloat ? Bytecode.FMOV : Bytecode.IMOV, dst, reg);
+                return new Operand(dst, isFloat);
+            }
+            return new Operand(reg, isFloat);
+        }
+
+        int d = dst >= 0 ? dst : newTemp(isFloat);
+        emit(isFloat ? Bytecode.FSEL : Bytecode.ISEL, d, n);
+        for (int k = 0; k < n; k++) {
+            emit(varRegs.get(chain[k]));
+        }
+        return new Operand(d, isFloat);
+    }
+
+    private static int binaryOp(int op, boolean isFloat) {
+        switch (op) {
+            case BinaryExpr.PLUS: return isFloat ? Bytecode.FADD : Bytecode.IADD;
+            case BinaryExpr.MINUS: return isFloat ? Bytecode.FSUB : Bytecode.ISUB;
+            case BinaryExpr.TIMES: return isFloat ? Bytecode.FMUL : Bytecode.IMUL;
+            case BinaryExpr.DIV: return isFloat ? Bytecode.FDIV : Bytecode.IDIV;
+        }
+        throw new RuntimeException("BinaryExpr is not valid");
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // CondExpr
+
+    // Jumps to target when cond evaluates to jumpWhen, falls through otherwise.
+    private void compileCondExpr(CondExpr cond, boolean jumpWhen, Label target) {
+        if (cond instanceof CompExpr) {
+            CompExpr compExpr = (CompExpr) cond;
+            int imark = itop, fmark = ftop;
+            Operand left = compileExpr(compExpr.expr1, -1);
+            Operand right = compileExpr(compExpr.expr2, -1);
+            itop = imark;
+            ftop = fmark;
+            emit(compareOp(compExpr.op, left.isFloat, jumpWhen), left.reg, right.reg);
+            emitTarget(target);
+            return;
+        }
+
+        LogicalExpr logicalExpr = (LogicalExpr) cond;
+        if (logicalExpr.op == LogicalExpr.NOT) {
+            compileCondExpr(logicalExpr.expr1, !jumpWhen, target);
+            return;
+        }
+        // short-circuit: the right operand only runs if the left one did not decide
+        boolean decidesAt = logicalExpr.op == LogicalExpr.OR;
+        if (jumpWhen == decidesAt) {
+            compileCondExpr(logicalExpr.expr1, jumpWhen, target);
+            compileCondExpr(logicalExpr.expr2, jumpWhen, target);
+            return;
+        }
+        Label skip = new Label();
+        compileCondExpr(logicalExpr.expr1, decidesAt, skip);
+        compileCondExpr(logicalExpr.expr2, jumpWhen, target);
+        bind(skip);
+    }
+
+    private static int compareOp(int op, boolean isFloat, boolean jumpWhen) {
+        if (!isFloat) {
+            switch (op) {
+                case CompExpr.EQ: return jumpWhen ? Bytecode.IJEQ : Bytecode.IJNE;
+                case CompExpr.NE: return jumpWhen ? Bytecode.IJNE : Bytecode.IJEQ;
+                case CompExpr.LT: return jumpWhen ? Bytecode.IJLT : Bytecode.IJGE;
+                case CompExpr.GE: return jumpWhen ? Bytecode.IJGE : Bytecode.IJLT;
+                case CompExpr.GT: return jumpWhen ? Bytecode.IJGT : Bytecode.IJLE;
+                case CompExpr.LE: return jumpWhen ? Bytecode.IJLE : Bytecode.IJGT;
+            }
+        } else {
+            switch (op) {
+                case CompExpr.EQ: return jumpWhen ? Bytecode.FJEQ : Bytecode.FJNE;
+                case CompExpr.NE: return jumpWhen ? Bytecode.FJNE : Bytecode.FJEQ;
+                case CompExpr.LT: return jumpWhen ? Bytecode.FJLT : Bytecode.FJNLT;
+                case CompExpr.GE: return jumpWhen ? Bytecode.FJGE : Bytecode.FJNGE;
+                case CompExpr.GT: return jumpWhen ? Bytecode.FJGT : Bytecode.FJNGT;
+                case CompExpr.LE: return jumpWhen ? Bytecode.FJLE : Bytecode.FJNLE;
+            }
+        }
+        throw new RuntimeException("CompExpr is not valid");
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Stmt
+
+    private void compileStmt(Stmt stmt) {
+        if (stmt instanceof BlockStmt) {
+            compileUnitList(((BlockStmt) stmt).block);
+            return;
+        }
+        if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            Label elseLabel = new Label();
+            compileCondExpr(ifStmt.expr, false, elseLabel);
+            compileStmt(ifStmt.thenstmt);
+            if (ifStmt.elsestmt == null) {
+                bind(elseLabel);
+                return;
+            }
+            Label endLabel = new Label();
+            emit(Bytecode.JMP);
+            emitTarget(endLabel);
+            bind(elseLabel);
+            compileStmt(ifStmt.elsestmt);
+            bind(endLabel);
+            return;
+        }
+        if (stmt instanceof WhileStmt) {
+            // test at the bottom: one branch per iteration
+            WhileStmt whileStmt = (WhileStmt) stmt;
+            Label bodyLabel = new Label();
+            Label condLabel = new Label();
+            emit(Bytecode.JMP);
+            emitTarget(condLabel);
+            bind(bodyLabel);
+            compileStmt(whileStmt.body);
+            bind(condLabel);
+            compileCondExpr(whileStmt.expr, true, bodyLabel);
+            return;
+        }
+        if (stmt instanceof AssignStmt) {
+            AssignStmt assignStmt = (AssignStmt) stmt;
+            store(assignStmt.decl, assignStmt.expr);
+            return;
+        }
+        if (stmt instanceof PrintStmt) {
+            Operand value = compileExpr(((PrintStmt) stmt).expr, -1);
+            emit(value.isFloat ? Bytecode.FPRINT : Bytecode.IPRINT, value.reg);
+            resetTemps();
+            return;
+        }
+
+        throw new RuntimeException("Unknown Stmt type");
+    }
+
+    private void store(VarDecl varDecl, Expr expr) {
+        int reg = varRegs.get(varDecl);
+        boolean isFloat = varDecl instanceof FloatVarDecl;
+        if (alwaysDefined.containsKey(varDecl)) {
+            compileExpr(expr, reg);
+        } else {
+            Operand value = compileExpr(expr, -1);
+            emit(isFloat ? Bytecode.FSTORE : Bytecode.ISTORE, reg, value.reg);
+        }
+        resetTemps();
+    }
+
+    // temporaries are dead once a statement completes
+    private void resetTemps() {
+        itop = intNames.size();
+        ftop = floatNames.size();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Unit
+
+    private void compileUnit(Unit unit) {
+        if (unit instanceof Decl) {
+            Decl decl = (Decl) unit;
+            if (decl.expr != null) {
+                store(decl.varDecl, decl.expr);
+                return;
+            }
+            boolean isFloat = decl.varDecl instanceof FloatVarDecl;
+            emit(isFloat ? Bytecode.FDECL : Bytecode.IDECL, varRegs.get(decl.varDecl));
+            return;
+        }
+        compileStmt((Stmt) unit);
+    }
+
+    private void compileUnitList(UnitList ul) {
+        for (Unit unit : ul.units) {
+            compileUnit(unit);
+        }
+    }
+}
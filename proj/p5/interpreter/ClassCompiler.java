@@ -0,0 +1,590 @@
+package interpreter;
+
+import ast.AstErrorHandler;
+import ast.InputReader;
+import ast.OutputSink;
+import ast.RuntimeMeta;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Translates Bytecode into a JVM class and loads it as a hidden class, so
+ * HotSpot compiles the user program like any other Java method.
+ *
+ * The class has a single static method, int run(InputReader, OutputSink),
+ * returning the ordinal of the resulting AstErrorHandler.ErrorCode. Every VM
+ * register becomes a long/double local, every jump a JVM branch. The class
+ * file is emitted as version 49 so the type-inferring verifier applies and no
+ * StackMapTable has to be computed. compile() returns null for any program
+ * the class file format cannot hold (method too long, branch too far, too
+ * many locals or constants); the caller then runs the tree walker instead.
+ */
+public final class ClassCompiler {
+    private static final String CLASS_NAME = "interpreter/CompiledProgram";
+    private static final String HELPER = "interpreter/CompiledHelper";
+    private static final String INPUT = "Last/InputReader;";
+    private static final String SINK = "Last/OutputSink;";
+
+    // JVM opcodes
+    private static final int ICONST_0 = 3, LCONST_0 = 9, DCONST_0 = 14, BIPUSH = 16;
+    private static final int LDC_W = 19, LDC2_W = 20;
+    private static final int ILOAD = 21, LLOAD = 22, DLOAD = 24, ALOAD_0 = 42, ALOAD_1 = 43;
+    private static final int ISTORE = 54, LSTORE = 55, DSTORE = 57;
+    private static final int LADD = 97, DADD = 99, LSUB = 101, DSUB = 103;
+    private static final int LMUL = 105, DMUL = 107, LDIV = 109, DDIV = 111;
+    private static final int LNEG = 117, DNEG = 119;
+    private static final int LCMP = 148, DCMPL = 151, DCMPG = 152;
+    private static final int IFEQ = 153, IFNE = 154, IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158;
+    private static final int GOTO = 167, IRETURN = 172;
+    private static final int INVOKEVIRTUAL = 182, INVOKESTATIC = 184;
+    private static final int ATHROW = 191, WIDE = 196;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private DataOutputStream pool = new DataOutputStream(poolBytes);
+    private HashMap<String,Integer> poolIndex = new HashMap<String,Integer>();
+    private int poolCount = 1;
+
+    private byte[] code = new byte[1024];
+    private int size = 0;
+
+    private Bytecode bc;
+    private int floatBase, intFlagBase, floatFlagBase, intReadBase, floatReadBase, maxLocals;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public MethodHandle compile(Bytecode bc) {
+        this.bc = bc;
+        // slots 0 and 1 hold the InputReader and the OutputSink; longs and
+        // doubles take two slots
+        floatBase = 2 + 2 * bc.intRegs;
+        intFlagBase = floatBase + 2 * bc.floatRegs;
+        floatFlagBase = intFlagBase + bc.intVars.length;
+        intReadBase = floatFlagBase + bc.floatVars.length;
+        floatReadBase = intReadBase + 3 * bc.intReads;
+        maxLocals = floatReadBase + 3 * bc.floatReads;
+        if (maxLocals > 0xFFFF) {
+            return null;
+        }
+
+        byte[] classFile;
+        try {
+            if (!emitMethod()) {
+                return null;
+            }
+            classFile = emitClass();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        if (classFile == null) {
+            return null;
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            return lookup.findStatic(lookup.lookupClass(), "run",
+                MethodType.methodType(int.class, InputReader.class, OutputSink.class));
+        } catch (IllegalAccessException | NoSuchMethodException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    public static RuntimeMeta run(MethodHandle program, InputReader input, OutputSink out) {
+        int res;
+        try {
+            res = (int) program.invokeExact(input, out);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+        AstErrorHandler.ErrorCode code = AstErrorHandler.ErrorCode.values()[res];
+        if (AstErrorHandler.isSuccessful(code)) {
+            return RuntimeMeta.createSuccess(null);
+        }
+        return RuntimeMeta.createError(code);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Method body
+
+    private boolean emitMethod() throws IOException {
+        int[] vm = bc.code;
+        int[] jvmPc = new int[vm.length];
+        ArrayList<int[]> jumps = new ArrayList<int[]>(); // {branch pc, vm target}
+
+        // the verifier wants every local assigned before any read
+        for (int r = 0; r < bc.intRegs; r++) {
+            op(LCONST_0);
+            local(LSTORE, intReg(r));
+        }
+        for (int r = 0; r < bc.floatRegs; r++) {
+            op(DCONST_0);
+            local(DSTORE, floatReg(r));
+        }
+        for (int v = 0; v < bc.intVars.length; v++) {
+            op(bc.intInit[v] ? ICONST_0 + 1 : ICONST_0);
+            local(ISTORE, intFlagBase + v);
+        }
+        for (int v = 0; v < bc.floatVars.length; v++) {
+            op(bc.floatInit[v] ? ICONST_0 + 1 : ICONST_0);
+            local(ISTORE, floatFlagBase + v);
+        }
+        for (int s = 0; s < bc.intReads; s++) {
+            op(LCONST_0);
+            local(LSTORE, intReadBase + 3 * s);
+            op(ICONST_0);
+            local(ISTORE, intReadBase + 3 * s + 2);
+        }
+        for (int s = 0; s < bc.floatReads; s++) {
+            op(DCONST_0);
+            local(DSTORE, floatReadBase + 3 * s);
+            op(ICONST_0);
+            local(ISTORE, floatReadBase + 3 * s + 2);
+        }
+
+        int pc = 0;
+        while (pc < vm.length) {
+            jvmPc[pc] = size;
+            int a = pc + 1 < vm.length ? vm[pc + 1] : 0;
+            int b = pc + 2 < vm.length ? vm[pc + 2] : 0;
+            int c = pc + 3 < vm.length ? vm[pc + 3] : 0;
+            switch (vm[pc]) {
+                case Bytecode.ICONST:
+                    op(LDC2_W);
+                    u2(longConst(bc.intPool[b]));
+                    local(LSTORE, intReg(a));
+                    pc += 3;
+                    break;
+                case Bytecode.FCONST:
+                    op(LDC2_W);
+                    u2(doubleConst(bc.floatPool[b]));
+                    local(DSTORE, floatReg(a));
+                    pc += 3;
+                    break;
+                case Bytecode.IMOV:
+                    local(LLOAD, intReg(b));
+                    local(LSTORE, intReg(a));
+                    pc += 3;
+                    break;
+                case Bytecode.FMOV:
+                    local(DLOAD, floatReg(b));
+                    local(DSTORE, floatReg(a));
+                    pc += 3;
+                    break;
+                case Bytecode.ISTORE:
+                    local(LLOAD, intReg(b));
+                    local(LSTORE, intReg(a));
+                    op(ICONST_0 + 1);
+                    local(ISTORE, intFlagBase + a);
+                    pc += 3;
+                    break;
+                case Bytecode.FSTORE:
+                    local(DLOAD, floatReg(b));
+                    local(DSTORE, floatReg(a));
+                    op(ICONST_0 + 1);
+                    local(ISTORE, floatFlagBase + a);
+                    pc += 3;
+                    break;
+                case Bytecode.IDECL:
+                    op(ICONST_0);
+                    local(ISTORE, intFlagBase + a);
+                    pc += 2;
+                    break;
+                case Bytecode.FDECL:
+                    op(ICONST_0);
+                    local(ISTORE, floatFlagBase + a);
+                    pc += 2;
+                    break;
+                case Bytecode.ICHK:
+                case Bytecode.FCHK: {
+                    boolean isFloat = vm[pc] == Bytecode.FCHK;
+                    local(ILOAD, (isFloat ? floatFlagBase : intFlagBase) + a);
+                    int skip = branch(IFNE);
+                    throwNotDeclared(isFloat ? bc.floatVars[a] : bc.intVars[a]);
+                    bind(skip);
+                    pc += 2;
+                    break;
+                }
+                case Bytecode.ISEL:
+                case Bytecode.FSEL: {
+                    boolean isFloat = vm[pc] == Bytecode.FSEL;
+                    int[] ends = new int[b];
+                    for (int k = 0; k < b; k++) {
+                        int v = vm[pc + 3 + k];
+                        local(ILOAD, (isFloat ? floatFlagBase : intFlagBase) + v);
+                        int next = branch(IFEQ);
+                        local(isFloat ? DLOAD : LLOAD, isFloat ? floatReg(v) : intReg(v));
+                        local(isFloat ? DSTORE : LSTORE, isFloat ? floatReg(a) : intReg(a));
+                        ends[k] = branch(GOTO);
+                        bind(next);
+                    }
+                    throwNotDeclared(isFloat ? bc.floatVars[vm[pc + 3]] : bc.intVars[vm[pc + 3]]);
+                    for (int end : ends) {
+                        bind(end);
+                    }
+                    pc += 3 + b;
+                    break;
+                }
+                case Bytecode.IADD: arith(LADD, false, a, b, c); pc += 4; break;
+                case Bytecode.ISUB: arith(LSUB, false, a, b, c); pc += 4; break;
+                case Bytecode.IMUL: arith(LMUL, false, a, b, c); pc += 4; break;
+                case Bytecode.FADD: arith(DADD, true, a, b, c); pc += 4; break;
+                case Bytecode.FSUB: arith(DSUB, true, a, b, c); pc += 4; break;
+                case Bytecode.FMUL: arith(DMUL, true, a, b, c); pc += 4; break;
+                case Bytecode.IDIV: {
+                    local(LLOAD, intReg(c));
+                    op(LCONST_0);
+                    op(LCMP);
+                    int ok = branch(IFNE);
+                    returnCode(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+                    bind(ok);
+                    arith(LDIV, false, a, b, c);
+                    pc += 4;
+                    break;
+                }
+                case Bytecode.FDIV: {
+                    local(DLOAD, floatReg(c));
+                    op(DCONST_0);
+                    op(DCMPL);
+                    int ok = branch(IFNE);
+                    returnCode(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+                    bind(ok);
+                    arith(DDIV, true, a, b, c);
+                    pc += 4;
+                    break;
+                }
+                case Bytecode.INEG:
+                    local(LLOAD, intReg(b));
+                    op(LNEG);
+                    local(LSTORE, intReg(a));
+                    pc += 3;
+                    break;
+                case Bytecode.FNEG:
+                    local(DLOAD, floatReg(b));
+                    op(DNEG);
+                    local(DSTORE, floatReg(a));
+                    pc += 3;
+                    break;
+                case Bytecode.IREAD: {
+                    int cache = intReadBase + 3 * b;
+                    local(ILOAD, cache + 2);
+                    int cached = branch(IFNE);
+                    op(ALOAD_0);
+                    invokeHelper("hasInt", "(" + INPUT + ")Z");
+                    int ok = branch(IFNE);
+                    returnCode(AstErrorHandler.ErrorCode.FAILED_STDIN_READ);
+                    bind(ok);
+                    op(ALOAD_0);
+                    invokeHelper("readInt", "(" + INPUT + ")J");
+                    local(LSTORE, cache);
+                    op(ICONST_0 + 1);
+                    local(ISTORE, cache + 2);
+                    bind(cached);
+                    local(LLOAD, cache);
+                    local(LSTORE, intReg(a));
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.FREAD: {
+                    int cache = floatReadBase + 3 * b;
+                    local(ILOAD, cache + 2);
+                    int cached = branch(IFNE);
+                    op(ALOAD_0);
+                    invokeHelper("readFloat", "(" + INPUT + ")D");
+                    local(DSTORE, cache);
+                    op(ICONST_0 + 1);
+                    local(ISTORE, cache + 2);
+                    bind(cached);
+                    local(DLOAD, cache);
+                    local(DSTORE, floatReg(a));
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.IPRINT:
+                case Bytecode.FPRINT: {
+                    boolean isFloat = vm[pc] == Bytecode.FPRINT;
+                    op(ALOAD_1);
+                    local(isFloat ? DLOAD : LLOAD, isFloat ? floatReg(a) : intReg(a));
+                    op(INVOKEVIRTUAL);
+                    u2(member(10, "ast/OutputSink", isFloat ? "printFloat" : "printInt", isFloat ? "(D)V" : "(J)V"));
+                    pc += 2;
+                    break;
+                }
+                case Bytecode.JMP:
+                    jumps.add(new int[] {branch(GOTO), a});
+                    pc += 2;
+                    break;
+                case Bytecode.HALT:
+                    returnCode(AstErrorHandler.ErrorCode.SUCCESS);
+                    pc += 1;
+                    break;
+                default: {
+                    int cmp = compareBranch(vm[pc], a, b);
+                    jumps.add(new int[] {branch(cmp), c});
+                    pc += 4;
+                    break;
+                }
+            }
+        }
+
+        for (int[] jump : jumps) {
+            if (!patch(jump[0], jvmPc[jump[1]])) {
+                return false;
+            }
+        }
+        return size <= 0xFFFF && poolCount <= 0xFFFF;
+    }
+
+    // Pushes the comparison for a VM compare-and-branch, returns the JVM branch.
+    private int compareBranch(int vmOp, int a, int b) {
+        boolean isFloat = vmOp >= Bytecode.FJEQ;
+        local(isFloat ? DLOAD : LLOAD, isFloat ? floatReg(a) : intReg(a));
+        local(isFloat ? DLOAD : LLOAD, isFloat ? floatReg(b) : intReg(b));
+        // dcmpg yields 1 on NaN, dcmpl -1: pick the one that makes the
+        // branch fall through (or jump, for the negated forms) like Java does
+        switch (vmOp) {
+            case Bytecode.IJEQ: op(LCMP); return IFEQ;
+            case Bytecode.IJNE: op(LCMP); return IFNE;
+            case Bytecode.IJLT: op(LCMP); return IFLT;
+            case Bytecode.IJGE: op(LCMP); return IFGE;
+            case Bytecode.IJGT: op(LCMP); return IFGT;
+            case Bytecode.IJLE: op(LCMP); return IFLE;
+            case Bytecode.FJEQ: op(DCMPL); return IFEQ;
+            case Bytecode.FJNE: op(DCMPL); return IFNE;
+            case Bytecode.FJLT: op(DCMPG); return IFLT;
+            case Bytecode.FJGE: op(DCMPL); return IFGE;
+            case Bytecode.FJGT: op(DCMPL); return IFGT;
+            case Bytecode.FJLE: op(DCMPG); return IFLE;
+            case Bytecode.FJNLT: op(DCMPG); return IFGE;
+            case Bytecode.FJNGE: op(DCMPL); return IFLT;
+            case Bytecode.FJNGT: op(DCMPL); return IFLE;
+            case Bytecode.FJNLE: op(DCMPG); return IFGT;
+        }
+        throw new RuntimeException("Unknown opcode " + vmOp);
+    }
+
+    private void arith(int opcode, boolean isFloat, int dst, int a, int b) {
+        local(isFloat ? DLOAD : LLOAD, isFloat ? floatReg(a) : intReg(a));
+        local(isFloat ? DLOAD : LLOAD, isFloat ? floatReg(b) : intReg(b));
+        op(opcode);
+        local(isFloat ? DSTORE : LSTORE, isFloat ? floatReg(dst) : intReg(dst));
+    }
+
+    private void returnCode(AstErrorHandler.ErrorCode code) {
+        op(BIPUSH);
+        op(code.ordinal());
+        op(IRETURN);
+    }
+
+    private void throwNotDeclared(String ident) throws IOException {
+        op(LDC_W);
+        u2(stringConst(ident));
+        invokeHelper("notDeclared", "(Ljava/lang/String;)Ljava/lang/RuntimeException;");
+        op(ATHROW);
+    }
+
+    private void invokeHelper(String name, String desc) throws IOException {
+        op(INVOKESTATIC);
+        u2(member(10, HELPER, name, desc));
+    }
+
+    private int intReg(int r) {
+        return 2 + 2 * r;
+    }
+
+    private int floatReg(int r) {
+        return floatBase + 2 * r;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Code buffer
+
+    private void op(int b) {
+        if (size == code.length) {
+            byte[] grown = new byte[code.length * 2];
+            System.arraycopy(code, 0, grown, 0, size);
+            code = grown;
+        }
+        code[size++] = (byte) b;
+    }
+
+    private void u2(int v) {
+        op(v >> 8);
+        op(v);
+    }
+
+    // xLOAD/xSTORE of a local, using the short and wide forms where they apply
+    private void local(int opcode, int index) {
+        if (index <= 3) {
+            int shortBase = opcode < ISTORE ? 26 + (opcode - ILOAD) * 4 : 59 + (opcode - ISTORE) * 4;
+            op(shortBase + index);
+        } else if (index <= 0xFF) {
+            op(opcode);
+            op(index);
+        } else {
+            op(WIDE);
+            op(opcode);
+            u2(index);
+        }
+    }
+
+    // Emits a branch with an unresolved offset and returns its position.
+    private int branch(int opcode) {
+        int at = size;
+        op(opcode);
+        u2(0);
+        return at;
+    }
+
+    private void bind(int at) {
+        patch(at, size);
+    }
+
+    private boolean patch(int at, int target) {
+        int offset = target - at;
+        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+            return false;
+        }
+        code[at + 1] = (byte) (offset >> 8);
+        code[at + 2] = (byte) offset;
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Constant pool
+
+    private int utf8(String s) throws IOException {
+        Integer k = poolIndex.get("U" + s);
+        if (k == null) {
+            pool.writeByte(1);
+            pool.writeUTF(s);
+            k = poolCount++;
+            poolIndex.put("U" + s, k);
+        }
+        return k;
+    }
+
+    private int classRef(String name) throws IOException {
+        Integer k = poolIndex.get("C" + name);
+        if (k == null) {
+            int nameIndex = utf8(name);
+            pool.writeByte(7);
+            pool.writeShort(nameIndex);
+            k = poolCount++;
+            poolIndex.put("C" + name, k);
+        }
+        return k;
+    }
+
+    // tag 9 for a field, 10 for a method
+    private int member(int tag, String owner, String name, String desc) throws IOException {
+        String key = "M" + owner + "." + name + desc;
+        Integer k = poolIndex.get(key);
+        if (k == null) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descIndex = utf8(desc);
+            pool.writeByte(12);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descIndex);
+            int nameAndType = poolCount++;
+            pool.writeByte(tag);
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+            k = poolCount++;
+            poolIndex.put(key, k);
+        }
+        return k;
+    }
+
+    private int stringConst(String s) throws IOException {
+        Integer k = poolIndex.get("S" + s);
+        if (k == null) {
+            int index = utf8(s);
+            pool.writeByte(8);
+            pool.writeShort(index);
+            k = poolCount++;
+            poolIndex.put("S" + s, k);
+        }
+        return k;
+    }
+
+    private int longConst(long v) throws IOException {
+        Integer k = poolIndex.get("J" + v);
+        if (k == null) {
+            pool.writeByte(5);
+            pool.writeLong(v);
+            k = poolCount;
+            poolCount += 2;
+            poolIndex.put("J" + v, k);
+        }
+        return k;
+    }
+
+    private int doubleConst(double v) throws IOException {
+        String key = "D" + Double.doubleToRawLongBits(v);
+        Integer k = poolIndex.get(key);
+        if (k == null) {
+            pool.writeByte(6);
+            pool.writeDouble(v);
+            k = poolCount;
+            poolCount += 2;
+            poolIndex.put(key, k);
+        }
+        return k;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Class file
+
+    private byte[] emitClass() throws IOException {
+        int thisClass = classRef(CLASS_NAME);
+        int superClass = classRef("java/lang/Object");
+        int runName = utf8("run");
+        int runDesc = utf8("(" + INPUT + SINK + ")I");
+        int codeName = utf8("Code");
+        if (poolCount > 0xFFFF) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        out.writeShort(poolCount);
+        pool.flush();
+        poolBytes.writeTo(out);
+        out.writeShort(0x0031); // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(1); // methods
+        out.writeShort(0x0009); // public static
+        out.writeShort(runName);
+        out.writeShort(runDesc);
+        out.writeShort(1); // attributes
+        out.writeShort(codeName);
+        out.writeInt(12 + size);
+        out.writeShort(4); // max stack: two longs/doubles
+        out.writeShort(maxLocals);
+        out.writeInt(size);
+        out.write(code, 0, size);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+        out.writeShort(0); // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
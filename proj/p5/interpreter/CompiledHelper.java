@@ -0,0 +1,31 @@
+package interpreter;
+
+import ast.InputReader;
+import ast.ValueMeta;
+
+/**
+ * Static entry points called from the classes generated by ClassCompiler.
+ * Kept package-private: the hidden classes live in this package.
+ */
+final class CompiledHelper {
+    private CompiledHelper() {}
+
+    static RuntimeException notDeclared(String ident) {
+        return new RuntimeException("Variable " + ident + " not declared");
+    }
+
+    static boolean hasInt(InputReader input) {
+        return input != null && input.peek() == ValueMeta.ValueType.INT;
+    }
+
+    static long readInt(InputReader input) {
+        return input.nextInt();
+    }
+
+    static double readFloat(InputReader input) {
+        if (input == null || input.peek() != ValueMeta.ValueType.FLOAT) {
+            throw new RuntimeException("Expression is not valid");
+        }
+        return input.nextFloat();
+    }
+}
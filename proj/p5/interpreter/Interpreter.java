@@ -1,20 +1,41 @@
 package interpreter;
 
 import ast.AstErrorHandler;
+import ast.InputReader;
+import ast.OutputSink;
+import ast.PassManager;
 import ast.Program;
+import ast.ProgramCodec;
+import ast.ProfilingRuntime;
+import ast.SymbolResolver;
 import ast.SymbolTableHelper;
 import ast.TypeCheck;
 import ast.ValueMeta;
+import ast.Runtime;
 import ast.RuntimeMeta;
 import ast.RealRuntime;
+import ast.NodeRuntime;
 import ast.AbstRuntime;
+import ast.AbstFacts;
 import java.io.*;
+import java.lang.invoke.MethodHandle;
 import java.util.*;
-import java.util.Scanner;
 import parser.ParserWrapper;
 
 ////////////////////////////////////////////////////////////////////////////////
 
+/**
+ * Runs one program per process, or with --serve, many programs on one warm
+ * JVM.
+ *
+ * A served request is framed on stdin as an int argument count, each
+ * argument as writeUTF (the program path first, as the server sees it, then
+ * the usual flags) and the program's stdin as an int length and its bytes.
+ * The answer on stdout is the int return code, then the program's stdout
+ * and stderr, each as an int length and its bytes. An exception the JVM
+ * would have reported for a single run answers with return code 1 and its
+ * stack trace as stderr. The server stops at the end of its stdin.
+ */
 public class Interpreter {
     // Process return codes
     public static final int EXIT_SUCCESS = 0;
@@ -25,63 +46,358 @@ public class Interpreter {
     public static final int EXIT_FAILED_STDIN_READ = 5;
     public static final int EXIT_DEAD_CODE = 6;
 
+    // stdin and PrintStmt output of the current run; output is flushed when
+    // the run ends and before any fatal error
+    private static InputStream input;
+    private static OutputSink output;
+    private static Phases phases;
+
+    // Nested blocks and expressions are still walked recursively, so the
+    // program runs on one thread with a deeper stack instead of the JVM giving
+    // every thread that stack (-ss). 64 MB takes blocks and expressions nested
+    // 60000 deep in every mode; deeper ones end with a StackOverflowError.
+    private static final long STACK_SIZE = 1L << 26;
+
     ////////////////////////////////////////////////////////////////////////////
 
-    public static void main(String[] args) {
-        String filename = args[0];
-        Program astRoot = null;
-        BufferedReader reader;
+    public static void main(String[] args) throws InterruptedException {
+        // --serve: answer framed requests from stdin until it ends
+        boolean serve = Arrays.asList(args).contains("--serve");
+        int[] status = new int[1];
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                if (serve) {
+                    serve(System.in, System.out);
+                } else {
+                    status[0] = run(args, System.in, System.out);
+                }
+            } catch (Throwable ex) {
+                failure[0] = ex;
+            }
+        }, "interpreter", STACK_SIZE);
+        thread.start();
+        thread.join();
+        if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException) failure[0];
+        }
+        if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        }
+        if (failure[0] != null) {
+            throw new RuntimeException(failure[0]);
+        }
+        if (status[0] != EXIT_SUCCESS) {
+            System.exit(status[0]);
+        }
+    }
+
+    // Runs one program on in and out, and returns its process return code.
+    public static int run(String[] args, InputStream in, OutputStream out) {
+        input = in;
+        output = new OutputSink(out);
+        // --metrics: end the run with a summary line of its phases on
+        // stderr (see Phases)
+        phases = new Phases(args[0], Arrays.asList(args).contains("--metrics"));
+        int code = 1; // what the JVM returns for an uncaught exception
         try {
-            reader = new BufferedReader(new FileReader(filename));
+            interpret(args);
+            code = EXIT_SUCCESS;
+        } catch (Exit ex) {
+            code = ex.code;
+        } finally {
+            output.flush();
+            phases.finish(code, System.err);
+        }
+        return code;
+    }
+
+    private static void interpret(String[] args) {
+        String filename = args[0];
+        // --real: run the program concretely (RealRuntime) instead of the
+        // default abstract interpretation
+        boolean real = Arrays.asList(args).contains("--real");
+        // --vm: run concretely on the bytecode VirtualMachine instead
+        boolean vm = Arrays.asList(args).contains("--vm");
+        // --jit: run concretely as a generated JVM class, falling back to
+        // RealRuntime for programs the ClassCompiler cannot translate
+        boolean jit = Arrays.asList(args).contains("--jit");
+        // --nodes: run concretely on specialized executable nodes (NodeRuntime)
+        boolean nodes = Arrays.asList(args).contains("--nodes");
+        // --specialize: run the abstract interpretation first and let
+        // RealRuntime or NodeRuntime skip the division checks it proved
+        boolean specialize = Arrays.asList(args).contains("--specialize");
+        // --cache: keep the checked program, and the result of the abstract
+        // run, by the hash of the source text (see ProgramCache);
+        // --cache=DIR keeps them in DIR instead of the user's cache directory
+        ProgramCache cache = null;
+        for (String arg : args) {
+            if (arg.equals("--cache") || arg.startsWith("--cache=")) {
+                cache = ProgramCache.open(arg.startsWith("--cache=") ? arg.substring("--cache=".length()) : null);
+            }
+        }
+        // --profile: count and time the statements the Runtime runs and
+        // report the hottest ones on stderr; --profile=FILE also writes
+        // their collapsed stacks to FILE, for flame graphs
+        String profile = null;
+        for (String arg : args) {
+            if (arg.equals("--profile") || arg.startsWith("--profile=")) {
+                profile = arg.substring("--profile".length());
+            }
+        }
+        if (profile != null && (vm || jit)) {
+            throw new RuntimeException("--profile is not valid with --vm or --jit");
+        }
+        boolean concrete = real || vm || jit || nodes;
+        String mode = jit ? "jit" : vm ? "vm" : nodes ? "nodes" : real ? "real" : "abstract";
+
+        phases.enter("load");
+        byte[] source;
+        try (InputStream in = new FileInputStream(filename)) {
+            source = in.readAllBytes();
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
-        try {
-            astRoot = ParserWrapper.parse(reader, filename);
-        } catch (Exception ex) {
-            Interpreter.fatalError("Uncaught parsing error: " + ex, EXIT_PARSING_ERROR);
+        String key = cache != null ? cache.key(source) : null;
+
+        // the abstract run reads no input, so its output and verdict only
+        // depend on the source text; a profile needs it to actually run
+        boolean cacheResult = key != null && !concrete && profile == null;
+        if (cacheResult) {
+            ProgramCache.Entry result = cache.get(key, "abst");
+            if (result != null) {
+                output.write(result.data);
+                exit(result.code);
+                return;
+            }
         }
 
-        // type checking. If the program does not typecheck,
-        // call fatalError with return code EXIT_STATIC_CHECKING_ERROR
-        Stack<Map<String,ValueMeta>> symbolTables = new Stack<Map<String,ValueMeta>>();
-        SymbolTableHelper symbolTableHelper = new SymbolTableHelper(symbolTables);
-        TypeCheck typeCheck = new TypeCheck(symbolTableHelper);
-        AstErrorHandler.ErrorCode code = astRoot.checkType(typeCheck);
-        if (!AstErrorHandler.isSuccessful(code)) {
-            if (code == AstErrorHandler.ErrorCode.STATIC_CHECKING_ERROR) {
-                Interpreter.fatalError("Uncaught static checking error", EXIT_STATIC_CHECKING_ERROR);
+        Program astRoot = null;
+        ProgramCache.Entry checked = key != null ? cache.get(key, "checked") : null;
+        if (checked != null) {
+            exit(checked.code);
+            try {
+                astRoot = ProgramCodec.decode(checked.data);
+            } catch (RuntimeException ex) {
+                // an intact entry this build cannot decode; parse instead
+                cache.remove(key, "checked");
             }
-            if (code == AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR) {
-                Interpreter.fatalError("Uncaught uninitialized variable error", EXIT_UNINITIALIZED_VAR_ERROR);
+        }
+        if (astRoot == null) {
+            phases.enter("parse");
+            astRoot = parse(source, filename);
+
+            // type checking. If the program does not typecheck,
+            // call fatalError with return code EXIT_STATIC_CHECKING_ERROR
+            phases.enter("check");
+            Stack<Map<String,ValueMeta>> symbolTables = new Stack<Map<String,ValueMeta>>();
+            SymbolTableHelper symbolTableHelper = new SymbolTableHelper(symbolTables);
+            TypeCheck typeCheck = new TypeCheck(symbolTableHelper);
+            int code = exitCode(astRoot.checkType(typeCheck));
+            if (key != null) {
+                cache.put(key, "checked", code, code == EXIT_SUCCESS ? ProgramCodec.encode(astRoot) : new byte[0]);
             }
+            exit(code);
+        }
+
+        // fold constants and prune constant branches for the concrete runs;
+        // the abstract run reports dead branches, so it sees them as written
+        phases.enter("prepare");
+        if (concrete) {
+            astRoot = PassManager.optimizer().run(astRoot);
         }
 
-        // run the program w/ AbstRuntime
-        Stack<Map<String,ValueMeta>> symbolTablesRun = new Stack<Map<String,ValueMeta>>();
-        SymbolTableHelper symbolTableHelperRun = new SymbolTableHelper(symbolTablesRun);
-        AbstRuntime runtime = new AbstRuntime(symbolTableHelperRun);
-        RuntimeMeta runtimeMeta = astRoot.run(runtime);
+        // resolve identifiers to frame slots
+        astRoot.resolve(new SymbolResolver());
+        MethodHandle compiled = jit ? new ClassCompiler().compile(new BytecodeCompiler().compile(astRoot)) : null;
+        // only the tree runtimes read the facts; compiled code does not
+        if (specialize && (real || nodes || (jit && compiled == null))) {
+            AbstFacts.specialize(astRoot);
+        }
+
+        // run the program w/ AbstRuntime (or RealRuntime, NodeRuntime, or the
+        // VirtualMachine), through a ProfilingRuntime for --profile
+        RuntimeMeta runtimeMeta;
+        phases.enter(mode);
+        ByteArrayOutputStream printed = cacheResult ? new ByteArrayOutputStream() : null;
+        ProfilingRuntime profiler = null;
+        OutputSink sink = printed != null ? new OutputSink(printed) : output;
+        try {
+            if (compiled != null) {
+                runtimeMeta = ClassCompiler.run(compiled, readInput(), output);
+            } else if (vm) {
+                Bytecode bytecode = new BytecodeCompiler().compile(astRoot);
+                runtimeMeta = new VirtualMachine(bytecode, readInput(), output).run();
+            } else {
+                Runtime runtime;
+                if (nodes) {
+                    runtime = new NodeRuntime(astRoot, readInput(), output);
+                } else if (real || jit) {
+                    runtime = new RealRuntime(astRoot, readInput(), output);
+                } else {
+                    runtime = new AbstRuntime(astRoot, sink);
+                }
+                if (profile != null) {
+                    runtime = profiler = new ProfilingRuntime(runtime);
+                }
+                runtimeMeta = astRoot.run(runtime);
+            }
+        } finally {
+            if (printed != null) {
+                sink.flush();
+                output.write(printed.toByteArray());
+            }
+            output.flush();
+            if (profiler != null) {
+                report(profiler, profile);
+            }
+        }
         if (runtimeMeta == null) {
             throw new RuntimeException("Failed to run the program");
         }
-        if (!runtimeMeta.isSuccessful()) {
-            if (runtimeMeta.getErrorCode() == AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR) {
-                Interpreter.fatalError("Division by zero error", EXIT_DIV_BY_ZERO_ERROR);
+        int code = exitCode(runtimeMeta.getErrorCode());
+        if (printed != null) {
+            cache.put(key, "abst", code, printed.toByteArray());
+        }
+        exit(code);
+    }
+
+    private static void report(ProfilingRuntime profiler, String profile) {
+        profiler.report(System.err);
+        System.err.flush();
+        if (profile.startsWith("=")) {
+            try (Writer writer = new BufferedWriter(new FileWriter(profile.substring(1)))) {
+                profiler.writeStacks(writer);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
             }
-            if (runtimeMeta.getErrorCode() == AstErrorHandler.ErrorCode.DEAD_CODE_ERROR) {
-                Interpreter.fatalError("Dead code error", EXIT_DEAD_CODE);
+        }
+    }
+
+    private static Program parse(byte[] source, String filename) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(source)));
+        try {
+            return ParserWrapper.parse(reader, filename);
+        } catch (Exit ex) {
+            throw ex;
+        } catch (Exception ex) {
+            Interpreter.fatalError("Uncaught parsing error: " + ex, EXIT_PARSING_ERROR);
+            return null;
+        }
+    }
+
+    // The process return code for an error of the checks or a run; errors
+    // without one let the run go on, as they always have.
+    private static int exitCode(AstErrorHandler.ErrorCode code) {
+        switch (code) {
+            case STATIC_CHECKING_ERROR:
+                return EXIT_STATIC_CHECKING_ERROR;
+            case UNINITIALIZED_VAR_ERROR:
+                return EXIT_UNINITIALIZED_VAR_ERROR;
+            case DIV_BY_ZERO_ERROR:
+                return EXIT_DIV_BY_ZERO_ERROR;
+            case FAILED_STDIN_READ:
+                return EXIT_FAILED_STDIN_READ;
+            case DEAD_CODE_ERROR:
+                return EXIT_DEAD_CODE;
+            default:
+                return EXIT_SUCCESS;
+        }
+    }
+
+    // Ends the run with the message for code, unless it is EXIT_SUCCESS.
+    private static void exit(int code) {
+        switch (code) {
+            case EXIT_STATIC_CHECKING_ERROR:
+                Interpreter.fatalError("Uncaught static checking error", code);
+                return;
+            case EXIT_UNINITIALIZED_VAR_ERROR:
+                Interpreter.fatalError("Uncaught uninitialized variable error", code);
+                return;
+            case EXIT_DIV_BY_ZERO_ERROR:
+                Interpreter.fatalError("Division by zero error", code);
+                return;
+            case EXIT_FAILED_STDIN_READ:
+                Interpreter.fatalError("Failed to read from stdin", code);
+                return;
+            case EXIT_DEAD_CODE:
+                Interpreter.fatalError("Dead code error", code);
+                return;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // for ReadIntExpr, ReadFloatExpr; stdin is only read as values are asked for
+    private static InputReader readInput() {
+        return new InputReader(input);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Server
+
+    private static void serve(InputStream in, OutputStream out) throws IOException {
+        DataInputStream requests = new DataInputStream(new BufferedInputStream(in));
+        DataOutputStream answers = new DataOutputStream(new BufferedOutputStream(out));
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        while (true) {
+            String[] args;
+            try {
+                args = new String[requests.readInt()];
+            } catch (EOFException ex) {
+                return;
             }
-            if (runtimeMeta.getErrorCode() == AstErrorHandler.ErrorCode.UNINITIALIZED_VAR_ERROR) {
-                Interpreter.fatalError("Uncaught uninitialized variable error", EXIT_UNINITIALIZED_VAR_ERROR);
+            for (int i = 0; i < args.length; i++) {
+                args[i] = requests.readUTF();
             }
+            byte[] stdin = new byte[requests.readInt()];
+            requests.readFully(stdin);
+
+            // anything else printing to System.out/err (CUP syntax errors)
+            // belongs to this request too
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(stdout, true));
+            System.setErr(new PrintStream(stderr, true));
+            int code;
+            try {
+                code = run(args, new ByteArrayInputStream(stdin), System.out);
+            } catch (RuntimeException | Error ex) {
+                ex.printStackTrace();
+                code = 1;
+            } finally {
+                System.setOut(systemOut);
+                System.setErr(systemErr);
+            }
+
+            answers.writeInt(code);
+            answers.writeInt(stdout.size());
+            stdout.writeTo(answers);
+            answers.writeInt(stderr.size());
+            stderr.writeTo(answers);
+            answers.flush();
         }
     }
 
     ////////////////////////////////////////////////////////////////////////////
 
+    // Ends the current run with processReturnCode.
     public static void fatalError(String message, int processReturnCode) {
-        System.out.println(message);
-        System.exit(processReturnCode);
+        output.flush();
+        output.println(message);
+        output.flush();
+        throw new Exit(processReturnCode);
+    }
+
+    private static final class Exit extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int code;
+
+        Exit(int code) {
+            super(null, null, false, false);
+            this.code = code;
+        }
     }
 }
@@ -0,0 +1,142 @@
+package interpreter;
+
+import ast.Events;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import jdk.jfr.Event;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * The phases of one run, one after the other: load, parse, check, prepare
+ * and the run itself, named by its mode (abstract, real, nodes, vm, jit).
+ *
+ * Every phase is an Events duration event, and with --metrics its time and
+ * the bytes its thread allocated also go on one summary line on stderr
+ * when the run ends, however it ends:
+ *
+ *   metrics program=s1 code=0 load.ns=.. load.bytes=.. parse.ns=.. ...
+ *       total.ns=.. total.bytes=.. gc.count=.. gc.ms=..
+ *
+ * Phases a run never gets to (a parse error ends it after parse) are left
+ * out. Without --metrics and Flight Recorder a phase costs next to nothing.
+ */
+final class Phases {
+    private final String program;
+    private final StringBuilder summary; // null without --metrics
+    private com.sun.management.ThreadMXBean threads;
+    private long startNanos;
+    private long startBytes;
+    private long startGcCount;
+    private long startGcMillis;
+
+    private String name; // of the current phase, null between phases
+    private Event event;
+    private long phaseNanos;
+    private long phaseBytes;
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    Phases(String program, boolean metrics) {
+        this.program = program;
+        this.summary = metrics ? new StringBuilder() : null;
+        if (summary != null) {
+            // only looked up for --metrics: the platform MXBeans take a
+            // while, and they start up Flight Recorder on the way
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            startGcCount = gcCount();
+            startGcMillis = gcMillis();
+            startNanos = System.nanoTime();
+            startBytes = threads.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+    // Ends the current phase, if any, and starts the next one.
+    void enter(String next) {
+        leave();
+        name = next;
+        event = Events.recording() ? event(next) : null;
+        if (event != null) {
+            event.begin();
+        }
+        if (summary != null) {
+            phaseNanos = System.nanoTime();
+            phaseBytes = threads.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+    private void leave() {
+        if (name == null) {
+            return;
+        }
+        if (event != null) {
+            event.commit();
+        }
+        if (summary != null) {
+            summary.append(' ').append(name).append(".ns=").append(System.nanoTime() - phaseNanos);
+            summary.append(' ').append(name).append(".bytes=").append(threads.getCurrentThreadAllocatedBytes() - phaseBytes);
+        }
+        name = null;
+        event = null;
+    }
+
+    // Ends the last phase and prints the summary of a run that returned code.
+    void finish(int code, PrintStream ps) {
+        leave();
+        if (summary == null) {
+            return;
+        }
+        ps.println("metrics program=" + program.replace(' ', '_') + " code=" + code + summary
+            + " total.ns=" + (System.nanoTime() - startNanos)
+            + " total.bytes=" + (threads.getCurrentThreadAllocatedBytes() - startBytes)
+            + " gc.count=" + (gcCount() - startGcCount)
+            + " gc.ms=" + (gcMillis() - startGcMillis));
+        ps.flush();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private Event event(String phase) {
+        Events.PhaseEvent event;
+        switch (phase) {
+            case "load":
+                event = new Events.Load();
+                break;
+            case "parse":
+                event = new Events.Parse();
+                break;
+            case "check":
+                event = new Events.StaticCheck();
+                break;
+            case "prepare":
+                event = new Events.Prepare();
+                break;
+            case "abstract":
+                event = new Events.AbstractRun();
+                break;
+            default:
+                Events.ConcreteRun run = new Events.ConcreteRun();
+                run.mode = phase;
+                event = run;
+        }
+        event.program = program;
+        return event;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += gc.getCollectionTime();
+        }
+        return millis;
+    }
+}
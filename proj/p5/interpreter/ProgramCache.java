@@ -0,0 +1,252 @@
+package interpreter;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Verdicts about source texts, keyed by their SHA-256, for --cache.
+ *
+ * An entry is a return code followed by whatever the Interpreter keeps
+ * with it (a checked program, the output of the abstract run). Entries live
+ * in memory, for the runs of one --serve process, and as files in a
+ * directory, for runs of separate processes: the one given as --cache=DIR,
+ * or $XDG_CACHE_HOME/plan (~/.cache/plan). The directory must belong to the
+ * user and be closed to everyone else (0700), since its entries are trusted
+ * as checked programs; otherwise only memory is used. Files beyond
+ * DISK_BYTES are deleted, least recently used first.
+ *
+ * Every key ends with the hash of the class files that make writes to
+ * interpreter/build.sha256, so a rebuilt interpreter never reads the
+ * entries of another build; without that file only memory is used. The
+ * cache is only ever an optimization: entries that cannot be written are
+ * dropped, and damaged ones are misses that are deleted.
+ */
+final class ProgramCache {
+    private static final int MEMORY_ENTRIES = 256;
+    private static final long DISK_BYTES = 128L << 20;
+    private static final Set<PosixFilePermission> PRIVATE = PosixFilePermissions.fromString("rwx------");
+    // an entry file is the code, the length of the data, the data and
+    // the CRC-32 of code and data
+    private static final int HEADER = 8;
+    private static final int TRAILER = 8;
+
+    private static final Map<String, Entry> memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    private static String build; // see build()
+
+    static final class Entry {
+        final int code;
+        final byte[] data;
+
+        Entry(int code, byte[] data) {
+            this.code = code;
+            this.data = data;
+        }
+    }
+
+    private final File dir; // null if entries only live in memory
+
+    private ProgramCache(File dir) {
+        this.dir = dir;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    // The cache in dir, or in the user's cache directory if dir is null.
+    static ProgramCache open(String dir) {
+        Path path;
+        if (dir != null) {
+            path = Paths.get(dir);
+        } else {
+            String xdg = System.getenv("XDG_CACHE_HOME");
+            path = xdg != null && !xdg.isEmpty()
+                ? Paths.get(xdg, "plan")
+                : Paths.get(System.getProperty("user.home"), ".cache", "plan");
+        }
+        return new ProgramCache(build() != null && isPrivate(path) ? path.toFile() : null);
+    }
+
+    // Creates path if it is missing, and tells whether it is a directory
+    // (not a link to one) of this user that no one else can read or write.
+    private static boolean isPrivate(Path path) {
+        try {
+            if (Files.notExists(path, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                Files.createDirectory(path, PosixFilePermissions.asFileAttribute(PRIVATE));
+            }
+            PosixFileAttributes attrs = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+            return attrs.isDirectory() && attrs.owner().equals(user) && attrs.permissions().equals(PRIVATE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
+    // The hash the Makefile writes over the class files (build.sha256, next
+    // to this class), null if it is missing.
+    private static String build() {
+        if (build != null) {
+            return build;
+        }
+        try {
+            Path classes = Paths.get(ProgramCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            byte[] hash = Files.readAllBytes(classes.resolve("interpreter").resolve("build.sha256"));
+            if (hash.length < 64) {
+                return null;
+            }
+            for (int i = 0; i < 64; i++) {
+                if (Character.digit(hash[i], 16) < 0) {
+                    return null;
+                }
+            }
+            build = new String(hash, 0, 16, StandardCharsets.US_ASCII);
+        } catch (IOException | URISyntaxException | RuntimeException ex) {
+            return null;
+        }
+        return build;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    String key(byte[] source) {
+        MessageDigest sha = sha256();
+        sha.update(source);
+        return hex(sha.digest()) + "-" + build;
+    }
+
+    // kind tells the entries of one key apart
+    Entry get(String key, String kind) {
+        String name = key + "." + kind;
+        Entry entry = memory.get(name);
+        if (entry != null || dir == null) {
+            return entry;
+        }
+        File file = new File(dir, name);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int code = in.readInt();
+            int length = in.readInt();
+            // checked against the file before anything is allocated for it
+            if (length < 0 || length != file.length() - HEADER - TRAILER) {
+                throw new IOException("Invalid length " + length);
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            if (in.readLong() != checksum(code, data)) {
+                throw new IOException("Invalid checksum");
+            }
+            entry = new Entry(code, data);
+        } catch (FileNotFoundException ex) {
+            return null;
+        } catch (IOException ex) {
+            file.delete();
+            return null;
+        }
+        // the time of use, for evict()
+        file.setLastModified(System.currentTimeMillis());
+        memory.put(name, entry);
+        return entry;
+    }
+
+    void put(String key, String kind, int code, byte[] data) {
+        String name = key + "." + kind;
+        memory.put(name, new Entry(code, data));
+        if (dir == null || HEADER + data.length + TRAILER > DISK_BYTES) {
+            return;
+        }
+        // written aside and renamed, so no run ever reads half an entry
+        try {
+            File temp = File.createTempFile(name, ".tmp", dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(code);
+                out.writeInt(data.length);
+                out.write(data);
+                out.writeLong(checksum(code, data));
+            }
+            Files.move(temp.toPath(), new File(dir, name).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // not cached on disk
+        }
+        evict();
+    }
+
+    // Drops an entry the Interpreter could not use although it was read
+    // intact, so the next run does not read it again.
+    void remove(String key, String kind) {
+        String name = key + "." + kind;
+        memory.remove(name);
+        if (dir != null) {
+            new File(dir, name).delete();
+        }
+    }
+
+    // Deletes the least recently used files until the rest fit DISK_BYTES.
+    private void evict() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long[] used = new long[files.length];
+        long bytes = 0;
+        for (int i = 0; i < files.length; i++) {
+            used[i] = files[i].lastModified();
+            bytes += files[i].length();
+        }
+        if (bytes <= DISK_BYTES) {
+            return;
+        }
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(used[a], used[b]));
+        for (int i = 0; i < order.length && bytes > DISK_BYTES; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                bytes -= length;
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static long checksum(int code, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(code >>> 24);
+        crc.update(code >>> 16);
+        crc.update(code >>> 8);
+        crc.update(code);
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
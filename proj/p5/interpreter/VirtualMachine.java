@@ -0,0 +1,264 @@
+package interpreter;
+
+import ast.AstErrorHandler;
+import ast.InputReader;
+import ast.OutputSink;
+import ast.RuntimeMeta;
+import ast.ValueMeta;
+
+////////////////////////////////////////////////////////////////////////////////
+
+/**
+ * Register machine for Bytecode. Runs the whole program in a single dispatch
+ * loop over primitive long/double registers; RealRuntime remains the
+ * reference for the semantics implemented here.
+ */
+public final class VirtualMachine {
+    private final Bytecode bc;
+    private InputReader input;
+    private OutputSink out;
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor
+
+    public VirtualMachine(Bytecode bc, InputReader input, OutputSink out) {
+        this.bc = bc;
+        this.input = input;
+        this.out = out;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    public RuntimeMeta run() {
+        final int[] code = bc.code;
+        final long[] ipool = bc.intPool;
+        final double[] fpool = bc.floatPool;
+        final long[] i = new long[bc.intRegs];
+        final double[] f = new double[bc.floatRegs];
+        final boolean[] idef = bc.intInit.clone();
+        final boolean[] fdef = bc.floatInit.clone();
+        // every read site consumes its input once and then keeps the value
+        final long[] iread = new long[bc.intReads];
+        final boolean[] ireadDone = new boolean[bc.intReads];
+        final double[] fread = new double[bc.floatReads];
+        final boolean[] freadDone = new boolean[bc.floatReads];
+        final OutputSink out = this.out;
+
+        int pc = 0;
+        for (;;) {
+            switch (code[pc]) {
+                case Bytecode.ICONST:
+                    i[code[pc + 1]] = ipool[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.FCONST:
+                    f[code[pc + 1]] = fpool[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.IMOV:
+                    i[code[pc + 1]] = i[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.FMOV:
+                    f[code[pc + 1]] = f[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.ISTORE:
+                    i[code[pc + 1]] = i[code[pc + 2]];
+                    idef[code[pc + 1]] = true;
+                    pc += 3;
+                    break;
+                case Bytecode.FSTORE:
+                    f[code[pc + 1]] = f[code[pc + 2]];
+                    fdef[code[pc + 1]] = true;
+                    pc += 3;
+                    break;
+                case Bytecode.IDECL:
+                    idef[code[pc + 1]] = false;
+                    pc += 2;
+                    break;
+                case Bytecode.FDECL:
+                    fdef[code[pc + 1]] = false;
+                    pc += 2;
+                    break;
+                case Bytecode.ICHK:
+                    if (!idef[code[pc + 1]]) {
+                        throw new RuntimeException("Variable " + bc.intVars[code[pc + 1]] + " not declared");
+                    }
+                    pc += 2;
+                    break;
+                case Bytecode.FCHK:
+                    if (!fdef[code[pc + 1]]) {
+                        throw new RuntimeException("Variable " + bc.floatVars[code[pc + 1]] + " not declared");
+                    }
+                    pc += 2;
+                    break;
+                case Bytecode.ISEL: {
+                    int n = code[pc + 2];
+                    int k = 0;
+                    while (k < n && !idef[code[pc + 3 + k]]) {
+                        k++;
+                    }
+                    if (k == n) {
+                        throw new RuntimeException("Variable " + bc.intVars[code[pc + 3]] + " not declared");
+                    }
+                    i[code[pc + 1]] = i[code[pc + 3 + k]];
+                    pc += 3 + n;
+                    break;
+                }
+                case Bytecode.FSEL: {
+                    int n = code[pc + 2];
+                    int k = 0;
+                    while (k < n && !fdef[code[pc + 3 + k]]) {
+                        k++;
+                    }
+                    if (k == n) {
+                        throw new RuntimeException("Variable " + bc.floatVars[code[pc + 3]] + " not declared");
+                    }
+                    f[code[pc + 1]] = f[code[pc + 3 + k]];
+                    pc += 3 + n;
+                    break;
+                }
+                case Bytecode.IADD:
+                    i[code[pc + 1]] = i[code[pc + 2]] + i[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case Bytecode.ISUB:
+                    i[code[pc + 1]] = i[code[pc + 2]] - i[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case Bytecode.IMUL:
+                    i[code[pc + 1]] = i[code[pc + 2]] * i[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case Bytecode.IDIV: {
+                    long divisor = i[code[pc + 3]];
+                    if (divisor == 0) {
+                        return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+                    }
+                    i[code[pc + 1]] = i[code[pc + 2]] / divisor;
+                    pc += 4;
+                    break;
+                }
+                case Bytecode.FADD:
+                    f[code[pc + 1]] = f[code[pc + 2]] + f[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case Bytecode.FSUB:
+                    f[code[pc + 1]] = f[code[pc + 2]] - f[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case Bytecode.FMUL:
+                    f[code[pc + 1]] = f[code[pc + 2]] * f[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case Bytecode.FDIV: {
+                    double divisor = f[code[pc + 3]];
+                    if (divisor == 0.0) {
+                        return RuntimeMeta.createError(AstErrorHandler.ErrorCode.DIV_BY_ZERO_ERROR);
+                    }
+                    f[code[pc + 1]] = f[code[pc + 2]] / divisor;
+                    pc += 4;
+                    break;
+                }
+                case Bytecode.INEG:
+                    i[code[pc + 1]] = -i[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.FNEG:
+                    f[code[pc + 1]] = -f[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.IREAD: {
+                    int site = code[pc + 2];
+                    if (!ireadDone[site]) {
+                        if (input == null || input.peek() != ValueMeta.ValueType.INT) {
+                            return RuntimeMeta.createError(AstErrorHandler.ErrorCode.FAILED_STDIN_READ);
+                        }
+                        iread[site] = input.nextInt();
+                        ireadDone[site] = true;
+                    }
+                    i[code[pc + 1]] = iread[site];
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.FREAD: {
+                    int site = code[pc + 2];
+                    if (!freadDone[site]) {
+                        if (input == null || input.peek() != ValueMeta.ValueType.FLOAT) {
+                            throw new RuntimeException("Expression is not valid");
+                        }
+                        fread[site] = input.nextFloat();
+                        freadDone[site] = true;
+                    }
+                    f[code[pc + 1]] = fread[site];
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.IPRINT:
+                    out.printInt(i[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case Bytecode.FPRINT:
+                    out.printFloat(f[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case Bytecode.JMP:
+                    pc = code[pc + 1];
+                    break;
+                case Bytecode.IJEQ:
+                    pc = i[code[pc + 1]] == i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.IJNE:
+                    pc = i[code[pc + 1]] != i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.IJLT:
+                    pc = i[code[pc + 1]] < i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.IJGE:
+                    pc = i[code[pc + 1]] >= i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.IJGT:
+                    pc = i[code[pc + 1]] > i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.IJLE:
+                    pc = i[code[pc + 1]] <= i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJEQ:
+                    pc = f[code[pc + 1]] == f[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJNE:
+                    pc = f[code[pc + 1]] != f[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJLT:
+                    pc = f[code[pc + 1]] < f[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJGE:
+                    pc = f[code[pc + 1]] >= f[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJGT:
+                    pc = f[code[pc + 1]] > f[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJLE:
+                    pc = f[code[pc + 1]] <= f[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJNLT:
+                    pc = !(f[code[pc + 1]] < f[code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJNGE:
+                    pc = !(f[code[pc + 1]] >= f[code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJNGT:
+                    pc = !(f[code[pc + 1]] > f[code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.FJNLE:
+                    pc = !(f[code[pc + 1]] <= f[code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                    break;
+                case Bytecode.HALT:
+                    return RuntimeMeta.createSuccess(null);
+                default:
+                    throw new RuntimeException("Unknown opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+}
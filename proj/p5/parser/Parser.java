@@ -259,8 +259,9 @@ public class Parser extends java_cup.runtime.lr_parser {
   public void report_fatal_error(String message, Object info) {
     Interpreter.fatalError(message + " (" + info + ")", Interpreter.EXIT_PARSING_ERROR);
   }
-  Location loc(int line, int column) {
-    return new Location(line, column);
+  // left is the number of the first token, see ParserWrapper
+  Location loc(int left, int right) {
+    return ((ParserWrapper.TokenSymbolFactory) getSymbolFactory()).location(left);
   }
 
 
@@ -308,8 +309,8 @@ class CUP$Parser$actions {
               Program RESULT =null;
 		int ulleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int ulright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		UnitList ul = (UnitList)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new Program(ul, loc(ulleft, ulright)); 
+		UnitList.Builder ul = (UnitList.Builder)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 RESULT = new Program(ul.build(loc(ulleft, ulright)), loc(ulleft, ulright)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("program",0, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -317,11 +318,11 @@ class CUP$Parser$actions {
           /*. . . . . . . . . . . . . . . . . . . .*/
           case 2: // unitList ::= unit 
             {
-              UnitList RESULT =null;
+              UnitList.Builder RESULT =null;
 		int uleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int uright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
 		Unit u = (Unit)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new UnitList(u,loc(uleft, uright)); 
+		 RESULT = new UnitList.Builder().prepend(u); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("unitList",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -329,14 +330,14 @@ class CUP$Parser$actions {
           /*. . . . . . . . . . . . . . . . . . . .*/
           case 3: // unitList ::= unit unitList 
             {
-              UnitList RESULT =null;
+              UnitList.Builder RESULT =null;
 		int uleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).left;
 		int uright = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).right;
 		Unit u = (Unit)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
 		int ulleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int ulright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		UnitList ul = (UnitList)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new UnitList(u, ul, loc(uleft, ulright)); 
+		UnitList.Builder ul = (UnitList.Builder)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 RESULT = ul.prepend(u); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("unitList",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -414,7 +415,7 @@ class CUP$Parser$actions {
 		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).right;
 		Expr e = (Expr)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
-		 RESULT = new PrintStmt(e, loc(eleft,eright)); 
+		 RESULT = new PrintStmt(e, loc(((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).left,eright)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("stmt",4, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -429,7 +430,7 @@ class CUP$Parser$actions {
 		int sleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int sright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
 		Stmt s = (Stmt)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new IfStmt(e, s, loc(eleft, sright)); 
+		 RESULT = new IfStmt(e, s, loc(((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-4)).left, sright)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("stmt",4, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-4)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -447,7 +448,7 @@ class CUP$Parser$actions {
 		int s2left = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int s2right = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
 		Stmt s2 = (Stmt)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new IfStmt(e, s1, s2, loc(eleft, s2right)); 
+		 RESULT = new IfStmt(e, s1, s2, loc(((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-6)).left, s2right)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("stmt",4, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-6)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -462,7 +463,7 @@ class CUP$Parser$actions {
 		int sleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int sright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
 		Stmt s = (Stmt)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new WhileStmt(e, s, loc(eleft, sright)); 
+		 RESULT = new WhileStmt(e, s, loc(((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-4)).left, sright)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("stmt",4, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-4)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -473,8 +474,8 @@ class CUP$Parser$actions {
               Stmt RESULT =null;
 		int ulleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).left;
 		int ulright = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).right;
-		UnitList ul = (UnitList)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
-		 RESULT = new BlockStmt(ul, loc(ulleft, ulright)); 
+		UnitList.Builder ul = (UnitList.Builder)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
+		 RESULT = new BlockStmt(ul.build(loc(ulleft, ulright)), loc(((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).left, ulright)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("stmt",4, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -561,7 +562,7 @@ class CUP$Parser$actions {
 		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
 		Expr e = (Expr)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new UnaryMinusExpr(e, loc(eleft, eright)); 
+		 RESULT = new UnaryMinusExpr(e, loc(mleft, eright)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("expr",6, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
@@ -789,7 +790,7 @@ class CUP$Parser$actions {
 		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
 		CondExpr e = (CondExpr)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = new LogicalExpr(e, LogicalExpr.NOT, loc(eleft, eright)); 
+		 RESULT = new LogicalExpr(e, LogicalExpr.NOT, loc(((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).left, eright)); 
               CUP$Parser$result = parser.getSymbolFactory().newSymbol("condexpr",8, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
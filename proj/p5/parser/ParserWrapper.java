@@ -1,14 +1,52 @@
 package parser;
 import java.io.Reader;
+import java.util.Arrays;
 import java_cup.runtime.*;
 import interpreter.Interpreter;
 import ast.Program;
 
 public class ParserWrapper {
     public static Program parse(Reader reader, String filename) throws Exception {
-        ComplexSymbolFactory csf = new ComplexSymbolFactory();
+        ComplexSymbolFactory csf = new TokenSymbolFactory();
         Lexer scanner = new Lexer(reader, csf, filename);
         Parser parser = new Parser(scanner, csf);
 	return (Program)parser.parse().value;
     }
+
+    // The grammar builds node Locations from the left of their first
+    // symbol, but ComplexSymbolFactory fills it in with a character offset
+    // the Lexer does not keep. Tokens are numbered instead, and their line
+    // and start column kept here; a nonterminal gets the left of its first
+    // symbol from CUP, so Parser.loc finds where any node starts.
+    static final class TokenSymbolFactory extends ComplexSymbolFactory {
+        private int[] lines = new int[256];
+        private int[] columns = new int[256];
+        private int tokens = 0;
+
+        public Symbol newSymbol(String name, int id, Location left, Location right, Object value) {
+            return numbered(super.newSymbol(name, id, left, right, value), left);
+        }
+
+        public Symbol newSymbol(String name, int id, Location left, Location right) {
+            return numbered(super.newSymbol(name, id, left, right), left);
+        }
+
+        private Symbol numbered(Symbol symbol, Location left) {
+            if (tokens == lines.length) {
+                lines = Arrays.copyOf(lines, 2 * tokens);
+                columns = Arrays.copyOf(columns, 2 * tokens);
+            }
+            lines[tokens] = left.getLine();
+            columns[tokens] = left.getColumn();
+            symbol.left = tokens;
+            symbol.right = tokens;
+            tokens++;
+            return symbol;
+        }
+
+        // where token starts
+        ast.Location location(int token) {
+            return new ast.Location(lines[token], columns[token]);
+        }
+    }
 }
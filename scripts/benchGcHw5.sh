@@ -0,0 +1,41 @@
+#!/bin/bash
+
+current_dir=$(pwd)
+project_dir="${current_dir}/proj"
+project5_dir="${current_dir}/proj/p5"
+
+# Counts the collections of a tight arithmetic loop run concretely, so the
+# allocation rate of the runtime shows up as GC events under -Xlog:gc.
+# Usage: ./scripts/benchGcHw5.sh [iterations] [run option, default --real]
+iterations=${1:-5000000}
+mode=${2:---real}
+
+bench_file=$(mktemp)
+cat > $bench_file <<PROG
+int i = 0;
+int acc = 0;
+float f = 0.0;
+while (i < $iterations) {
+  acc = acc + i * 3 - i / 2;
+  f = f + 0.5;
+  i = i + 1;
+}
+print acc;
+print f;
+PROG
+
+# Change the current directory to the directory of the script
+cd $project5_dir
+make -s
+
+start=$(date +%s%N)
+gc_log=$(java -cp "$CUP_DIR/java-cup-11b-runtime.jar:." -Xmx256m -Xlog:gc \
+  interpreter.Interpreter $bench_file $mode < /dev/null)
+end=$(date +%s%N)
+
+echo "$gc_log" | grep -v "^\[" 
+echo "mode: $mode, iterations: $iterations"
+echo "gc events: $(echo "$gc_log" | grep -c "\[gc\].*Pause")"
+echo "wall time: $(( (end - start) / 1000000 )) ms"
+
+rm -f $bench_file
@@ -0,0 +1,17 @@
+#!/bin/bash
+
+current_dir=$(pwd)
+project_dir="${current_dir}/proj"
+project5_dir="${current_dir}/proj/p5"
+
+# Times the lexer, parser, type checker, RealRuntime and AbstRuntime on
+# generated programs, with the allocation and GC figures of each; see
+# bench.Bench for the options.
+# Usage: ./scripts/benchHw5.sh [--size 100,1000] [benchmark...]
+#        ./scripts/benchHw5.sh --check [--input FILE] s1 s2 ...
+
+# Change the current directory to the directory of the script
+cd $project5_dir
+make -s
+
+java -cp "$CUP_DIR/java-cup-11b-runtime.jar:." bench.Bench "$@"